@@ -0,0 +1,95 @@
+package planning.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import planning.agent.AStarAgent;
+import planning.agent.Heuristic;
+import planning.agent.JPSAgent;
+import planning.agent.LazyThetaStarAgent;
+import planning.agent.ThetaStarAgent;
+import planning.geom.Path;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the traverse method of the A* family of agents corner to corner with every heuristic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AStarBenchmark {
+
+    /*
+        Fields
+     */
+
+    @Param({"EUCLIDEAN", "MANHATTAN", "OCTILE"})
+    public String heuristic;        // The name of the built-in heuristic used by the agent
+
+    private AStarAgent mAgent;      // The A* agent being benchmarked
+    private JPSAgent mJPSAgent;     // The jump point search agent being benchmarked
+    private ThetaStarAgent mThetaStarAgent;         // The Theta* agent being benchmarked
+    private LazyThetaStarAgent mLazyThetaStarAgent; // The Lazy Theta* agent being benchmarked
+
+    /*
+        Methods
+     */
+
+    @Setup(Level.Trial)
+    public void setUp(GridState state) {
+        Heuristic heuristic = Heuristic.valueOf(this.heuristic);
+        mAgent = new AStarAgent(0, 0, state.size - 1, state.size - 1, heuristic);
+        mJPSAgent = new JPSAgent(0, 0, state.size - 1, state.size - 1, heuristic);
+        mThetaStarAgent = new ThetaStarAgent(0, 0, state.size - 1, state.size - 1, heuristic);
+        mLazyThetaStarAgent = new LazyThetaStarAgent(0, 0, state.size - 1, state.size - 1, heuristic);
+    }
+
+    @Benchmark
+    public Path traverse(GridState state, ExpansionCounters counters) {
+        Path path = mAgent.traverse(state.grid);
+        counters.record(mAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path jumpPointSearch(GridState state, ExpansionCounters counters) {
+        Path path = mJPSAgent.traverse(state.grid);
+        counters.record(mJPSAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path thetaStar(GridState state, ExpansionCounters counters) {
+        Path path = mThetaStarAgent.traverse(state.grid);
+        counters.record(mThetaStarAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path lazyThetaStar(GridState state, ExpansionCounters counters) {
+        Path path = mLazyThetaStarAgent.traverse(state.grid);
+        counters.record(mLazyThetaStarAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path hierarchicalAStar(GridState state, HPAStarState hpaStar, ExpansionCounters counters) {
+        Path path = hpaStar.agent.traverse(state.grid);
+        counters.record(hpaStar.agent);
+        return path;
+    }
+
+}
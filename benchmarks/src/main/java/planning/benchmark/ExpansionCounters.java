@@ -0,0 +1,52 @@
+package planning.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import planning.agent.Agent;
+
+/**
+ * Reports the work each benchmarked traversal did, in nodes and line of sight checks, as secondary JMH results.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class ExpansionCounters {
+
+    /*
+        Fields
+     */
+
+    public long nodesExpanded;      // The total amount of nodes expanded during the iteration
+    public long nodesGenerated;     // The total amount of nodes generated during the iteration
+    public long lineOfSightChecks;  // The total amount of line of sight checks during the iteration
+    public long traversals;         // The amount of traversals recorded during the iteration
+
+    /*
+        Methods
+     */
+
+    /**
+     * Resets the counters before each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+        nodesExpanded = 0;
+        nodesGenerated = 0;
+        lineOfSightChecks = 0;
+        traversals = 0;
+    }
+
+    /**
+     * Adds the work of the agents last traversal to the counters.
+     * @param agent Agent: The agent that just traversed the grid.
+     */
+    public void record(Agent agent) {
+        nodesExpanded += agent.getNodesExpanded();
+        nodesGenerated += agent.getNodesGenerated();
+        lineOfSightChecks += agent.getLineOfSightChecks();
+        traversals += 1;
+    }
+
+}
@@ -0,0 +1,45 @@
+package planning.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import planning.flow.FlowField;
+import planning.flow.FlowFieldAgent;
+
+/**
+ * Holds the flow field of a trial and the agent following it. It is kept apart from TraverseBenchmark so that the
+ * field is only built for the benchmarks using it, and the field is detached from the shared map once the trial
+ * is over rather than repairing itself through the edits of the other benchmarks.
+ */
+@State(Scope.Thread)
+public class FlowFieldState {
+
+    /*
+        Fields
+     */
+
+    public FlowField field;         // The field towards the far corner of the map
+    public FlowFieldAgent agent;    // The agent following the field from the near corner
+
+    /*
+        Methods
+     */
+
+    @Setup(Level.Trial)
+    public void setUp(GridState state) {
+        int goal = state.size - 1;
+        field = new FlowField(state.grid, goal, goal);
+        agent = new FlowFieldAgent(field, 0, 0);
+    }
+
+    /**
+     * Stops the field of the trial from listening to the shared map.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        field.detach();
+    }
+
+}
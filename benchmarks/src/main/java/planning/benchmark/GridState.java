@@ -0,0 +1,57 @@
+package planning.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import planning.geom.Grid;
+
+import java.util.SplittableRandom;
+
+/**
+ * Defines the shared benchmark map. Every combination of size, obstacle density and seed is a separate
+ * trial, and a given seed always produces the same obstacle layout.
+ */
+@State(Scope.Benchmark)
+public class GridState {
+
+    /*
+        Constants
+     */
+
+    public static final int OBSTACLE_SIZE = 8;  // The maximum width and height of generated obstacles
+
+    /*
+        Fields
+     */
+
+    @Param({"64", "256", "1024", "4096"})
+    public int size;            // The width and height of the map
+
+    @Param({"0.0", "0.005", "0.02"})
+    public double density;      // The value passed to Grid.setPercentObstacles
+
+    @Param({"1", "2", "3"})
+    public long seed;           // The seed of the obstacle layout
+
+    public Grid grid;           // The map being traversed
+
+    /*
+        Methods
+     */
+
+    /**
+     * Builds the map for a trial. The corners used as start and goal are protected from obstacles.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        grid = new Grid(size, size, OBSTACLE_SIZE, OBSTACLE_SIZE, 0.0);
+        grid.setPercentObstacles(density);
+        grid.protect(0, 0);
+        grid.protect(size - 1, size - 1);
+        grid.setRandom(new SplittableRandom(seed));
+        grid.createObstacles();
+    }
+
+}
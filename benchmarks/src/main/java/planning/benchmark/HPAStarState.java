@@ -0,0 +1,49 @@
+package planning.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import planning.agent.HPAStarAgent;
+import planning.agent.Heuristic;
+
+/**
+ * Holds the HPA* agent of a trial. It is kept apart from AStarBenchmark so that its cluster graph is only built
+ * for the benchmarks using it, and the graph is detached from the shared map once the trial is over.
+ */
+@State(Scope.Thread)
+public class HPAStarState {
+
+    /*
+        Fields
+     */
+
+    @Param({"EUCLIDEAN", "MANHATTAN", "OCTILE"})
+    public String heuristic;        // The name of the built-in heuristic used by the agent
+
+    public HPAStarAgent agent;      // The HPA* agent being benchmarked
+
+    /*
+        Methods
+     */
+
+    /**
+     * Builds the agent and its cluster graph up front so the graph is not measured as part of the first traversal.
+     */
+    @Setup(Level.Trial)
+    public void setUp(GridState state) {
+        agent = new HPAStarAgent(0, 0, state.size - 1, state.size - 1, Heuristic.valueOf(heuristic));
+        agent.plan(state.grid);
+    }
+
+    /**
+     * Stops the cluster graph of the trial from listening to the shared map.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        agent.detach();
+    }
+
+}
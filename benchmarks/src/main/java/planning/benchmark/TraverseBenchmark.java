@@ -0,0 +1,155 @@
+package planning.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import planning.agent.BFSAgent;
+import planning.agent.DFSAgent;
+import planning.agent.Heuristic;
+import planning.agent.RRTAgent;
+import planning.agent.RRTConnectAgent;
+import planning.agent.RRTStarAgent;
+import planning.geom.Path;
+import planning.realtime.DStarLiteAgent;
+import planning.realtime.RealTimeAStarAgent;
+import planning.realtime.RealTimeAgent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the traverse method of the uninformed, sampling and real-time agents corner to corner. D* Lite is
+ * measured replanning after a single tile changes, since that is the case it is built for. The flow field agent is
+ * measured both reading a field that is up to date and repairing its field after a single tile changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TraverseBenchmark {
+
+    /*
+        Fields
+     */
+
+    private BFSAgent mBFSAgent;
+    private DFSAgent mDFSAgent;
+    private RRTAgent mRRTAgent;
+    private RRTStarAgent mRRTStarAgent;
+    private RRTConnectAgent mRRTConnectAgent;
+    private RRTConnectAgent mParallelRRTConnectAgent;
+    private RealTimeAStarAgent mRealTimeAgent;
+    private DStarLiteAgent mDStarLiteAgent;
+
+    /*
+        Methods
+     */
+
+    @Setup(Level.Trial)
+    public void setUp(GridState state) {
+        int goal = state.size - 1;
+        mBFSAgent = new BFSAgent(0, 0, goal, goal);
+        mDFSAgent = new DFSAgent(0, 0, goal, goal);
+        mRRTAgent = new RRTAgent(0, 0, goal, goal, RRTAgent.DEFAULT_EPSILON, RRTAgent.DEFAULT_MAX_NODES);
+        mRRTStarAgent = new RRTStarAgent(0, 0, goal, goal, RRTAgent.DEFAULT_EPSILON, RRTAgent.DEFAULT_MAX_NODES);
+        mRRTConnectAgent = new RRTConnectAgent(0, 0, goal, goal, RRTAgent.DEFAULT_EPSILON,
+                RRTAgent.DEFAULT_MAX_NODES);
+        mParallelRRTConnectAgent = new RRTConnectAgent(0, 0, goal, goal, RRTAgent.DEFAULT_EPSILON,
+                RRTAgent.DEFAULT_MAX_NODES);
+        mParallelRRTConnectAgent.setWorkers(Runtime.getRuntime().availableProcessors());
+        mRealTimeAgent = new RealTimeAStarAgent(0, 0, goal, goal, Heuristic.OCTILE,
+                RealTimeAgent.MIN_PLANNING_TIME);
+        mDStarLiteAgent = new DStarLiteAgent(0, 0, goal, goal, Heuristic.OCTILE, RealTimeAgent.MIN_PLANNING_TIME);
+    }
+
+    @Benchmark
+    public Path bfs(GridState state, ExpansionCounters counters) {
+        Path path = mBFSAgent.traverse(state.grid);
+        counters.record(mBFSAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path dfs(GridState state, ExpansionCounters counters) {
+        Path path = mDFSAgent.traverse(state.grid);
+        counters.record(mDFSAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path rrt(GridState state, ExpansionCounters counters) {
+        Path path = mRRTAgent.traverse(state.grid);
+        counters.record(mRRTAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path rrtStar(GridState state, ExpansionCounters counters) {
+        Path path = mRRTStarAgent.traverse(state.grid);
+        counters.record(mRRTStarAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path rrtConnect(GridState state, ExpansionCounters counters) {
+        Path path = mRRTConnectAgent.traverse(state.grid);
+        counters.record(mRRTConnectAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path parallelRRTConnect(GridState state, ExpansionCounters counters) {
+        Path path = mParallelRRTConnectAgent.traverse(state.grid);
+        counters.record(mParallelRRTConnectAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path realTimeAStar(GridState state, ExpansionCounters counters) {
+        // Real-time agents advance their start point, so every invocation plans from the corner again
+        mRealTimeAgent.setStart(0, 0);
+        Path path = mRealTimeAgent.traverse(state.grid);
+        counters.record(mRealTimeAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path dStarLiteReplan(GridState state, ExpansionCounters counters) {
+        // Toggle the center tile so that every invocation repairs the previous search after a local change
+        int center = state.size / 2;
+        boolean occupied = state.grid.getState(center, center) == planning.geom.State.OCCUPIED;
+        state.grid.setState(center, center, occupied ? planning.geom.State.EMPTY : planning.geom.State.OCCUPIED);
+        Path path = mDStarLiteAgent.traverse(state.grid);
+        counters.record(mDStarLiteAgent);
+        return path;
+    }
+
+    @Benchmark
+    public Path flowField(GridState state, FlowFieldState flow, ExpansionCounters counters) {
+        Path path = flow.agent.traverse(state.grid);
+        counters.record(flow.agent);
+        return path;
+    }
+
+    @Benchmark
+    public Path flowFieldRepair(GridState state, FlowFieldState flow, ExpansionCounters counters) {
+        // Toggle the center tile so that every invocation repairs the field after a local change
+        int center = state.size / 2;
+        boolean occupied = state.grid.getState(center, center) == planning.geom.State.OCCUPIED;
+        state.grid.setState(center, center, occupied ? planning.geom.State.EMPTY : planning.geom.State.OCCUPIED);
+        flow.field.update();
+        Path path = flow.agent.traverse(state.grid);
+        counters.record(flow.agent);
+        return path;
+    }
+
+}
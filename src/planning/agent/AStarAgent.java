@@ -1,13 +1,9 @@
 package planning.agent;
 
-import planning.geom.GeoMath;
 import planning.geom.Grid;
+import planning.geom.Path;
 import planning.geom.Point;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.PriorityQueue;
-
 /**
  * Defines an A* search agent for generating paths using various heuristics.
  */
@@ -17,9 +13,8 @@ public class AStarAgent extends Agent {
         Fields
      */
 
-    private PriorityQueue<AStarNode> mOpenList; // The open list used for the agent
-    private HashSet<Point> mClosedList;         // The closed list used for the agent
-    private Heuristic eHeuristic;               // The heuristic used for the agent
+    private AStarSearch mSearch;    // The search core used for the agent
+    private Heuristic mHeuristic;   // The heuristic used for the agent
 
     /*
         Constructors
@@ -31,9 +26,8 @@ public class AStarAgent extends Agent {
      */
     public AStarAgent(int sx, int sy, int gx, int gy, Heuristic heuristic) {
         super(sx, sy, gx, gy);
-        mOpenList = new PriorityQueue<>();
-        mClosedList = new HashSet<>();
-        eHeuristic = heuristic;
+        mSearch = new AStarSearch(0);
+        mHeuristic = heuristic;
     }
 
     public AStarAgent(Point start, Point goal, Heuristic heuristic) {
@@ -49,7 +43,7 @@ public class AStarAgent extends Agent {
      * @return Heuristic: The heuristic in use by the agent.
      */
     public Heuristic getHeuristic() {
-        return eHeuristic;
+        return mHeuristic;
     }
 
     /**
@@ -57,7 +51,7 @@ public class AStarAgent extends Agent {
      * @param heuristic: The new heuristic to use.
      */
     public void setHeuristic(Heuristic heuristic) {
-        eHeuristic = heuristic;
+        mHeuristic = heuristic;
     }
 
     /*
@@ -67,48 +61,17 @@ public class AStarAgent extends Agent {
     /**
      * Traverses the given grid for a path.
      * @param grid The grid to path find across.
-     * @return LinkedList: A list containing the path if it found. May return null if no path is found.
+     * @return Path: The path if it found. May return null if no path is found.
      */
-    public LinkedList<Point> traverse(Grid grid) {
-        mOpenList.clear();
-        mClosedList.clear();
-        mOpenList.add(new AStarNode(getStart()));
-        AStarNode current = null;
-        while (!mOpenList.isEmpty()) {
-            current = mOpenList.poll();
-            mClosedList.add(current.getPosition());
-            if (isGoalNode(current)) {
-                return generatePath(current);
-            }
-            for (Point p : grid.generateNeighbors(current.getPosition().getX(),
-                    current.getPosition().getY())) {
-                AStarNode node = new AStarNode(p, current);
-                if (mOpenList.contains(node) || mClosedList.contains(p)) {
-                    continue;
-                }
-                node.setGScore(current.getGScore() + 1);
-                switch (eHeuristic) {
-                    case EUCLIDEAN:
-                        node.setFScore(node.getGScore() + GeoMath.euclideanDistance(current.getPosition().getX(),
-                            current.getPosition().getY(), getGoal().getX(), getGoal().getY()));
-                        break;
-                    case MANHATTAN:
-                        node.setFScore(node.getGScore() + GeoMath.manhattanDistance(current.getPosition().getX(),
-                                current.getPosition().getY(), getGoal().getX(), getGoal().getY()));
-                        break;
-                    case OCTILE:
-                        node.setFScore(node.getGScore() + GeoMath.octileDistance(current.getPosition().getX(),
-                                current.getPosition().getY(), getGoal().getX(), getGoal().getY()));
-                        break;
-                    default:
-                        node.setFScore(node.getGScore() + GeoMath.octileDistance(current.getPosition().getX(),
-                                current.getPosition().getY(), getGoal().getX(), getGoal().getY()));
-                        break;
-                }
-                mOpenList.add(node);
-            }
+    protected Path findPath(Grid grid) {
+        boolean found = mSearch.search(grid, getStart().getX(), getStart().getY(),
+                getGoal().getX(), getGoal().getY(), mHeuristic, AStarSearch.NO_DEADLINE);
+        setNodesExpanded(mSearch.getExpandedCount());
+        recordOpenList(mSearch.getContext().getOpenList());
+        if (!found) {
+            return null;
         }
-        return null;
+        return mSearch.generatePath(grid, mSearch.getLastCell());
     }
 
 }
@@ -0,0 +1,172 @@
+package planning.agent;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+
+/**
+ * Defines the A* search core shared by the A* search agents. Cells are keyed by their grid cell index
+ * (y * width + x) and scored in primitive arrays, with an indexed heap as the open list.
+ */
+public class AStarSearch {
+
+    /*
+        Constants
+     */
+
+    public static final double CARDINAL_COST = 1.0;             // The cost of a horizontal or vertical step
+    public static final double DIAGONAL_COST = Math.sqrt(2);    // The cost of a diagonal step
+    public static final long NO_DEADLINE = Long.MAX_VALUE;      // Lets a search run until it completes
+    public static final int NO_CELL = SearchContext.NO_CELL;    // Marks the absence of a cell
+    private static final int DEADLINE_CHECK_INTERVAL = 64;      // The amount of expansions between clock reads
+
+    /*
+        Fields
+     */
+
+    private SearchContext mContext; // The per-cell state reused by every search
+    private int[] iNeighbors;       // Receives the neighbors of the cell being expanded
+    private int iLastCell;          // The last cell expanded by the search
+    private int iExpansions;        // The amount of cells expanded by the last search
+    private boolean bTimedOut;      // Whether the last search stopped at its deadline
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a search able to run on grids of up to the given amount of cells.
+     * @param capacity int: The amount of cells to size the search for. Grows on demand.
+     */
+    public AStarSearch(int capacity) {
+        this(new SearchContext(capacity));
+    }
+
+    /**
+     * Creates a search that keeps its per-cell state in the given context.
+     * @param context SearchContext: The context to reuse across searches, cannot be null.
+     */
+    public AStarSearch(SearchContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("ERROR: Context cannot be null!");
+        }
+        mContext = context;
+        iNeighbors = new int[Grid.MAX_NEIGHBORS];
+        iLastCell = NO_CELL;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the last cell expanded by the most recent search.
+     * @return int: The goal cell if the search succeeded, otherwise the cell it stopped on. May be NO_CELL.
+     */
+    public int getLastCell() {
+        return iLastCell;
+    }
+
+    /**
+     * Gets the context holding the per-cell state of the most recent search.
+     * @return SearchContext: The context used by the search.
+     */
+    public SearchContext getContext() {
+        return mContext;
+    }
+
+    /**
+     * Gets the amount of cells expanded by the most recent search.
+     * @return int: The amount of cells taken off the open list.
+     */
+    public int getExpandedCount() {
+        return iExpansions;
+    }
+
+    /**
+     * Determines if the most recent search was stopped by its deadline rather than completing.
+     * @return boolean: Whether the last search ran out of time.
+     */
+    public boolean hasTimedOut() {
+        return bTimedOut;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Runs an A* search from the start to the goal. Horizontal and vertical steps cost CARDINAL_COST,
+     * diagonal steps cost DIAGONAL_COST.
+     * @param grid Grid: The grid to path find across.
+     * @param sx int: The x ordinal of the starting point.
+     * @param sy int: The y ordinal of the starting point.
+     * @param gx int: The x ordinal of the goal point.
+     * @param gy int: The y ordinal of the goal point.
+     * @param heuristic Heuristic: The heuristic used to order the open list, bound to the goal once per search.
+     * @param deadline long: The wall clock time in milliseconds to stop at, or NO_DEADLINE.
+     * @return boolean: Whether the goal was reached. Use getLastCell() to find where the search stopped.
+     */
+    public boolean search(Grid grid, int sx, int sy, int gx, int gy, Heuristic heuristic, long deadline) {
+        iLastCell = NO_CELL;
+        iExpansions = 0;
+        bTimedOut = false;
+        // Tiles known to lie in different components cannot be joined by any path, so the search is skipped
+        if (!grid.mayBeConnected(sx, sy, gx, gy)) {
+            return false;
+        }
+        mContext.begin(grid.getCellCount());
+        IndexedHeap openList = mContext.getOpenList();
+        int width = grid.getGridWidth();
+        int start = grid.getCellIndex(sx, sy);
+        int goal = grid.getCellIndex(gx, gy);
+        Heuristic bound = heuristic.bind(grid, gx, gy);
+        double h = bound.estimate(sx, sy);
+        mContext.visit(start, 0, NO_CELL);
+        openList.update(start, h, h);
+        while (!openList.isEmpty()) {
+            if (deadline != NO_DEADLINE && iExpansions % DEADLINE_CHECK_INTERVAL == 0 &&
+                    System.currentTimeMillis() > deadline) {
+                bTimedOut = true;
+                return false;
+            }
+            int current = openList.poll();
+            mContext.close(current);
+            iLastCell = current;
+            iExpansions += 1;
+            if (current == goal) {
+                return true;
+            }
+            int cx = current % width;
+            int cy = current / width;
+            double g = mContext.getGScore(current);
+            int count = grid.getNeighbors(current, iNeighbors);
+            for (int i = 0; i < count; i++) {
+                int next = iNeighbors[i];
+                if (mContext.isClosed(next)) {
+                    continue;
+                }
+                int ny = next / width;
+                int nx = next - ny * width;
+                double score = g + (nx != cx && ny != cy ? DIAGONAL_COST : CARDINAL_COST);
+                if (score >= mContext.getGScore(next)) {
+                    continue;
+                }
+                mContext.visit(next, score, current);
+                h = bound.estimate(nx, ny);
+                openList.update(next, score + h, h);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generates the path ending at a cell of the most recent search.
+     * @param grid Grid: The grid that was searched.
+     * @param cell int: The last cell in the path.
+     * @return Path: The path, from the start to the given cell.
+     */
+    public Path generatePath(Grid grid, int cell) {
+        return mContext.generatePath(grid, cell);
+    }
+
+}
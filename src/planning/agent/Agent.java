@@ -1,12 +1,20 @@
 package planning.agent;
 
 import planning.geom.Grid;
+import planning.geom.Path;
 import planning.geom.Point;
-
-import java.util.LinkedList;
+import planning.smoothing.PathPipeline;
+import planning.smoothing.PathStage;
+import planning.stats.SearchMetrics;
+import planning.stats.SearchStats;
+import planning.stats.TraverseEvent;
 
 /**
  * Defines an abstract Agent for creating search agents.
+ * <div>Agents implement findPath, and callers use traverse, which resets the work counters and, while statistics
+ * are enabled, times the search and publishes its SearchStats to getLastStats, the latency histogram of the agent
+ * type and a planning.Traverse flight recorder event. With statistics disabled traverse only resets the counters
+ * and calls findPath.</div>
  */
 public abstract class Agent {
 
@@ -15,6 +23,12 @@ public abstract class Agent {
      */
     private Point mStart;               // The start point
     private Point mGoal;                // The goal point
+    private long lNodesExpanded;        // The amount of nodes expanded by the last traversal
+    private long lNodesGenerated;       // The amount of nodes generated by the last traversal
+    private int iPeakOpenSize;          // The largest open list of the last traversal
+    private long lLineOfSightChecks;    // The amount of line of sight checks made by the last traversal
+    private boolean bStatsEnabled;      // Whether traversals are timed and published
+    private SearchStats mLastStats;     // The statistics of the last instrumented traversal
 
     /*
         Constructors
@@ -30,6 +44,7 @@ public abstract class Agent {
     public Agent(int sx, int sy, int gx, int gy) {
         mStart = new Point(sx, sy);
         mGoal = new Point(gx, gy);
+        bStatsEnabled = SearchMetrics.isEnabledByDefault();
     }
 
     /**
@@ -40,6 +55,7 @@ public abstract class Agent {
     public Agent(Point start, Point goal) {
         mStart = start;
         mGoal = goal;
+        bStatsEnabled = SearchMetrics.isEnabledByDefault();
     }
 
     /*
@@ -96,46 +112,191 @@ public abstract class Agent {
         mGoal = point;
     }
 
+    /**
+     * Gets the amount of nodes the most recent traversal expanded.
+     * @return long: The amount of nodes expanded by the last call to traverse.
+     */
+    public long getNodesExpanded() {
+        return lNodesExpanded;
+    }
+
+    /**
+     * Gets the amount of nodes the most recent traversal added to its open list or tree.
+     * @return long: The amount of nodes generated by the last call to traverse.
+     */
+    public long getNodesGenerated() {
+        return lNodesGenerated;
+    }
+
+    /**
+     * Gets the most nodes the open list of the most recent traversal held at once.
+     * @return int: The peak open list size, or zero (0) for agents without an open list.
+     */
+    public int getPeakOpenSize() {
+        return iPeakOpenSize;
+    }
+
+    /**
+     * Gets the amount of line of sight checks the most recent traversal made.
+     * @return long: The amount of line of sight checks made by the last call to traverse.
+     */
+    public long getLineOfSightChecks() {
+        return lLineOfSightChecks;
+    }
+
+    /**
+     * Determines if traversals are timed and published.
+     * @return boolean: Whether statistics are enabled for the agent.
+     */
+    public boolean isStatsEnabled() {
+        return bStatsEnabled;
+    }
+
+    /**
+     * Turns statistics on or off for the agent. Off by default, unless the planning.stats system property is true.
+     * @param enabled boolean: Whether to time and publish traversals.
+     */
+    public void setStatsEnabled(boolean enabled) {
+        bStatsEnabled = enabled;
+    }
+
+    /**
+     * Gets the statistics of the most recent traversal made with statistics enabled.
+     * @return SearchStats: The statistics, or null if no traversal was instrumented yet.
+     */
+    public SearchStats getLastStats() {
+        return mLastStats;
+    }
+
+    /**
+     * Gets the heuristic that guides the agent. Agents with a heuristic override this.
+     * @return Heuristic: The heuristic in use by the agent, or null if the agent does not use one.
+     */
+    public Heuristic getHeuristic() {
+        return null;
+    }
+
+    /**
+     * Records the amount of nodes expanded by a traversal. Called by agents at the end of traverse.
+     * @param nodes long: The amount of nodes expanded.
+     */
+    protected void setNodesExpanded(long nodes) {
+        lNodesExpanded = nodes;
+    }
+
+    /**
+     * Records the amount of nodes generated by a traversal.
+     * @param nodes long: The amount of nodes added to the open list or tree.
+     */
+    protected void setNodesGenerated(long nodes) {
+        lNodesGenerated = nodes;
+    }
+
+    /**
+     * Records the largest open list of a traversal.
+     * @param size int: The most nodes the open list held at once.
+     */
+    protected void setPeakOpenSize(int size) {
+        iPeakOpenSize = size;
+    }
+
+    /**
+     * Records the nodes generated and the peak open list size of a traversal from the heap it used.
+     * @param openList IndexedHeap: The open list of the traversal.
+     */
+    protected void recordOpenList(IndexedHeap openList) {
+        lNodesGenerated = openList.getInsertCount();
+        iPeakOpenSize = openList.getPeakSize();
+    }
+
+    /**
+     * Adds line of sight checks made outside lineOfSight, such as by worker threads, to the count.
+     * @param checks long: The amount of checks made.
+     */
+    protected void addLineOfSightChecks(long checks) {
+        lLineOfSightChecks += checks;
+    }
+
     /*
         Methods
      */
 
     /**
-     * Generates a list of points that represent the path.
+     * Generates a path across a grid. Resets the work counters first, and publishes the statistics of the
+     * traversal if they are enabled.
+     * @param grid The grid to path find across.
+     * @return Path: The path, as returned by findPath.
+     */
+    public final Path traverse(Grid grid) {
+        lNodesExpanded = 0;
+        lNodesGenerated = 0;
+        iPeakOpenSize = 0;
+        lLineOfSightChecks = 0;
+        if (!bStatsEnabled) {
+            return findPath(grid);
+        }
+        TraverseEvent event = new TraverseEvent();
+        event.begin();
+        long began = System.nanoTime();
+        Path path = findPath(grid);
+        long elapsed = System.nanoTime() - began;
+        event.end();
+        SearchStats stats = new SearchStats(getClass().getSimpleName(), lNodesExpanded, lNodesGenerated,
+                iPeakOpenSize, lLineOfSightChecks, elapsed, path != null);
+        mLastStats = stats;
+        SearchMetrics.record(stats);
+        if (event.shouldCommit()) {
+            event.agent = stats.getAgent();
+            event.nodesExpanded = lNodesExpanded;
+            event.nodesGenerated = lNodesGenerated;
+            event.peakOpenSize = iPeakOpenSize;
+            event.lineOfSightChecks = lLineOfSightChecks;
+            event.pathFound = path != null;
+            event.commit();
+        }
+        return path;
+    }
+
+    /**
+     * Generates the path ending at a node by following its parents back to the start.
      * @param node Node: The last node in the path, cannot be null.
-     * @return LinkedList: A list containing the path generated by the agent.
+     * @return Path: The path generated by the agent, from the start to the node.
      */
-    public LinkedList<Point> generatePath(Node node) {
+    public Path generatePath(Node node) {
         if (node == null) {
             throw new IllegalArgumentException("ERROR: Node cannot be null!");
         }
-        LinkedList<Point> path = new LinkedList<>();
+        Path.Builder path = new Path.Builder();
         while (node != null) {
-            path.add(new Point(node.getPosition().getX(), node.getPosition().getY()));
+            path.add(node.getPosition().getX(), node.getPosition().getY());
             node = node.getParent();
         }
-        return path;
+        return path.buildReversed();
     }
 
     /**
-     * Smooths the path by removing unnecessary vertices with line of sight.
-     * @param path LinkedList: A list of points containing the path found by the agent.
+     * Smooths a path with the default pipeline, which pulls it taut and removes the vertices left unnecessary. The
+     * line of sight checks made count towards those of the agent.
+     * @param path Path: The path found by the agent.
      * @param grid Grid: The search grid used to find the path. Needed for line of sight functionality.
-     * @return LinkedList: A list of points containing a smoothed path.
-     */
-    public LinkedList<Point> smoothPath(LinkedList<Point> path, Grid grid) {
-        LinkedList<Point> smoothedPath = new LinkedList<>();
-        int k = 0;
-        Point prev = path.get(0);
-        for (int i = 1; i < path.size() - 1; i++) {
-            if (!grid.lineOfSight(prev, path.get(i+1))) {
-                k += 1;
-                smoothedPath.add(path.get(i));
-            }
+     * @return Path: The smoothed path, with the same start and goal.
+     */
+    public Path smoothPath(Path path, Grid grid) {
+        return smoothPath(path, grid, PathPipeline.DEFAULT);
+    }
+
+    /**
+     * Post-processes a path with the given stage. The line of sight checks made count towards those of the agent.
+     * @param path Path: The path found by the agent.
+     * @param grid Grid: The search grid used to find the path.
+     * @param stage PathStage: The stage or pipeline of stages to run.
+     * @return Path: The processed path, with the same start and goal.
+     */
+    public Path smoothPath(Path path, Grid grid, PathStage stage) {
+        if (path == null || grid == null || stage == null) {
+            throw new IllegalArgumentException("ERROR: Path, grid and stage cannot be null!");
         }
-        k += 1;
-        smoothedPath.add(path.get(k)); // Add the goal
-        return smoothedPath;
+        return stage.apply(path, grid, (x1, y1, x2, y2) -> lineOfSight(grid, x1, y1, x2, y2));
     }
 
     /**
@@ -148,10 +309,36 @@ public abstract class Agent {
     }
 
     /**
-     * Generates a list containing the path.
+     * Checks the line of sight between two coordinates, counting the check.
+     * @param grid Grid: The grid to check against.
+     * @param x1 int: The x ordinal of the first point.
+     * @param y1 int: The y ordinal of the first point.
+     * @param x2 int: The x ordinal of the second point.
+     * @param y2 int: The y ordinal of the second point.
+     * @return boolean: Whether the two points can see each other.
+     */
+    protected boolean lineOfSight(Grid grid, int x1, int y1, int x2, int y2) {
+        lLineOfSightChecks += 1;
+        return grid.lineOfSight(x1, y1, x2, y2);
+    }
+
+    /**
+     * Checks the line of sight between two points, counting the check.
+     * @param grid Grid: The grid to check against.
+     * @param from Point: The first point.
+     * @param to Point: The second point.
+     * @return boolean: Whether the two points can see each other.
+     */
+    protected boolean lineOfSight(Grid grid, Point from, Point to) {
+        lLineOfSightChecks += 1;
+        return grid.lineOfSight(from, to);
+    }
+
+    /**
+     * Generates the path. Called by traverse, which callers should use instead.
      * @param grid The grid to path find across.
-     * @return LinkedList: A list containing the path.
+     * @return Path: The path, from the start to the goal.
      */
-    public abstract LinkedList<Point> traverse(Grid grid);
+    protected abstract Path findPath(Grid grid);
 
 }
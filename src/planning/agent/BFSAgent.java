@@ -1,12 +1,9 @@
 package planning.agent;
 
 import planning.geom.Grid;
+import planning.geom.Path;
 import planning.geom.Point;
 
-import java.util.ArrayDeque;
-import java.util.HashSet;
-import java.util.LinkedList;
-
 /**
  * Defines a breadth-first search agent used for finding paths.
  */
@@ -16,8 +13,8 @@ public class BFSAgent extends Agent {
         Fields
      */
 
-    private ArrayDeque<Node> mOpenList;
-    private HashSet<Point> mClosedList;
+    private SearchContext mContext; // The per-cell state reused by every traversal
+    private int[] iNeighbors;       // Receives the neighbors of the cell being expanded
 
     /*
         Constructors
@@ -28,8 +25,8 @@ public class BFSAgent extends Agent {
      */
     public BFSAgent(int sx, int sy, int gx, int gy) {
         super(sx, sy, gx, gy);
-        mOpenList = new ArrayDeque<>();
-        mClosedList = new HashSet<>();
+        mContext = new SearchContext(0);
+        iNeighbors = new int[Grid.MAX_NEIGHBORS];
     }
 
     public BFSAgent(Point start, Point goal) {
@@ -43,26 +40,47 @@ public class BFSAgent extends Agent {
     /**
      * Traverses a grid and returns a path if one is found. May return null if no path is found.
      * @param grid The grid to path find across.
-     * @return LinkedList: A list containing the points in the path.
+     * @return Path: The path.
      */
-    public LinkedList<Point> traverse(Grid grid) {
-        mOpenList.clear();
-        mClosedList.clear();
-        mOpenList.add(new Node(getStart()));
-        Node mCurrent = null;
-        while (!mOpenList.isEmpty()) {
-            mCurrent = mOpenList.poll();
-            if (isGoalNode(mCurrent)) {
-                return generatePath(mCurrent);
+    protected Path findPath(Grid grid) {
+        setNodesExpanded(0);
+        if (!grid.mayBeConnected(getStart().getX(), getStart().getY(),
+                getGoal().getX(), getGoal().getY())) {
+            return null;
+        }
+        mContext.begin(grid.getCellCount());
+        int[] openList = mContext.getCellBuffer();
+        int start = grid.getCellIndex(getStart().getX(), getStart().getY());
+        int goal = grid.getCellIndex(getGoal().getX(), getGoal().getY());
+        int head = 0;
+        int tail = 0;
+        openList[tail++] = start;
+        mContext.visit(start, 0, SearchContext.NO_CELL);
+        int expansions = 0;
+        int peak = 1;
+        while (head < tail) {
+            peak = Math.max(peak, tail - head);
+            int current = openList[head++];
+            expansions += 1;
+            if (current == goal) {
+                setNodesExpanded(expansions);
+                setNodesGenerated(tail);
+                setPeakOpenSize(peak);
+                return mContext.generatePath(grid, current);
             }
-            for (Point p : grid.generateNeighbors(mCurrent.getPosition().getX(), mCurrent.getPosition().getY())) {
-                Node node = new Node(p, mCurrent);
-                if (mOpenList.contains(node) || mClosedList.contains(p)) {
+            int count = grid.getNeighbors(current, iNeighbors);
+            for (int i = 0; i < count; i++) {
+                int next = iNeighbors[i];
+                if (mContext.isVisited(next)) {
                     continue;
                 }
-                mOpenList.add(node);
+                mContext.visit(next, mContext.getGScore(current) + 1, current);
+                openList[tail++] = next;
             }
         }
+        setNodesExpanded(expansions);
+        setNodesGenerated(tail);
+        setPeakOpenSize(peak);
         return null;
     }
 
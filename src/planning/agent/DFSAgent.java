@@ -1,12 +1,9 @@
 package planning.agent;
 
 import planning.geom.Grid;
+import planning.geom.Path;
 import planning.geom.Point;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Stack;
-
 /**
  * Defines a depth-first search agent used for finding paths.
  */
@@ -16,8 +13,8 @@ public class DFSAgent extends Agent {
         Fields
      */
 
-    private Stack<Node> mOpenList;
-    private HashSet<Point> mClosedList;
+    private SearchContext mContext; // The per-cell state reused by every traversal
+    private int[] iNeighbors;       // Receives the neighbors of the cell being expanded
 
     /*
         Constructors
@@ -28,8 +25,8 @@ public class DFSAgent extends Agent {
      */
     public DFSAgent(int sx, int sy, int gx, int gy) {
         super(sx, sy, gx, gy);
-        mOpenList = new Stack<>();
-        mClosedList = new HashSet<>();
+        mContext = new SearchContext(0);
+        iNeighbors = new int[Grid.MAX_NEIGHBORS];
     }
 
     public DFSAgent(Point start, Point goal) {
@@ -43,26 +40,48 @@ public class DFSAgent extends Agent {
     /**
      * Generates a list containing a path through a grid if one is found. May return null if there is no path.
      * @param grid The grid to path find across.
-     * @return LinkedList: A path through the grid if one is found. Otherwise, return null.
+     * @return Path: A path through the grid if one is found. Otherwise, return null.
      */
-    public LinkedList<Point> traverse(Grid grid) {
-        mOpenList.clear();
-        mClosedList.clear();
-        mOpenList.add(new Node(getStart()));
-        Node mCurrent = null;
-        while (!mOpenList.isEmpty()) {
-            mCurrent = mOpenList.pop();
-            if (isGoalNode(mCurrent)) {
-                return generatePath(mCurrent);
+    protected Path findPath(Grid grid) {
+        setNodesExpanded(0);
+        if (!grid.mayBeConnected(getStart().getX(), getStart().getY(),
+                getGoal().getX(), getGoal().getY())) {
+            return null;
+        }
+        mContext.begin(grid.getCellCount());
+        int[] openList = mContext.getCellBuffer();
+        int start = grid.getCellIndex(getStart().getX(), getStart().getY());
+        int goal = grid.getCellIndex(getGoal().getX(), getGoal().getY());
+        int size = 0;
+        openList[size++] = start;
+        mContext.visit(start, 0, SearchContext.NO_CELL);
+        int expansions = 0;
+        int generated = 1;
+        int peak = 1;
+        while (size > 0) {
+            peak = Math.max(peak, size);
+            int current = openList[--size];
+            expansions += 1;
+            if (current == goal) {
+                setNodesExpanded(expansions);
+                setNodesGenerated(generated);
+                setPeakOpenSize(peak);
+                return mContext.generatePath(grid, current);
             }
-            for (Point p : grid.generateNeighbors(mCurrent.getPosition().getX(), mCurrent.getPosition().getY())) {
-                Node node = new Node(p, mCurrent);
-                if (mOpenList.contains(node) || mClosedList.contains(p)) {
+            int count = grid.getNeighbors(current, iNeighbors);
+            for (int i = 0; i < count; i++) {
+                int next = iNeighbors[i];
+                if (mContext.isVisited(next)) {
                     continue;
                 }
-                mOpenList.push(node);
+                mContext.visit(next, mContext.getGScore(current) + 1, current);
+                openList[size++] = next;
+                generated += 1;
             }
         }
+        setNodesExpanded(expansions);
+        setNodesGenerated(generated);
+        setPeakOpenSize(peak);
         return null;
     }
 
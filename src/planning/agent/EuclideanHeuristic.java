@@ -0,0 +1,36 @@
+package planning.agent;
+
+import planning.geom.Grid;
+
+/**
+ * Estimates the straight line distance to a goal. Never overestimates, but ignores that moves are confined to
+ * eight directions, so it is weaker than the octile distance on grids.
+ */
+final class EuclideanHeuristic implements Heuristic {
+
+    private final int iGoalX;   // The x ordinal of the goal
+    private final int iGoalY;   // The y ordinal of the goal
+
+    EuclideanHeuristic(int gx, int gy) {
+        iGoalX = gx;
+        iGoalY = gy;
+    }
+
+    @Override
+    public double estimate(int x, int y) {
+        long dx = x - iGoalX;
+        long dy = y - iGoalY;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    @Override
+    public Heuristic bind(Grid grid, int gx, int gy) {
+        return new EuclideanHeuristic(gx, gy);
+    }
+
+    @Override
+    public String toString() {
+        return "EUCLIDEAN";
+    }
+
+}
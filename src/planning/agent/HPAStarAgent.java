@@ -0,0 +1,164 @@
+package planning.agent;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+import planning.hierarchy.ClusterGraph;
+import planning.hierarchy.HierarchicalPath;
+import planning.hierarchy.HierarchicalSearch;
+
+/**
+ * Defines an HPA* search agent. The grid is abstracted into a ClusterGraph of entrances between fixed-size
+ * clusters, the path is found on that graph, and then refined into tiles one cluster at a time. Paths are
+ * near optimal rather than optimal, in exchange for searches that scale with the amount of clusters crossed.
+ * <div>On its first traversal of a grid the agent acquires the graph shared by every agent with the same grid and
+ * cluster size, which is kept up to date as the grid changes. A graph built elsewhere can be given through
+ * setClusterGraph instead. The grid holds on to the graphs listening to it, so an agent must be detached once it is
+ * no longer needed.</div>
+ */
+public class HPAStarAgent extends Agent {
+
+    /*
+        Fields
+     */
+
+    private HierarchicalSearch mSearch; // The abstract search core used for the agent
+    private ClusterGraph mGraph;        // The abstract graph of the last grid traversed, null until needed
+    private boolean bOwnsGraph;         // Whether the agent acquired the graph itself
+    private Heuristic mHeuristic;       // The heuristic used for the agent
+    private int iClusterSize;           // The cluster size of graphs built by the agent
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an HPA* agent with the default cluster size.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     */
+    public HPAStarAgent(int sx, int sy, int gx, int gy, Heuristic heuristic) {
+        this(sx, sy, gx, gy, heuristic, ClusterGraph.DEFAULT_CLUSTER_SIZE);
+    }
+
+    public HPAStarAgent(Point start, Point goal, Heuristic heuristic) {
+        this(start.getX(), start.getY(), goal.getX(), goal.getY(), heuristic);
+    }
+
+    /**
+     * Creates an HPA* agent with the specified parameters.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     * @param clusterSize int: The width and height of the clusters of graphs built by the agent.
+     */
+    public HPAStarAgent(int sx, int sy, int gx, int gy, Heuristic heuristic, int clusterSize) {
+        super(sx, sy, gx, gy);
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("ERROR: Cluster size must be greater than one!");
+        }
+        mSearch = new HierarchicalSearch();
+        mHeuristic = heuristic;
+        iClusterSize = clusterSize;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Returns the heuristic currently in use by the agent.
+     * @return Heuristic: The heuristic in use by the agent.
+     */
+    public Heuristic getHeuristic() {
+        return mHeuristic;
+    }
+
+    /**
+     * Changes the heuristic used by the agent.
+     * @param heuristic: The new heuristic to use.
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        mHeuristic = heuristic;
+    }
+
+    /**
+     * Gets the abstract graph of the last grid traversed.
+     * @return ClusterGraph: The graph in use by the agent, may be null.
+     */
+    public ClusterGraph getClusterGraph() {
+        return mGraph;
+    }
+
+    /**
+     * Makes the agent search a graph built elsewhere, which must belong to the grids later traversed.
+     * @param graph ClusterGraph: The graph to use.
+     */
+    public void setClusterGraph(ClusterGraph graph) {
+        releaseGraph();
+        mGraph = graph;
+        bOwnsGraph = false;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Finds a path on the abstract graph of the given grid without refining it.
+     * @param grid Grid: The grid to path find across.
+     * @return HierarchicalPath: The abstract path, whose segments are refined on demand. Null if no path is found.
+     */
+    public HierarchicalPath plan(Grid grid) {
+        if (mGraph == null || mGraph.getGrid() != grid) {
+            releaseGraph();
+            mGraph = ClusterGraph.acquire(grid, iClusterSize);
+            bOwnsGraph = true;
+        }
+        HierarchicalPath path = mSearch.search(mGraph, getStart().getX(), getStart().getY(),
+                getGoal().getX(), getGoal().getY(), mHeuristic);
+        setNodesExpanded(mSearch.getExpandedCount());
+        recordOpenList(mSearch.getOpenList());
+        return path;
+    }
+
+    /**
+     * Traverses the given grid for a path, refining every segment of the abstract path.
+     * @param grid The grid to path find across.
+     * @return Path: The path if it found. May return null if no path is found.
+     */
+    protected Path findPath(Grid grid) {
+        HierarchicalPath abstractPath = plan(grid);
+        if (abstractPath == null) {
+            return null;
+        }
+        Path.Builder path = new Path.Builder();
+        path.add(getStart());
+        while (abstractPath.hasNextSegment()) {
+            Path segment = abstractPath.nextSegment();
+            if (segment == null) {
+                return null;
+            }
+            path.addAll(segment);
+        }
+        setNodesExpanded(mSearch.getExpandedCount() + abstractPath.getExpandedCount());
+        return path.build();
+    }
+
+    /**
+     * Releases the graph acquired by the agent, so that it stops listening to its grid once no agent uses it. The
+     * agent acquires a graph again on its next traversal.
+     */
+    public void detach() {
+        releaseGraph();
+    }
+
+    /**
+     * Releases the graph acquired by the agent. Graphs given through setClusterGraph are left to their owner.
+     */
+    private void releaseGraph() {
+        if (mGraph != null && bOwnsGraph) {
+            mGraph.release();
+        }
+        mGraph = null;
+        bOwnsGraph = false;
+    }
+
+}
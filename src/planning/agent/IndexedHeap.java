@@ -0,0 +1,283 @@
+package planning.agent;
+
+/**
+ * Defines an indexed quaternary min-heap of integer cell indices used as the open list by the search agents.
+ * Each cell may appear at most once. Membership tests are O(1) and inserts, key updates and removals are O(log n).
+ * Entries are ordered by their primary key, ties are broken on the secondary key.
+ * <div>A cell is only in the heap if its recorded slot holds that cell, so stale slots left behind by clear()
+ * never need to be erased and clearing the heap takes constant time.</div>
+ */
+public class IndexedHeap {
+
+    /*
+        Constants
+     */
+
+    private static final int ARITY = 4;     // The amount of children per heap node
+
+    /*
+        Fields
+     */
+
+    private int[] iHeap;            // The cells in heap order
+    private int[] iPositions;       // Maps a cell to its slot in the heap, only valid while the cell is in it
+    private double[] dKeys;         // The primary key of each cell
+    private double[] dTies;         // The secondary (tie-breaking) key of each cell
+    private int iSize;              // The amount of cells currently in the heap
+    private long lInserts;          // The amount of cells inserted since the counters were reset
+    private int iPeakSize;          // The most cells held at once since the counters were reset
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an empty heap able to hold the cells [0, capacity).
+     * @param capacity int: The amount of distinct cells the heap can hold. Must be zero (0) or greater.
+     */
+    public IndexedHeap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("ERROR: Capacity cannot be negative!");
+        }
+        iHeap = new int[capacity];
+        iPositions = new int[capacity];
+        dKeys = new double[capacity];
+        dTies = new double[capacity];
+        iSize = 0;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the amount of distinct cells the heap can hold.
+     * @return int: The capacity of the heap.
+     */
+    public int getCapacity() {
+        return iPositions.length;
+    }
+
+    /**
+     * Gets the amount of cells currently in the heap.
+     * @return int: The size of the heap.
+     */
+    public int size() {
+        return iSize;
+    }
+
+    /**
+     * Determines if the heap is empty.
+     * @return boolean: Whether the heap contains no cells.
+     */
+    public boolean isEmpty() {
+        return iSize == 0;
+    }
+
+    /**
+     * Gets the amount of cells inserted since the heap was cleared or its counters were reset. Key updates of
+     * cells already in the heap are not counted.
+     * @return long: The amount of inserts.
+     */
+    public long getInsertCount() {
+        return lInserts;
+    }
+
+    /**
+     * Gets the most cells the heap held at once since it was cleared or its counters were reset.
+     * @return int: The peak size of the heap.
+     */
+    public int getPeakSize() {
+        return iPeakSize;
+    }
+
+    /**
+     * Gets the primary key of a cell. Only meaningful while the cell is in the heap.
+     * @param cell int: The cell to look up.
+     * @return double: The primary key of the cell.
+     */
+    public double getKey(int cell) {
+        return dKeys[cell];
+    }
+
+    /**
+     * Gets the cell held in a slot of the heap. Walking the slots [0, size()) visits every cell in no particular
+     * order.
+     * @param slot int: The slot to read.
+     * @return int: The cell in the slot.
+     */
+    public int get(int slot) {
+        if (slot < 0 || slot >= iSize) {
+            throw new IndexOutOfBoundsException("ERROR: Slot is out of bounds!");
+        }
+        return iHeap[slot];
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Determines if a cell is in the heap.
+     * @param cell int: The cell to check.
+     * @return boolean: Whether the cell is in the heap.
+     */
+    public boolean contains(int cell) {
+        int slot = iPositions[cell];
+        return slot >= 0 && slot < iSize && iHeap[slot] == cell;
+    }
+
+    /**
+     * Removes every cell from the heap in constant time. The counters are reset too.
+     */
+    public void clear() {
+        iSize = 0;
+        resetCounters();
+    }
+
+    /**
+     * Restarts the insert count and peak size from the cells currently in the heap, for heaps that are kept
+     * across searches.
+     */
+    public void resetCounters() {
+        lInserts = 0;
+        iPeakSize = iSize;
+    }
+
+    /**
+     * Gets the cell with the smallest key without removing it.
+     * @return int: The cell at the top of the heap.
+     */
+    public int peek() {
+        if (iSize == 0) {
+            throw new IllegalStateException("ERROR: Heap is empty!");
+        }
+        return iHeap[0];
+    }
+
+    /**
+     * Removes and returns the cell with the smallest key.
+     * @return int: The cell that was at the top of the heap.
+     */
+    public int poll() {
+        int top = peek();
+        iSize -= 1;
+        if (iSize > 0) {
+            int last = iHeap[iSize];
+            iHeap[0] = last;
+            iPositions[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Inserts a cell into the heap, or moves it to its new place if it is already present.
+     * @param cell int: The cell to insert or update.
+     * @param key double: The primary key of the cell.
+     * @param tie double: The secondary key of the cell, used when primary keys are equal.
+     */
+    public void update(int cell, double key, double tie) {
+        if (!contains(cell)) {
+            dKeys[cell] = key;
+            dTies[cell] = tie;
+            iHeap[iSize] = cell;
+            iPositions[cell] = iSize;
+            iSize += 1;
+            lInserts += 1;
+            if (iSize > iPeakSize) {
+                iPeakSize = iSize;
+            }
+            siftUp(iSize - 1);
+        } else if (less(key, tie, dKeys[cell], dTies[cell])) {
+            dKeys[cell] = key;
+            dTies[cell] = tie;
+            siftUp(iPositions[cell]);
+        } else {
+            dKeys[cell] = key;
+            dTies[cell] = tie;
+            siftDown(iPositions[cell]);
+        }
+    }
+
+    /**
+     * Removes a cell from the heap if it is present.
+     * @param cell int: The cell to remove.
+     */
+    public void remove(int cell) {
+        if (!contains(cell)) {
+            return;
+        }
+        int slot = iPositions[cell];
+        iSize -= 1;
+        if (slot < iSize) {
+            int last = iHeap[iSize];
+            iHeap[slot] = last;
+            iPositions[last] = slot;
+            siftUp(slot);
+            siftDown(iPositions[last]);
+        }
+    }
+
+    /**
+     * Determines if the key pair (k1, t1) orders before (k2, t2).
+     */
+    private static boolean less(double k1, double t1, double k2, double t2) {
+        return k1 < k2 || (k1 == k2 && t1 < t2);
+    }
+
+    /**
+     * Moves the cell at the given slot towards the root until the heap property holds.
+     * @param slot int: The slot of the cell to move.
+     */
+    private void siftUp(int slot) {
+        int cell = iHeap[slot];
+        double key = dKeys[cell];
+        double tie = dTies[cell];
+        while (slot > 0) {
+            int parentSlot = (slot - 1) / ARITY;
+            int parent = iHeap[parentSlot];
+            if (!less(key, tie, dKeys[parent], dTies[parent])) {
+                break;
+            }
+            iHeap[slot] = parent;
+            iPositions[parent] = slot;
+            slot = parentSlot;
+        }
+        iHeap[slot] = cell;
+        iPositions[cell] = slot;
+    }
+
+    /**
+     * Moves the cell at the given slot towards the leaves until the heap property holds.
+     * @param slot int: The slot of the cell to move.
+     */
+    private void siftDown(int slot) {
+        int cell = iHeap[slot];
+        double key = dKeys[cell];
+        double tie = dTies[cell];
+        while (true) {
+            int first = slot * ARITY + 1;
+            if (first >= iSize) {
+                break;
+            }
+            int last = Math.min(first + ARITY, iSize);
+            int best = first;
+            for (int child = first + 1; child < last; child++) {
+                if (less(dKeys[iHeap[child]], dTies[iHeap[child]], dKeys[iHeap[best]], dTies[iHeap[best]])) {
+                    best = child;
+                }
+            }
+            int bestCell = iHeap[best];
+            if (!less(dKeys[bestCell], dTies[bestCell], key, tie)) {
+                break;
+            }
+            iHeap[slot] = bestCell;
+            iPositions[bestCell] = slot;
+            slot = best;
+        }
+        iHeap[slot] = cell;
+        iPositions[cell] = slot;
+    }
+
+}
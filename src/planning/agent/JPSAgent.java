@@ -0,0 +1,336 @@
+package planning.agent;
+
+import planning.geom.GeoMath;
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+
+/**
+ * Defines a Jump Point Search agent for uniform-cost, 8-connected grids. Steps cost the same as in AStarAgent,
+ * so with an admissible heuristic the paths it returns are as long as the ones found by AStarAgent.
+ * <div>This algorithm comes from "Online Graph Pruning for Pathfinding on Grid Maps" by Harabor and Grastien,
+ * published in the Proceedings of the Twenty-Fifth AAAI Conference on Artificial Intelligence (2011).
+ * Diagonal moves follow the same rules as Grid.generateNeighbors.</div>
+ */
+public class JPSAgent extends Agent {
+
+    /*
+        Fields
+     */
+
+    private SearchContext mContext; // The per-cell state reused by every traversal
+    private int[] iDirections;      // Receives the pruned directions of the jump point being expanded
+    private Heuristic mHeuristic;   // The heuristic used for the agent
+    private boolean bWordScanning;  // Whether horizontal jumps scan 64 tiles per occupancy word
+    private int iGoalX;             // The x ordinal of the goal during a traversal
+    private int iGoalY;             // The y ordinal of the goal during a traversal
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a JPS agent with the specified parameters. Word scanning is enabled.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     */
+    public JPSAgent(int sx, int sy, int gx, int gy, Heuristic heuristic) {
+        super(sx, sy, gx, gy);
+        mHeuristic = heuristic;
+        bWordScanning = true;
+        mContext = new SearchContext(0);
+        iDirections = new int[2 * Grid.MAX_NEIGHBORS];
+    }
+
+    public JPSAgent(Point start, Point goal, Heuristic heuristic) {
+        this(start.getX(), start.getY(), goal.getX(), goal.getY(), heuristic);
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Returns the heuristic currently in use by the agent.
+     * @return Heuristic: The heuristic in use by the agent.
+     */
+    public Heuristic getHeuristic() {
+        return mHeuristic;
+    }
+
+    /**
+     * Changes the heuristic used by the agent.
+     * @param heuristic: The new heuristic to use.
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        mHeuristic = heuristic;
+    }
+
+    /**
+     * Determines if horizontal jumps scan rows a word of occupancy bits at a time.
+     * @return boolean: Whether word scanning is enabled.
+     */
+    public boolean isWordScanning() {
+        return bWordScanning;
+    }
+
+    /**
+     * Switches between scanning rows 64 tiles at a time using the grids occupancy bits and stepping
+     * one tile at a time. Both modes find the same jump points.
+     * @param wordScanning boolean: Whether word scanning should be used.
+     */
+    public void setWordScanning(boolean wordScanning) {
+        bWordScanning = wordScanning;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Traverses the given grid for a path.
+     * @param grid The grid to path find across.
+     * @return Path: Every tile of the path if one is found. May return null if no path is found.
+     */
+    protected Path findPath(Grid grid) {
+        setNodesExpanded(0);
+        int sx = getStart().getX();
+        int sy = getStart().getY();
+        iGoalX = getGoal().getX();
+        iGoalY = getGoal().getY();
+        if (!grid.mayBeConnected(sx, sy, iGoalX, iGoalY)) {
+            return null;
+        }
+        mContext.begin(grid.getCellCount());
+        IndexedHeap openList = mContext.getOpenList();
+        int width = grid.getGridWidth();
+        int start = grid.getCellIndex(sx, sy);
+        int goal = grid.getCellIndex(iGoalX, iGoalY);
+        Heuristic bound = mHeuristic.bind(grid, iGoalX, iGoalY);
+        double h = bound.estimate(sx, sy);
+        mContext.visit(start, 0, SearchContext.NO_CELL);
+        openList.update(start, h, h);
+        int expansions = 0;
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            mContext.close(current);
+            expansions += 1;
+            if (current == goal) {
+                setNodesExpanded(expansions);
+                recordOpenList(openList);
+                return generatePath(grid, current);
+            }
+            int cx = current % width;
+            int cy = current / width;
+            int count = pruneDirections(grid, current, cx, cy, width);
+            for (int i = 0; i < count; i += 2) {
+                int next = jump(grid, cx, cy, iDirections[i], iDirections[i + 1]);
+                if (next == SearchContext.NO_CELL || mContext.isClosed(next)) {
+                    continue;
+                }
+                int nx = next % width;
+                int ny = next / width;
+                double score = mContext.getGScore(current) + GeoMath.octileDistance(cx, cy, nx, ny);
+                if (score >= mContext.getGScore(next)) {
+                    continue;
+                }
+                mContext.visit(next, score, current);
+                h = bound.estimate(nx, ny);
+                openList.update(next, score + h, h);
+            }
+        }
+        setNodesExpanded(expansions);
+        recordOpenList(openList);
+        return null;
+    }
+
+    /**
+     * Writes the directions worth jumping in from a jump point into the direction buffer as (dx, dy) pairs.
+     * Natural neighbors are kept, and forced neighbors are added where an obstacle blocks a symmetric path.
+     * @return int: The amount of entries written, twice the amount of directions.
+     */
+    private int pruneDirections(Grid grid, int cell, int x, int y, int width) {
+        int count = 0;
+        int parent = mContext.getParent(cell);
+        if (parent == SearchContext.NO_CELL) {
+            for (int dy = -1; dy < 2; dy++) {
+                for (int dx = -1; dx < 2; dx++) {
+                    if ((dx != 0 || dy != 0) && grid.isValidCoordinates(x + dx, y + dy)) {
+                        count = addDirection(count, dx, dy);
+                    }
+                }
+            }
+            return count;
+        }
+        int dx = Integer.signum(x - parent % width);
+        int dy = Integer.signum(y - parent / width);
+        if (dx != 0 && dy != 0) {
+            if (grid.isValidCoordinates(x, y + dy)) {
+                count = addDirection(count, 0, dy);
+            }
+            if (grid.isValidCoordinates(x + dx, y)) {
+                count = addDirection(count, dx, 0);
+            }
+            if (grid.isValidCoordinates(x + dx, y + dy)) {
+                count = addDirection(count, dx, dy);
+            }
+            if (!grid.isValidCoordinates(x - dx, y)) {
+                count = addDirection(count, -dx, dy);
+            }
+            if (!grid.isValidCoordinates(x, y - dy)) {
+                count = addDirection(count, dx, -dy);
+            }
+        } else if (dx != 0) {
+            if (grid.isValidCoordinates(x + dx, y)) {
+                count = addDirection(count, dx, 0);
+            }
+            if (!grid.isValidCoordinates(x, y + 1)) {
+                count = addDirection(count, dx, 1);
+            }
+            if (!grid.isValidCoordinates(x, y - 1)) {
+                count = addDirection(count, dx, -1);
+            }
+        } else {
+            if (grid.isValidCoordinates(x, y + dy)) {
+                count = addDirection(count, 0, dy);
+            }
+            if (!grid.isValidCoordinates(x + 1, y)) {
+                count = addDirection(count, 1, dy);
+            }
+            if (!grid.isValidCoordinates(x - 1, y)) {
+                count = addDirection(count, -1, dy);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Appends a direction to the direction buffer.
+     * @return int: The new amount of entries in the buffer.
+     */
+    private int addDirection(int count, int dx, int dy) {
+        iDirections[count] = dx;
+        iDirections[count + 1] = dy;
+        return count + 2;
+    }
+
+    /**
+     * Jumps from a tile in a direction until a jump point, an obstacle or the edge of the grid is found.
+     * @param grid Grid: The grid being searched.
+     * @param x int: The x ordinal of the tile to jump from.
+     * @param y int: The y ordinal of the tile to jump from.
+     * @param dx int: The horizontal direction of the jump.
+     * @param dy int: The vertical direction of the jump.
+     * @return int: The cell index of the jump point, or NO_CELL if there is none.
+     */
+    private int jump(Grid grid, int x, int y, int dx, int dy) {
+        if (dx == 0) {
+            return jumpVertical(grid, x, y + dy, dy);
+        }
+        if (dy == 0) {
+            return bWordScanning ? scanHorizontal(grid, x + dx, y, dx) : jumpHorizontal(grid, x + dx, y, dx);
+        }
+        x += dx;
+        y += dy;
+        while (grid.isValidCoordinates(x, y)) {
+            if ((x == iGoalX && y == iGoalY) ||
+                    (grid.isValidCoordinates(x - dx, y + dy) && !grid.isValidCoordinates(x - dx, y)) ||
+                    (grid.isValidCoordinates(x + dx, y - dy) && !grid.isValidCoordinates(x, y - dy))) {
+                return grid.getCellIndex(x, y);
+            }
+            int straight = bWordScanning ? scanHorizontal(grid, x + dx, y, dx) : jumpHorizontal(grid, x + dx, y, dx);
+            if (straight != SearchContext.NO_CELL || jumpVertical(grid, x, y + dy, dy) != SearchContext.NO_CELL) {
+                return grid.getCellIndex(x, y);
+            }
+            x += dx;
+            y += dy;
+        }
+        return SearchContext.NO_CELL;
+    }
+
+    /**
+     * Steps along a row one tile at a time, starting at (x, y), until a jump point is found.
+     * @return int: The cell index of the jump point, or NO_CELL if an obstacle or the edge is hit first.
+     */
+    private int jumpHorizontal(Grid grid, int x, int y, int dx) {
+        while (grid.isValidCoordinates(x, y)) {
+            if ((x == iGoalX && y == iGoalY) ||
+                    (grid.isValidCoordinates(x + dx, y + 1) && !grid.isValidCoordinates(x, y + 1)) ||
+                    (grid.isValidCoordinates(x + dx, y - 1) && !grid.isValidCoordinates(x, y - 1))) {
+                return grid.getCellIndex(x, y);
+            }
+            x += dx;
+        }
+        return SearchContext.NO_CELL;
+    }
+
+    /**
+     * Scans a row 64 tiles at a time, starting at (x, y), until a jump point is found. The obstacles on the row
+     * and the forced neighbors from the rows above and below are found with word operations on the occupancy bits.
+     * @return int: The cell index of the jump point, or NO_CELL if an obstacle or the edge is hit first.
+     */
+    private int scanHorizontal(Grid grid, int x, int y, int dx) {
+        while (true) {
+            // The window covers tiles [base, base + 63], ordered so the first tile scanned is bit 0 or bit 63
+            int base = dx > 0 ? x : x - (Long.SIZE - 1);
+            long blocked = grid.getOccupancyBits(base, y);
+            long forced = (grid.getOccupancyBits(base, y - 1) & ~grid.getOccupancyBits(base + dx, y - 1)) |
+                    (grid.getOccupancyBits(base, y + 1) & ~grid.getOccupancyBits(base + dx, y + 1));
+            long stops = blocked | forced;
+            if (y == iGoalY && iGoalX >= base && iGoalX < base + Long.SIZE) {
+                stops |= 1L << (iGoalX - base);
+            }
+            if (stops != 0) {
+                int bit = dx > 0 ? Long.numberOfTrailingZeros(stops) : Long.SIZE - 1 - Long.numberOfLeadingZeros(stops);
+                if ((blocked & (1L << bit)) != 0) {
+                    return SearchContext.NO_CELL;
+                }
+                return grid.getCellIndex(base + bit, y);
+            }
+            x += dx * Long.SIZE;
+        }
+    }
+
+    /**
+     * Steps along a column one tile at a time, starting at (x, y), until a jump point is found.
+     * @return int: The cell index of the jump point, or NO_CELL if an obstacle or the edge is hit first.
+     */
+    private int jumpVertical(Grid grid, int x, int y, int dy) {
+        while (grid.isValidCoordinates(x, y)) {
+            if ((x == iGoalX && y == iGoalY) ||
+                    (grid.isValidCoordinates(x + 1, y + dy) && !grid.isValidCoordinates(x + 1, y)) ||
+                    (grid.isValidCoordinates(x - 1, y + dy) && !grid.isValidCoordinates(x - 1, y))) {
+                return grid.getCellIndex(x, y);
+            }
+            y += dy;
+        }
+        return SearchContext.NO_CELL;
+    }
+
+    /**
+     * Generates every tile on the path by walking the straight or diagonal segments between jump points.
+     * @param grid Grid: The grid that was searched.
+     * @param cell int: The last jump point in the path.
+     * @return Path: The path, from the start to the given cell.
+     */
+    private Path generatePath(Grid grid, int cell) {
+        Path.Builder path = new Path.Builder();
+        int x = grid.getCellX(cell);
+        int y = grid.getCellY(cell);
+        path.add(x, y);
+        int parent = mContext.getParent(cell);
+        while (parent != SearchContext.NO_CELL) {
+            int px = grid.getCellX(parent);
+            int py = grid.getCellY(parent);
+            int dx = Integer.signum(px - x);
+            int dy = Integer.signum(py - y);
+            while (x != px || y != py) {
+                x += dx;
+                y += dy;
+                path.add(x, y);
+            }
+            parent = mContext.getParent(parent);
+        }
+        return path.buildReversed();
+    }
+
+}
@@ -0,0 +1,390 @@
+package planning.agent;
+
+import planning.geom.Grid;
+import planning.geom.Point;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Defines the landmark (ALT) heuristic. A landmark is a tile whose exact path cost to every other
+ * tile of the grid is precomputed. By the triangle inequality, the cost between two tiles is at least the
+ * difference of their costs to any landmark, and the largest such difference is a far tighter estimate than the
+ * geometric heuristics wherever obstacles force paths to detour.
+ * <div>Landmarks are spread around the edges of the grid, where they bound the most paths, and each table is
+ * filled by its own Dijkstra search in parallel. Tables are only valid for the version of the grid they were built
+ * on, since a new obstacle can lengthen the paths they record. They can be saved and loaded again for a grid with
+ * the same occupancy. Searches of any other grid, or of the grid after it changes, fall back to the octile
+ * distance.</div>
+ * <div>This technique comes from "Computing the Shortest Path: A* Search Meets Graph Theory" by Goldberg and
+ * Harrelson published in the Proceedings of the ACM-SIAM Symposium on Discrete Algorithms (2005) pg. 156-165.</div>
+ */
+public class Landmarks implements Heuristic {
+
+    /*
+        Constants
+     */
+
+    public static final int DEFAULT_LANDMARKS = 8;          // The default amount of landmarks
+    private static final int MAGIC = 0x4C4D4B31;            // Marks the start of a saved set of tables
+    private static final float UNREACHABLE = Float.POSITIVE_INFINITY;   // The cost to tiles a landmark cannot reach
+    private static final int CHUNK = 1 << 14;               // The amount of costs moved through the stream at once
+
+    /*
+        Fields
+     */
+
+    private final Grid mGrid;           // The grid the tables were built for
+    private final long lVersion;        // The version of the grid the tables are valid for
+    private final int[] iLandmarks;     // The cell of each landmark
+    private final float[][] fCosts;     // The path cost from each landmark to every cell
+
+    /*
+        Constructors
+     */
+
+    private Landmarks(Grid grid, int[] landmarks, float[][] costs) {
+        mGrid = grid;
+        lVersion = grid.getVersion();
+        iLandmarks = landmarks;
+        fCosts = costs;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the amount of landmarks.
+     * @return int: The amount of landmark tables.
+     */
+    public int getCount() {
+        return iLandmarks.length;
+    }
+
+    /**
+     * Gets the location of a landmark.
+     * @param landmark int: The index of the landmark.
+     * @return Point: The tile of the landmark.
+     */
+    public Point getLandmark(int landmark) {
+        return new Point(mGrid.getCellX(iLandmarks[landmark]), mGrid.getCellY(iLandmarks[landmark]));
+    }
+
+    /**
+     * Gets the path cost from a landmark to a cell.
+     * @param landmark int: The index of the landmark.
+     * @param cell int: The cell index of the tile.
+     * @return float: The path cost, or positive infinity if the landmark cannot reach the tile.
+     */
+    public float getCost(int landmark, int cell) {
+        return fCosts[landmark][cell];
+    }
+
+    /**
+     * Determines if the tables can be used to search a grid, which must be the grid they were built for and must
+     * not have changed since.
+     * @param grid Grid: The grid about to be searched.
+     * @return boolean: Whether the tables are valid for the grid.
+     */
+    public boolean isValidFor(Grid grid) {
+        return grid == mGrid && grid.getVersion() == lVersion;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Builds the tables of the default amount of landmarks on the common fork-join pool.
+     * @param grid Grid: The grid to build the tables for.
+     * @return Landmarks: The landmark tables.
+     */
+    public static Landmarks build(Grid grid) {
+        return build(grid, DEFAULT_LANDMARKS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds landmark tables, running the search of each landmark in parallel over a pool.
+     * @param grid Grid: The grid to build the tables for.
+     * @param count int: The amount of landmarks. Must be one (1) or greater.
+     * @param pool ForkJoinPool: The pool to run the searches on, cannot be null.
+     * @return Landmarks: The landmark tables.
+     */
+    public static Landmarks build(Grid grid, int count, ForkJoinPool pool) {
+        if (count < 1) {
+            throw new IllegalArgumentException("ERROR: Landmark count must be positive!");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("ERROR: Pool cannot be null!");
+        }
+        int[] landmarks = placeLandmarks(grid, count);
+        float[][] costs = new float[landmarks.length][];
+        pool.submit(() -> IntStream.range(0, landmarks.length).parallel()
+                .forEach(i -> costs[i] = computeCosts(grid, landmarks[i]))).join();
+        return new Landmarks(grid, landmarks, costs);
+    }
+
+    /**
+     * Reads tables saved by save, checking that they were built on a grid with the same occupancy. The costs are
+     * read in large blocks, so the stream need not be buffered, and nothing past the tables is consumed.
+     * @param in InputStream: The stream to read from. It is not closed.
+     * @param grid Grid: The grid the tables are for.
+     * @return Landmarks: The landmark tables, valid for the current version of the grid.
+     * @throws IOException If the stream cannot be read or does not hold landmark tables for the grid.
+     */
+    public static Landmarks load(InputStream in, Grid grid) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("ERROR: Stream does not hold landmark tables!");
+        }
+        if (data.readInt() != grid.getGridWidth() || data.readInt() != grid.getGridHeight() ||
+                data.readLong() != fingerprint(grid)) {
+            throw new IOException("ERROR: Landmark tables were built for a different grid!");
+        }
+        int count = data.readInt();
+        if (count < 1) {
+            throw new IOException("ERROR: Landmark tables are corrupt!");
+        }
+        int cells = grid.getCellCount();
+        int[] landmarks = new int[count];
+        float[][] costs = new float[count][cells];
+        byte[] bytes = new byte[CHUNK * Float.BYTES];
+        for (int i = 0; i < count; i++) {
+            landmarks[i] = data.readInt();
+            if (landmarks[i] < 0 || landmarks[i] >= cells) {
+                throw new IOException("ERROR: Landmark tables are corrupt!");
+            }
+            for (int cell = 0; cell < cells; cell += CHUNK) {
+                int length = Math.min(CHUNK, cells - cell);
+                data.readFully(bytes, 0, length * Float.BYTES);
+                ByteBuffer.wrap(bytes, 0, length * Float.BYTES).asFloatBuffer().get(costs[i], cell, length);
+            }
+        }
+        return new Landmarks(grid, landmarks, costs);
+    }
+
+    /**
+     * Writes the tables to a stream, along with the size and a fingerprint of the occupancy of the grid. The costs
+     * are written in large blocks, so the stream need not be buffered.
+     * @param out OutputStream: The stream to write to. It is flushed but not closed.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(mGrid.getGridWidth());
+        data.writeInt(mGrid.getGridHeight());
+        data.writeLong(fingerprint(mGrid));
+        data.writeInt(iLandmarks.length);
+        byte[] bytes = new byte[CHUNK * Float.BYTES];
+        for (int i = 0; i < iLandmarks.length; i++) {
+            data.writeInt(iLandmarks[i]);
+            for (int cell = 0; cell < fCosts[i].length; cell += CHUNK) {
+                int length = Math.min(CHUNK, fCosts[i].length - cell);
+                ByteBuffer.wrap(bytes, 0, length * Float.BYTES).asFloatBuffer().put(fCosts[i], cell, length);
+                data.write(bytes, 0, length * Float.BYTES);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Estimates nothing, since the tables are only read once bound to a goal.
+     * @return double: Zero (0).
+     */
+    @Override
+    public double estimate(int x, int y) {
+        return 0;
+    }
+
+    /**
+     * Looks up the cost from every landmark to a goal.
+     * @param grid Grid: The grid about to be searched.
+     * @param gx int: The x ordinal of the goal.
+     * @param gy int: The y ordinal of the goal.
+     * @return Heuristic: The landmark heuristic for the goal, or the octile heuristic if the tables are not valid
+     * for the grid.
+     */
+    @Override
+    public Heuristic bind(Grid grid, int gx, int gy) {
+        if (!isValidFor(grid)) {
+            return OCTILE.bind(grid, gx, gy);
+        }
+        int goal = grid.getCellIndex(gx, gy);
+        float[] goalCosts = new float[iLandmarks.length];
+        for (int i = 0; i < iLandmarks.length; i++) {
+            goalCosts[i] = fCosts[i][goal];
+        }
+        return new Bound(this, grid.getGridWidth(), OCTILE.bind(grid, gx, gy), goalCosts);
+    }
+
+    @Override
+    public String toString() {
+        return "LANDMARK";
+    }
+
+    /**
+     * Spreads landmarks evenly by angle around the center of the grid, placing each on the unoccupied tile
+     * closest to the edge along its ray.
+     * @return int[]: The distinct cells of the landmarks. May be fewer than requested on crowded grids.
+     */
+    private static int[] placeLandmarks(Grid grid, int count) {
+        int width = grid.getGridWidth();
+        int height = grid.getGridHeight();
+        double cx = (width - 1) / 2.0;
+        double cy = (height - 1) / 2.0;
+        int[] landmarks = new int[count];
+        int placed = 0;
+        for (int i = 0; i < count; i++) {
+            double angle = 2 * Math.PI * i / count + Math.PI / 4;
+            double dx = Math.cos(angle);
+            double dy = Math.sin(angle);
+            // Scale the ray so that it ends on the edge of the grid, then walk it back towards the center
+            double reach = Math.min(Math.abs(dx) > 1e-9 ? cx / Math.abs(dx) : Double.MAX_VALUE,
+                    Math.abs(dy) > 1e-9 ? cy / Math.abs(dy) : Double.MAX_VALUE);
+            int steps = (int)Math.ceil(reach);
+            for (int step = steps; step >= 0; step--) {
+                double t = reach * step / Math.max(1, steps);
+                int x = (int)Math.round(cx + dx * t);
+                int y = (int)Math.round(cy + dy * t);
+                if (grid.isValidCoordinates(x, y)) {
+                    int cell = grid.getCellIndex(x, y);
+                    boolean duplicate = false;
+                    for (int j = 0; j < placed; j++) {
+                        duplicate |= landmarks[j] == cell;
+                    }
+                    if (!duplicate) {
+                        landmarks[placed] = cell;
+                        placed += 1;
+                    }
+                    break;
+                }
+            }
+        }
+        if (placed == 0) {
+            throw new IllegalArgumentException("ERROR: Grid has no unoccupied tile to place a landmark on!");
+        }
+        return Arrays.copyOf(landmarks, placed);
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from a landmark over the whole grid.
+     * @return float[]: The path cost from the landmark to every cell.
+     */
+    private static float[] computeCosts(Grid grid, int landmark) {
+        int cells = grid.getCellCount();
+        int width = grid.getGridWidth();
+        double[] costs = new double[cells];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        IndexedHeap open = new IndexedHeap(cells);
+        int[] neighbors = new int[Grid.MAX_NEIGHBORS];
+        costs[landmark] = 0;
+        open.update(landmark, 0, 0);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            double cost = costs[current];
+            int cx = current % width;
+            int cy = current / width;
+            int count = grid.getNeighbors(current, neighbors);
+            for (int i = 0; i < count; i++) {
+                int next = neighbors[i];
+                int nx = next % width;
+                int ny = next / width;
+                double score = cost + (nx != cx && ny != cy ? AStarSearch.DIAGONAL_COST : AStarSearch.CARDINAL_COST);
+                if (score < costs[next]) {
+                    costs[next] = score;
+                    open.update(next, score, 0);
+                }
+            }
+        }
+        float[] table = new float[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            table[cell] = (float)costs[cell];
+        }
+        return table;
+    }
+
+    /**
+     * Hashes the occupancy of a grid, so that saved tables are not loaded for a grid they do not describe.
+     */
+    private static long fingerprint(Grid grid) {
+        long hash = 1125899906842597L;
+        for (int y = 0; y < grid.getGridHeight(); y++) {
+            for (int x = 0; x < grid.getGridWidth(); x += Long.SIZE) {
+                long bits = grid.getOccupancyBits(x, y);
+                int valid = Math.min(Long.SIZE, grid.getGridWidth() - x);
+                if (valid < Long.SIZE) {
+                    // Bits past the right edge always read as occupied and carry no information
+                    bits &= (1L << valid) - 1;
+                }
+                hash = 31 * hash + bits;
+                hash ^= hash >>> 29;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Estimates the cost to one goal as the largest lower bound any landmark gives, never less than the octile
+     * distance. Binding it again binds the tables it came from, so it can be passed anywhere a heuristic is taken.
+     */
+    private static final class Bound implements Heuristic {
+
+        private final Landmarks mLandmarks; // The tables the estimate reads
+        private final int iWidth;           // The width of the grid, to turn coordinates into cells
+        private final Heuristic mOctile;    // The octile heuristic for the goal
+        private final float[][] fCosts;     // The path cost from each landmark to every cell
+        private final float[] fGoalCosts;   // The path cost from each landmark to the goal
+
+        private Bound(Landmarks landmarks, int width, Heuristic octile, float[] goalCosts) {
+            mLandmarks = landmarks;
+            iWidth = width;
+            mOctile = octile;
+            fCosts = landmarks.fCosts;
+            fGoalCosts = goalCosts;
+        }
+
+        @Override
+        public double estimate(int x, int y) {
+            int cell = y * iWidth + x;
+            double best = mOctile.estimate(x, y);
+            for (int i = 0; i < fGoalCosts.length; i++) {
+                float toCell = fCosts[i][cell];
+                float toGoal = fGoalCosts[i];
+                if (toCell == UNREACHABLE || toGoal == UNREACHABLE) {
+                    continue;
+                }
+                // Both costs were rounded to floats, so the bound is shrunk by their rounding error to stay admissible
+                double bound = Math.abs(toGoal - toCell) - Math.ulp(toGoal) - Math.ulp(toCell);
+                if (bound > best) {
+                    best = bound;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Binds the tables this estimate came from to a goal, falling back to the octile distance if they are not
+         * valid for the grid.
+         */
+        @Override
+        public Heuristic bind(Grid grid, int gx, int gy) {
+            return mLandmarks.bind(grid, gx, gy);
+        }
+
+        @Override
+        public String toString() {
+            return mLandmarks.toString();
+        }
+
+    }
+
+}
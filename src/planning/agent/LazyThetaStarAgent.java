@@ -0,0 +1,30 @@
+package planning.agent;
+
+import planning.geom.Point;
+
+/**
+ * Defines a Lazy Theta* search agent. It assumes line of sight when a cell is generated and only checks it once
+ * the cell is expanded, repairing the parent from the closed neighbors when the assumption was wrong. Since most
+ * generated cells are never expanded, this saves most of the line of sight checks made by Theta*.
+ * <div>This algorithm comes from "Lazy Theta*: Any-Angle Path Planning and Path Length Analysis in 3D" by
+ * Nash et al. published in the Proceedings of the Twenty-Fourth AAAI Conference on Artificial Intelligence (2010).</div>
+ */
+public class LazyThetaStarAgent extends ThetaStarAgent {
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a Lazy Theta* agent with the specified parameters.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     */
+    public LazyThetaStarAgent(int sx, int sy, int gx, int gy, Heuristic heuristic) {
+        super(sx, sy, gx, gy, heuristic, true);
+    }
+
+    public LazyThetaStarAgent(Point start, Point goal, Heuristic heuristic) {
+        this(start.getX(), start.getY(), goal.getX(), goal.getY(), heuristic);
+    }
+
+}
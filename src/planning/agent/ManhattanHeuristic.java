@@ -0,0 +1,34 @@
+package planning.agent;
+
+import planning.geom.Grid;
+
+/**
+ * Estimates the distance to a goal moving only horizontally and vertically. Diagonal steps make it overestimate,
+ * so searches guided by it expand fewer tiles but may return longer paths.
+ */
+final class ManhattanHeuristic implements Heuristic {
+
+    private final int iGoalX;   // The x ordinal of the goal
+    private final int iGoalY;   // The y ordinal of the goal
+
+    ManhattanHeuristic(int gx, int gy) {
+        iGoalX = gx;
+        iGoalY = gy;
+    }
+
+    @Override
+    public double estimate(int x, int y) {
+        return Math.abs(x - iGoalX) + Math.abs(y - iGoalY);
+    }
+
+    @Override
+    public Heuristic bind(Grid grid, int gx, int gy) {
+        return new ManhattanHeuristic(gx, gy);
+    }
+
+    @Override
+    public String toString() {
+        return "MANHATTAN";
+    }
+
+}
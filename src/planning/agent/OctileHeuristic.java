@@ -0,0 +1,38 @@
+package planning.agent;
+
+import planning.geom.Grid;
+
+/**
+ * Estimates the distance to a goal moving in eight directions with no obstacles in the way, which is the exact
+ * cost on an empty grid.
+ */
+final class OctileHeuristic implements Heuristic {
+
+    private static final double DIAGONAL_SAVING = AStarSearch.DIAGONAL_COST - 2;  // Saved by one diagonal step
+
+    private final int iGoalX;   // The x ordinal of the goal
+    private final int iGoalY;   // The y ordinal of the goal
+
+    OctileHeuristic(int gx, int gy) {
+        iGoalX = gx;
+        iGoalY = gy;
+    }
+
+    @Override
+    public double estimate(int x, int y) {
+        int dx = Math.abs(x - iGoalX);
+        int dy = Math.abs(y - iGoalY);
+        return (dx + dy) + DIAGONAL_SAVING * Math.min(dx, dy);
+    }
+
+    @Override
+    public Heuristic bind(Grid grid, int gx, int gy) {
+        return new OctileHeuristic(gx, gy);
+    }
+
+    @Override
+    public String toString() {
+        return "OCTILE";
+    }
+
+}
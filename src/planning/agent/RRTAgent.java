@@ -2,10 +2,14 @@ package planning.agent;
 
 import planning.geom.GeoMath;
 import planning.geom.Grid;
+import planning.geom.Path;
 import planning.geom.Point;
+import planning.spatial.KDTreeIndex;
+import planning.spatial.NearestNeighborIndex;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  *
@@ -25,6 +29,8 @@ public class RRTAgent extends Agent {
      */
 
     private ArrayList<Node> mNodes; // The nodes that are part of the RRT
+    private NearestNeighborIndex mIndex;    // Finds the node of the RRT nearest to a sample
+    private RandomGenerator mRandom;        // The generator samples are drawn from
     private double dEpsilon;        // The maximum distance allowed between nodes
     private int iMaxNodes;          // The maximum amount of nodes RRT may generate in a single traversal
 
@@ -46,6 +52,8 @@ public class RRTAgent extends Agent {
             nodes = DEFAULT_MAX_NODES;
         }
         mNodes = new ArrayList<>(nodes+1);
+        mIndex = new KDTreeIndex();
+        mRandom = new SplittableRandom();
         dEpsilon = epsilon;
         iMaxNodes = nodes;
     }
@@ -94,6 +102,44 @@ public class RRTAgent extends Agent {
         }
     }
 
+    /**
+     * Gets the index used to find the node of the RRT nearest to a sample.
+     * @return NearestNeighborIndex: The nearest neighbor index in use by the agent.
+     */
+    public NearestNeighborIndex getNearestNeighborIndex() {
+        return mIndex;
+    }
+
+    /**
+     * Changes the index used to find the node of the RRT nearest to a sample.
+     * @param index NearestNeighborIndex: The new index, cannot be null.
+     */
+    public void setNearestNeighborIndex(NearestNeighborIndex index) {
+        if (index == null) {
+            throw new IllegalArgumentException("ERROR: Index cannot be null!");
+        }
+        mIndex = index;
+    }
+
+    /**
+     * Gets the generator that samples are drawn from.
+     * @return RandomGenerator: The generator in use by the agent.
+     */
+    public RandomGenerator getRandom() {
+        return mRandom;
+    }
+
+    /**
+     * Changes the generator that samples are drawn from. A seeded generator makes traversals repeatable.
+     * @param random RandomGenerator: The new generator, cannot be null.
+     */
+    public void setRandom(RandomGenerator random) {
+        if (random == null) {
+            throw new IllegalArgumentException("ERROR: Random generator cannot be null!");
+        }
+        mRandom = random;
+    }
+
     /**
      * Returns a point along the line from p1 to p2.
      * @param p1 The first endpoint of the line.
@@ -102,46 +148,46 @@ public class RRTAgent extends Agent {
      * between points. Otherwise, return a point on the line between p1 and p2.
      */
     private Point stepFromTo(Point p1, Point p2) {
-        if (GeoMath.euclideanDistance(p1, p2) < dEpsilon) {
+        if (GeoMath.squaredDistance(p1.getX(), p1.getY(), p2.getX(), p2.getY()) < dEpsilon * dEpsilon) {
             return p2;
-        } else {
-            double theta = Math.atan2(p2.getY() - p1.getY(), p2.getX() - p1.getX());
-            return new Point((int)Math.floor(p1.getX() + dEpsilon * Math.cos(theta)),
-                    (int)Math.floor(p1.getY() + dEpsilon * Math.sin(theta)));
         }
+        return GeoMath.stepTowards(p1.getX(), p1.getY(), p2.getX(), p2.getY(), dEpsilon);
     }
 
     /**
      * Generates a path along the grid using the RRT pathfinding algorithm.
      * @param grid The grid to path find across.
-     * @return LinkedList: A path if one is found, null otherwise.
+     * @return Path: A path if one is found, null otherwise.
      */
-    public LinkedList<Point> traverse(Grid grid) {
+    protected Path findPath(Grid grid) {
         mNodes.clear();
+        if (!grid.mayBeConnected(getStart().getX(), getStart().getY(), getGoal().getX(), getGoal().getY())) {
+            setNodesExpanded(0);
+            return null;
+        }
+        mIndex.reset(grid.getGridWidth(), grid.getGridHeight());
         mNodes.add(new Node(getStart()));
+        mIndex.add(0, getStart().getX(), getStart().getY());
         for (int i = 0; i < iMaxNodes; i++) {
-            Point rand = grid.random();
+            Point rand = grid.random(mRandom);
             // Have to deal with the possibility of wasting a node on an obstacle
             if (!grid.isValidCoordinates(rand.getX(), rand.getY())) {
                 i -= 1;
                 continue;
             }
             // Find the nearest neighbor
-            Node nn = mNodes.get(0);
-            for (Node n : mNodes) {
-                if (GeoMath.euclideanDistance(n.getPosition(), rand) <
-                        GeoMath.euclideanDistance(nn.getPosition(), rand)) {
-                    nn = n;
-                }
-            }
+            Node nn = mNodes.get(mIndex.nearest(rand.getX(), rand.getY()));
             // Generate a point along the nearest neighbor and the random point
             rand = stepFromTo(nn.getPosition(), rand);
             // Check visibility and goal state, add it to the list of nodes if necessary
-            if (grid.lineOfSight(nn.getPosition(), rand)) {
+            if (lineOfSight(grid, nn.getPosition(), rand)) {
                 Node newnode = new Node(rand, nn);
                 if (isGoalNode(newnode)) {
+                    setNodesExpanded(mNodes.size());
+                    setNodesGenerated(mNodes.size());
                     return generatePath(newnode);
                 }
+                mIndex.add(mNodes.size(), rand.getX(), rand.getY());
                 mNodes.add(newnode);
             }
             // Deals with the possibility that obstacles block the path from nearest neighbor to the new node
@@ -149,6 +195,8 @@ public class RRTAgent extends Agent {
                 i -= 1;
             }
         }
+        setNodesExpanded(mNodes.size());
+        setNodesGenerated(mNodes.size());
         return null;
     }
 
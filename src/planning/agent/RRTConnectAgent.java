@@ -0,0 +1,379 @@
+package planning.agent;
+
+import planning.geom.GeoMath;
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+import planning.spatial.KDTreeIndex;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * Defines an RRT-Connect agent. One tree grows from the start and one from the goal. Each round, one tree takes a
+ * single step towards a random sample and the other then steps greedily towards the new node until it reaches it
+ * or is blocked. The trees swap roles every round and the path is found as soon as they meet.
+ * <div>With more than one worker, every worker grows its own pair of trees from its own generator, split
+ * from the generator of the agent, and the first pair to meet wins. Workers share nothing but a stop flag, so the
+ * time to the first solution falls with the amount of cores for as long as there are cores to run workers on.</div>
+ * <div>This algorithm comes from "RRT-Connect: An Efficient Approach to Single-Query Path Planning" by Kuffner
+ * and LaValle published in the Proceedings of the IEEE International Conference on Robotics and Automation (2000)
+ * pg. 995-1001.</div>
+ */
+public class RRTConnectAgent extends Agent {
+
+    /*
+        Constants
+     */
+
+    private static final int NO_NODE = -1;                  // Marks the absence of a node
+    private static final int MAX_ATTEMPTS_PER_NODE = 32;    // Bounds the samples spent per node added
+
+    /*
+        Fields
+     */
+
+    private double dEpsilon;        // The maximum distance allowed between nodes
+    private int iMaxNodes;          // The maximum amount of nodes each worker may generate
+    private int iWorkers;           // The amount of workers growing trees at once
+    private ForkJoinPool mPool;     // The pool the workers run on
+    private SplittableGenerator mRandom;    // The generator the workers' generators are split from
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an RRT-Connect agent that grows a single pair of trees.
+     * @param epsilon double: The maximum distance between nodes.
+     * @param nodes int: The maximum amount of nodes to generate.
+     */
+    public RRTConnectAgent(int sx, int sy, int gx, int gy, double epsilon, int nodes) {
+        super(sx, sy, gx, gy);
+        if (epsilon < RRTAgent.MIN_EPSILON) {
+            epsilon = RRTAgent.DEFAULT_EPSILON;
+        }
+        if (nodes < RRTAgent.MIN_NODES) {
+            nodes = RRTAgent.DEFAULT_MAX_NODES;
+        }
+        dEpsilon = epsilon;
+        iMaxNodes = nodes;
+        iWorkers = 1;
+        mPool = ForkJoinPool.commonPool();
+        mRandom = new SplittableRandom();
+    }
+
+    public RRTConnectAgent(Point start, Point goal, double epsilon, int nodes) {
+        this(start.getX(), start.getY(), goal.getX(), goal.getY(), epsilon, nodes);
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the maximum distance allowed between nodes.
+     * @return double: The maximum distance between nodes.
+     */
+    public double getMaxDistanceBetweenNodes() {
+        return dEpsilon;
+    }
+
+    /**
+     * Updates the maximum distance between nodes.
+     * @param epsilon double: The maximum distance allowed between nodes. Must be >= 1.
+     */
+    public void setMaxDistanceBetweenNodes(double epsilon) {
+        if (epsilon >= RRTAgent.MIN_EPSILON) {
+            dEpsilon = epsilon;
+        }
+    }
+
+    /**
+     * Gets the maximum amount of nodes each worker is allowed to generate.
+     * @return int: The node budget of a worker.
+     */
+    public int getMaxNodes() {
+        return iMaxNodes;
+    }
+
+    /**
+     * Updates the maximum amount of nodes each worker is allowed to generate, counting both of its trees.
+     * @param nodes int: The node budget of a worker. Must be >= 100.
+     */
+    public void setMaxNodes(int nodes) {
+        if (nodes >= RRTAgent.MIN_NODES) {
+            iMaxNodes = nodes;
+        }
+    }
+
+    /**
+     * Gets the amount of workers growing trees at once.
+     * @return int: The amount of workers.
+     */
+    public int getWorkers() {
+        return iWorkers;
+    }
+
+    /**
+     * Updates the amount of workers growing trees at once. One worker grows its trees on the calling thread.
+     * @param workers int: The amount of workers. Must be one (1) or greater.
+     */
+    public void setWorkers(int workers) {
+        if (workers >= 1) {
+            iWorkers = workers;
+        }
+    }
+
+    /**
+     * Changes the pool that workers run on when there is more than one.
+     * @param pool ForkJoinPool: The pool to run workers on, cannot be null.
+     */
+    public void setPool(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("ERROR: Pool cannot be null!");
+        }
+        mPool = pool;
+    }
+
+    /**
+     * Gets the generator that the workers' generators are split from.
+     * @return SplittableGenerator: The generator in use by the agent.
+     */
+    public SplittableGenerator getRandom() {
+        return mRandom;
+    }
+
+    /**
+     * Changes the generator that the workers' generators are split from, such as a SplittableRandom or an
+     * L64X128MixRandom. A seeded generator makes traversals repeatable as long as a single worker is used.
+     * @param random SplittableGenerator: The new generator, cannot be null.
+     */
+    public void setRandom(SplittableGenerator random) {
+        if (random == null) {
+            throw new IllegalArgumentException("ERROR: Random generator cannot be null!");
+        }
+        mRandom = random;
+    }
+
+    /**
+     * Reseeds the generator that the workers' generators are split from, making traversals repeatable as long as
+     * a single worker is used.
+     * @param seed long: The seed.
+     */
+    public void setSeed(long seed) {
+        mRandom = new SplittableRandom(seed);
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Generates a path along the grid using the RRT-Connect pathfinding algorithm.
+     * @param grid The grid to path find across.
+     * @return Path: A path if one is found, null otherwise.
+     */
+    protected Path findPath(Grid grid) {
+        setNodesExpanded(0);
+        if (!grid.mayBeConnected(getStart().getX(), getStart().getY(), getGoal().getX(), getGoal().getY())) {
+            return null;
+        }
+        if (iWorkers == 1) {
+            Worker worker = new Worker(mRandom.split(), new AtomicBoolean());
+            Path path = worker.run(grid);
+            setNodesExpanded(worker.getNodeCount());
+            setNodesGenerated(worker.getNodeCount());
+            addLineOfSightChecks(worker.lSightChecks);
+            return path;
+        }
+        RandomGenerator[] randoms = new RandomGenerator[iWorkers];
+        for (int i = 0; i < iWorkers; i++) {
+            randoms[i] = mRandom.split();
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Path> result = new AtomicReference<>();
+        AtomicLong nodes = new AtomicLong();
+        AtomicLong sightChecks = new AtomicLong();
+        mPool.submit(() -> IntStream.range(0, iWorkers).parallel().forEach(i -> {
+            Worker worker = new Worker(randoms[i], stop);
+            Path path = worker.run(grid);
+            nodes.addAndGet(worker.getNodeCount());
+            sightChecks.addAndGet(worker.lSightChecks);
+            if (path != null && result.compareAndSet(null, path)) {
+                stop.set(true);
+            }
+        })).join();
+        setNodesExpanded(nodes.get());
+        setNodesGenerated(nodes.get());
+        addLineOfSightChecks(sightChecks.get());
+        return result.get();
+    }
+
+    /**
+     * Grows one pair of trees. Workers only read the grid and the agent, so they can run concurrently.
+     */
+    private class Worker {
+
+        private final RandomGenerator mRandom;      // The generator the samples of the worker are drawn from
+        private final AtomicBoolean mStop;          // Set once any worker has found a path
+        private final Tree mStartTree;              // The tree rooted at the start
+        private final Tree mGoalTree;               // The tree rooted at the goal
+        private long lSightChecks;                  // The amount of line of sight checks made by the worker
+
+        private Worker(RandomGenerator random, AtomicBoolean stop) {
+            mRandom = random;
+            mStop = stop;
+            mStartTree = new Tree(getStart().getX(), getStart().getY());
+            mGoalTree = new Tree(getGoal().getX(), getGoal().getY());
+        }
+
+        /**
+         * Gets the amount of nodes in both trees.
+         * @return int: The amount of nodes generated.
+         */
+        private int getNodeCount() {
+            return mStartTree.iSize + mGoalTree.iSize;
+        }
+
+        /**
+         * Grows the trees until they meet, the node budget is spent, or another worker finds a path.
+         * @param grid Grid: The grid to path find across.
+         * @return Path: A path if one is found, null otherwise.
+         */
+        private Path run(Grid grid) {
+            if (getStart().equals(getGoal())) {
+                return connectTrees(0, 0);
+            }
+            Tree grown = mStartTree;
+            Tree other = mGoalTree;
+            long attempts = (long)iMaxNodes * MAX_ATTEMPTS_PER_NODE;
+            for (long attempt = 0; attempt < attempts && getNodeCount() < iMaxNodes; attempt++) {
+                if (mStop.get()) {
+                    return null;
+                }
+                Point rand = grid.random(mRandom);
+                if (!grid.isValidCoordinates(rand.getX(), rand.getY())) {
+                    continue;
+                }
+                int node = grown.extend(grid, rand.getX(), rand.getY());
+                if (node != NO_NODE) {
+                    int x = grown.iXs[node];
+                    int y = grown.iYs[node];
+                    int met = other.connect(grid, x, y);
+                    if (met != NO_NODE && other.iXs[met] == x && other.iYs[met] == y) {
+                        return grown == mStartTree ? connectTrees(node, met) : connectTrees(met, node);
+                    }
+                }
+                Tree swap = grown;
+                grown = other;
+                other = swap;
+            }
+            return null;
+        }
+
+        /**
+         * Joins the branch of the start tree ending at one node with the branch of the goal tree ending at a node
+         * on the same tile.
+         * @return Path: The path, from the start to the goal.
+         */
+        private Path connectTrees(int startNode, int goalNode) {
+            Path.Builder branch = new Path.Builder();
+            for (int node = startNode; node != NO_NODE; node = mStartTree.iParents[node]) {
+                branch.add(mStartTree.iXs[node], mStartTree.iYs[node]);
+            }
+            Path.Builder path = new Path.Builder(branch.size() * 2).addAll(branch.buildReversed());
+            for (int node = mGoalTree.iParents[goalNode]; node != NO_NODE; node = mGoalTree.iParents[node]) {
+                path.add(mGoalTree.iXs[node], mGoalTree.iYs[node]);
+            }
+            return path.build();
+        }
+
+        /**
+         * Holds one tree in parallel arrays, with a k-d tree over its nodes.
+         */
+        private class Tree {
+
+            private final KDTreeIndex mIndex = new KDTreeIndex();   // Finds the node nearest a coordinate
+            private int[] iXs = new int[64];                        // The x ordinal of each node
+            private int[] iYs = new int[64];                        // The y ordinal of each node
+            private int[] iParents = new int[64];                   // The parent of each node
+            private int iSize;                                      // The amount of nodes in the tree
+
+            private Tree(int x, int y) {
+                add(x, y, NO_NODE);
+            }
+
+            /**
+             * Takes a single step from the nearest node towards a coordinate.
+             * @return int: The node added, or NO_NODE if the step is blocked or goes nowhere.
+             */
+            private int extend(Grid grid, int x, int y) {
+                return extendFrom(grid, mIndex.nearest(x, y), x, y);
+            }
+
+            /**
+             * Steps from the nearest node towards a coordinate until it is reached or the way is blocked.
+             * @return int: The last node added, or NO_NODE if not even one step could be taken.
+             */
+            private int connect(Grid grid, int x, int y) {
+                int last = NO_NODE;
+                int node = mIndex.nearest(x, y);
+                while (getNodeCount() < iMaxNodes) {
+                    if (iXs[node] == x && iYs[node] == y) {
+                        return node;
+                    }
+                    node = extendFrom(grid, node, x, y);
+                    if (node == NO_NODE) {
+                        break;
+                    }
+                    last = node;
+                }
+                return last;
+            }
+
+            private int extendFrom(Grid grid, int from, int x, int y) {
+                Point next = GeoMath.stepTowards(iXs[from], iYs[from], x, y, dEpsilon);
+                if ((next.getX() == iXs[from] && next.getY() == iYs[from]) ||
+                        !grid.isValidCoordinates(next.getX(), next.getY()) ||
+                        !lineOfSight(grid, iXs[from], iYs[from], next.getX(), next.getY())) {
+                    return NO_NODE;
+                }
+                return add(next.getX(), next.getY(), from);
+            }
+
+            /**
+             * Checks line of sight, counting the check for the worker rather than the agent, since workers run
+             * concurrently.
+             */
+            private boolean lineOfSight(Grid grid, int x1, int y1, int x2, int y2) {
+                lSightChecks += 1;
+                return grid.lineOfSight(x1, y1, x2, y2);
+            }
+
+            private int add(int x, int y, int parent) {
+                if (iSize == iXs.length) {
+                    iXs = Arrays.copyOf(iXs, iSize * 2);
+                    iYs = Arrays.copyOf(iYs, iSize * 2);
+                    iParents = Arrays.copyOf(iParents, iSize * 2);
+                }
+                iXs[iSize] = x;
+                iYs[iSize] = y;
+                iParents[iSize] = parent;
+                mIndex.add(iSize, x, y);
+                iSize += 1;
+                return iSize - 1;
+            }
+
+        }
+
+    }
+
+}
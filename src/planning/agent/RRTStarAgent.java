@@ -0,0 +1,503 @@
+package planning.agent;
+
+import planning.geom.GeoMath;
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+import planning.spatial.KDTreeIndex;
+import planning.spatial.NearestNeighborIndex;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Defines an RRT* agent. Like RRT, the tree grows towards random samples, but a new node is attached to the
+ * neighbor that reaches it most cheaply, and neighbors that can be reached more cheaply through the new node are
+ * rewired to it. The best path therefore keeps improving as the tree grows, towards the optimal any-angle path.
+ * <div>The agent is anytime: reset starts a new tree, grow extends it under a node or time budget, and
+ * getBestPath returns the best path found so far at any point in between. traverse runs all three with the
+ * budgets set on the agent.</div>
+ * <div>This algorithm comes from "Sampling-based Algorithms for Optimal Motion Planning" by Karaman and Frazzoli
+ * published in the International Journal of Robotics Research 30 (2011) pg. 846-894 and retrieved from
+ * https(colon)//arxiv(dot)org/pdf/1105(dot)1186(dot)pdf</div>
+ */
+public class RRTStarAgent extends Agent {
+
+    /*
+        Constants
+     */
+
+    public static final long NO_TIME_LIMIT = 0;                 // Lets traverse run until the node budget is spent
+    private static final int NO_NODE = -1;                      // Marks the absence of a node
+    private static final int DEADLINE_CHECK_INTERVAL = 64;      // The amount of samples between clock reads
+    private static final int MAX_ATTEMPTS_PER_NODE = 32;        // Bounds the samples spent per node added
+    private static final byte UNKNOWN = -1;                     // Line of sight has not been checked yet
+    private static final byte BLOCKED = 0;                      // Line of sight was checked and does not hold
+    private static final byte VISIBLE = 1;                      // Line of sight was checked and holds
+
+    /*
+        Fields
+     */
+
+    private NearestNeighborIndex mIndex;    // Finds the nearest node and the neighborhood of a new node
+    private RandomGenerator mRandom;        // The generator samples are drawn from
+    private int[] iXs;                      // The x ordinal of each node
+    private int[] iYs;                      // The y ordinal of each node
+    private int[] iParents;                 // The parent of each node, NO_NODE for the root
+    private int[] iFirstChildren;           // The most recently attached child of each node
+    private int[] iNextSiblings;            // The child attached to the same parent before each node
+    private double[] dCosts;                // The path cost from the start to each node
+    private int iSize;                      // The amount of nodes in the tree
+    private int[] iGoalNodes;               // The nodes within reach of the goal with line of sight to it
+    private int iGoalCount;                 // The amount of nodes within reach of the goal
+    private int[] iNear;                    // The neighborhood of the node being added
+    private double[] dNearCosts;            // The cost of reaching the node being added through each neighbor
+    private byte[] bNearSight;              // The line of sight from each neighbor to the node being added
+    private int[] iStack;                   // The subtree whose costs are being updated after a rewire
+    private boolean bReachable;             // Whether the goal can be reached from the start at all
+    private double dEpsilon;                // The maximum distance allowed between nodes
+    private int iMaxNodes;                  // The maximum amount of nodes traverse may generate
+    private long lTimeBudget;               // The time in milliseconds traverse may run for, or NO_TIME_LIMIT
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an RRT* agent with the specified parameters.
+     * @param epsilon double: The maximum distance between nodes, and the radius of the rewiring neighborhood.
+     * @param nodes int: The maximum amount of nodes to generate.
+     */
+    public RRTStarAgent(int sx, int sy, int gx, int gy, double epsilon, int nodes) {
+        super(sx, sy, gx, gy);
+        if (epsilon < RRTAgent.MIN_EPSILON) {
+            epsilon = RRTAgent.DEFAULT_EPSILON;
+        }
+        if (nodes < RRTAgent.MIN_NODES) {
+            nodes = RRTAgent.DEFAULT_MAX_NODES;
+        }
+        mIndex = new KDTreeIndex();
+        mRandom = new SplittableRandom();
+        iXs = new int[16];
+        iYs = new int[16];
+        iParents = new int[16];
+        iFirstChildren = new int[16];
+        iNextSiblings = new int[16];
+        dCosts = new double[16];
+        iGoalNodes = new int[16];
+        iNear = new int[64];
+        dNearCosts = new double[64];
+        bNearSight = new byte[64];
+        iStack = new int[64];
+        dEpsilon = epsilon;
+        iMaxNodes = nodes;
+        lTimeBudget = NO_TIME_LIMIT;
+    }
+
+    public RRTStarAgent(Point start, Point goal, double epsilon, int nodes) {
+        this(start.getX(), start.getY(), goal.getX(), goal.getY(), epsilon, nodes);
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the maximum distance allowed between nodes.
+     * @return double: The maximum distance between nodes.
+     */
+    public double getMaxDistanceBetweenNodes() {
+        return dEpsilon;
+    }
+
+    /**
+     * Updates the maximum distance between nodes.
+     * @param epsilon double: The maximum distance allowed between nodes. Must be >= 1.
+     */
+    public void setMaxDistanceBetweenNodes(double epsilon) {
+        if (epsilon >= RRTAgent.MIN_EPSILON) {
+            dEpsilon = epsilon;
+        }
+    }
+
+    /**
+     * Gets the maximum amount of nodes traverse is allowed to generate.
+     * @return int: The node budget.
+     */
+    public int getMaxNodes() {
+        return iMaxNodes;
+    }
+
+    /**
+     * Updates the maximum amount of nodes traverse is allowed to generate.
+     * @param nodes int: The node budget. Must be >= 100.
+     */
+    public void setMaxNodes(int nodes) {
+        if (nodes >= RRTAgent.MIN_NODES) {
+            iMaxNodes = nodes;
+        }
+    }
+
+    /**
+     * Gets the time traverse is allowed to run for.
+     * @return long: The time budget in milliseconds, or NO_TIME_LIMIT.
+     */
+    public long getTimeBudget() {
+        return lTimeBudget;
+    }
+
+    /**
+     * Updates the time traverse is allowed to run for. Whichever of the node and time budgets runs out first ends
+     * the traversal.
+     * @param millis long: The time budget in milliseconds, or NO_TIME_LIMIT.
+     */
+    public void setTimeBudget(long millis) {
+        if (millis >= 0) {
+            lTimeBudget = millis;
+        }
+    }
+
+    /**
+     * Gets the index used to find the nearest node and the neighborhood of a new node.
+     * @return NearestNeighborIndex: The index in use by the agent.
+     */
+    public NearestNeighborIndex getNearestNeighborIndex() {
+        return mIndex;
+    }
+
+    /**
+     * Changes the index used to find the nearest node and the neighborhood of a new node. Takes effect on reset.
+     * @param index NearestNeighborIndex: The new index, cannot be null.
+     */
+    public void setNearestNeighborIndex(NearestNeighborIndex index) {
+        if (index == null) {
+            throw new IllegalArgumentException("ERROR: Index cannot be null!");
+        }
+        mIndex = index;
+    }
+
+    /**
+     * Gets the generator that samples are drawn from.
+     * @return RandomGenerator: The generator in use by the agent.
+     */
+    public RandomGenerator getRandom() {
+        return mRandom;
+    }
+
+    /**
+     * Changes the generator that samples are drawn from. A seeded generator makes traversals repeatable.
+     * @param random RandomGenerator: The new generator, cannot be null.
+     */
+    public void setRandom(RandomGenerator random) {
+        if (random == null) {
+            throw new IllegalArgumentException("ERROR: Random generator cannot be null!");
+        }
+        mRandom = random;
+    }
+
+    /**
+     * Gets the amount of nodes in the current tree.
+     * @return int: The size of the tree.
+     */
+    public int getTreeSize() {
+        return iSize;
+    }
+
+    /**
+     * Determines if the current tree holds a path to the goal.
+     * @return boolean: Whether getBestPath will return a path.
+     */
+    public boolean hasSolution() {
+        return bestGoalNode() != NO_NODE;
+    }
+
+    /**
+     * Gets the length of the best path found so far.
+     * @return double: The cost of the best path, or positive infinity if no path has been found.
+     */
+    public double getBestCost() {
+        int node = bestGoalNode();
+        return node == NO_NODE ? Double.POSITIVE_INFINITY : costToGoal(node);
+    }
+
+    /**
+     * Gets the best path found so far.
+     * @return Path: The path, from the start to the goal. Null if none has been found.
+     */
+    public Path getBestPath() {
+        int node = bestGoalNode();
+        if (node == NO_NODE) {
+            return null;
+        }
+        Path.Builder path = new Path.Builder();
+        if (iXs[node] != getGoal().getX() || iYs[node] != getGoal().getY()) {
+            path.add(getGoal());
+        }
+        while (node != NO_NODE) {
+            path.add(iXs[node], iYs[node]);
+            node = iParents[node];
+        }
+        return path.buildReversed();
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Grows a tree for the given grid until the node or time budget is spent and returns the best path found.
+     * @param grid The grid to path find across.
+     * @return Path: A path if one is found, null otherwise.
+     */
+    protected Path findPath(Grid grid) {
+        reset(grid);
+        long deadline = lTimeBudget == NO_TIME_LIMIT ? AStarSearch.NO_DEADLINE :
+                System.currentTimeMillis() + lTimeBudget;
+        grow(grid, iMaxNodes, deadline);
+        return getBestPath();
+    }
+
+    /**
+     * Discards the current tree and starts a new one holding only the start.
+     * @param grid Grid: The grid the tree will be grown on.
+     */
+    public void reset(Grid grid) {
+        iSize = 0;
+        iGoalCount = 0;
+        mIndex.reset(grid.getGridWidth(), grid.getGridHeight());
+        bReachable = grid.mayBeConnected(getStart().getX(), getStart().getY(), getGoal().getX(), getGoal().getY());
+        addNode(getStart().getX(), getStart().getY(), NO_NODE, 0);
+        connectGoal(grid, 0);
+        setNodesExpanded(iSize);
+        setNodesGenerated(iSize);
+    }
+
+    /**
+     * Extends the current tree. May be called repeatedly, querying the best path in between.
+     * @param grid Grid: The grid the tree was reset for.
+     * @param nodes int: The amount of nodes to add.
+     * @param deadline long: The wall clock time in milliseconds to stop at, or AStarSearch.NO_DEADLINE.
+     * @return int: The amount of nodes actually added.
+     */
+    public int grow(Grid grid, int nodes, long deadline) {
+        if (!bReachable) {
+            return 0;
+        }
+        int added = 0;
+        long attempts = (long)nodes * MAX_ATTEMPTS_PER_NODE;
+        for (long attempt = 0; attempt < attempts && added < nodes; attempt++) {
+            if (deadline != AStarSearch.NO_DEADLINE && attempt % DEADLINE_CHECK_INTERVAL == 0 &&
+                    System.currentTimeMillis() > deadline) {
+                break;
+            }
+            Point rand = grid.random(mRandom);
+            if (!grid.isValidCoordinates(rand.getX(), rand.getY())) {
+                continue;
+            }
+            int nearest = mIndex.nearest(rand.getX(), rand.getY());
+            Point next = GeoMath.stepTowards(iXs[nearest], iYs[nearest], rand.getX(), rand.getY(), dEpsilon);
+            if ((next.getX() == iXs[nearest] && next.getY() == iYs[nearest]) ||
+                    !grid.isValidCoordinates(next.getX(), next.getY()) ||
+                    !lineOfSight(grid, iXs[nearest], iYs[nearest], next.getX(), next.getY())) {
+                continue;
+            }
+            extend(grid, next.getX(), next.getY(), nearest);
+            added += 1;
+        }
+        setNodesExpanded(iSize);
+        setNodesGenerated(iSize);
+        return added;
+    }
+
+    /**
+     * Adds a node at a coordinate known to be visible from its nearest node, choosing the cheapest parent in its
+     * neighborhood and then rewiring the neighborhood through it.
+     * <div>Every line of sight check between the new node and a neighbor is made at most once and shared by both
+     * steps: parents are tried in order of the cost they would give, so checking stops at the first visible one,
+     * and neighbors are only checked for rewiring when the new node would make them cheaper.</div>
+     */
+    private void extend(Grid grid, int x, int y, int nearest) {
+        long squaredRadius = (long)Math.floor(dEpsilon * dEpsilon);
+        int count = mIndex.near(x, y, squaredRadius, iNear);
+        if (count > iNear.length) {
+            int capacity = Integer.highestOneBit(count) * 2;
+            iNear = new int[capacity];
+            dNearCosts = new double[capacity];
+            bNearSight = new byte[capacity];
+            count = mIndex.near(x, y, squaredRadius, iNear);
+        }
+        int parent = nearest;
+        double best = dCosts[nearest] + distance(nearest, x, y);
+        for (int i = 0; i < count; i++) {
+            dNearCosts[i] = dCosts[iNear[i]] + distance(iNear[i], x, y);
+            bNearSight[i] = iNear[i] == nearest ? VISIBLE : UNKNOWN;
+        }
+        sortNear(count);
+        for (int i = 0; i < count && dNearCosts[i] < best; i++) {
+            int candidate = iNear[i];
+            if (bNearSight[i] == UNKNOWN) {
+                bNearSight[i] = lineOfSight(grid, iXs[candidate], iYs[candidate], x, y) ? VISIBLE : BLOCKED;
+            }
+            if (bNearSight[i] == VISIBLE) {
+                parent = candidate;
+                best = dNearCosts[i];
+                break;
+            }
+        }
+        int node = addNode(x, y, parent, best);
+        for (int i = 0; i < count; i++) {
+            int neighbor = iNear[i];
+            if (neighbor == parent) {
+                continue;
+            }
+            double cost = best + distance(neighbor, x, y);
+            if (cost >= dCosts[neighbor]) {
+                continue;
+            }
+            if (bNearSight[i] == UNKNOWN) {
+                bNearSight[i] = lineOfSight(grid, x, y, iXs[neighbor], iYs[neighbor]) ? VISIBLE : BLOCKED;
+            }
+            if (bNearSight[i] == VISIBLE) {
+                rewire(neighbor, node, cost);
+            }
+        }
+        connectGoal(grid, node);
+    }
+
+    /**
+     * Moves a node under a new parent and lowers the cost of its whole subtree by the amount saved.
+     * @param node int: The node to move. The new parent must not be one of its descendants.
+     * @param parent int: The new parent.
+     * @param cost double: The new cost of the node.
+     */
+    private void rewire(int node, int parent, double cost) {
+        int old = iParents[node];
+        if (iFirstChildren[old] == node) {
+            iFirstChildren[old] = iNextSiblings[node];
+        } else {
+            int child = iFirstChildren[old];
+            while (iNextSiblings[child] != node) {
+                child = iNextSiblings[child];
+            }
+            iNextSiblings[child] = iNextSiblings[node];
+        }
+        iParents[node] = parent;
+        iNextSiblings[node] = iFirstChildren[parent];
+        iFirstChildren[parent] = node;
+        double delta = cost - dCosts[node];
+        int top = 0;
+        iStack[top++] = node;
+        while (top > 0) {
+            int current = iStack[--top];
+            dCosts[current] += delta;
+            for (int child = iFirstChildren[current]; child != NO_NODE; child = iNextSiblings[child]) {
+                if (top == iStack.length) {
+                    iStack = Arrays.copyOf(iStack, top * 2);
+                }
+                iStack[top++] = child;
+            }
+        }
+    }
+
+    /**
+     * Records a node as able to finish a path if the goal is within reach and in sight of it.
+     */
+    private void connectGoal(Grid grid, int node) {
+        int gx = getGoal().getX();
+        int gy = getGoal().getY();
+        if (GeoMath.squaredDistance(iXs[node], iYs[node], gx, gy) > dEpsilon * dEpsilon ||
+                !lineOfSight(grid, iXs[node], iYs[node], gx, gy)) {
+            return;
+        }
+        if (iGoalCount == iGoalNodes.length) {
+            iGoalNodes = Arrays.copyOf(iGoalNodes, iGoalCount * 2);
+        }
+        iGoalNodes[iGoalCount] = node;
+        iGoalCount += 1;
+    }
+
+    /**
+     * Finds the node finishing the cheapest path. Costs change as the tree is rewired, so it is found on demand.
+     * @return int: The node, or NO_NODE if no node can reach the goal.
+     */
+    private int bestGoalNode() {
+        int best = NO_NODE;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < iGoalCount; i++) {
+            double cost = costToGoal(iGoalNodes[i]);
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = iGoalNodes[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Determines the cost of the path finishing through a node within reach of the goal.
+     */
+    private double costToGoal(int node) {
+        return dCosts[node] + distance(node, getGoal().getX(), getGoal().getY());
+    }
+
+    /**
+     * Appends a node to the tree and the index.
+     * @return int: The new node.
+     */
+    private int addNode(int x, int y, int parent, double cost) {
+        if (iSize == iXs.length) {
+            int capacity = iSize * 2;
+            iXs = Arrays.copyOf(iXs, capacity);
+            iYs = Arrays.copyOf(iYs, capacity);
+            iParents = Arrays.copyOf(iParents, capacity);
+            iFirstChildren = Arrays.copyOf(iFirstChildren, capacity);
+            iNextSiblings = Arrays.copyOf(iNextSiblings, capacity);
+            dCosts = Arrays.copyOf(dCosts, capacity);
+        }
+        int node = iSize;
+        iXs[node] = x;
+        iYs[node] = y;
+        iParents[node] = parent;
+        iFirstChildren[node] = NO_NODE;
+        iNextSiblings[node] = NO_NODE;
+        dCosts[node] = cost;
+        if (parent != NO_NODE) {
+            iNextSiblings[node] = iFirstChildren[parent];
+            iFirstChildren[parent] = node;
+        }
+        mIndex.add(node, x, y);
+        iSize += 1;
+        return node;
+    }
+
+    /**
+     * Sorts the neighborhood by the cost each neighbor would give the new node. Neighborhoods are small, so an
+     * insertion sort is used.
+     */
+    private void sortNear(int count) {
+        for (int i = 1; i < count; i++) {
+            int node = iNear[i];
+            double cost = dNearCosts[i];
+            byte sight = bNearSight[i];
+            int j = i - 1;
+            while (j >= 0 && dNearCosts[j] > cost) {
+                iNear[j + 1] = iNear[j];
+                dNearCosts[j + 1] = dNearCosts[j];
+                bNearSight[j + 1] = bNearSight[j];
+                j -= 1;
+            }
+            iNear[j + 1] = node;
+            dNearCosts[j + 1] = cost;
+            bNearSight[j + 1] = sight;
+        }
+    }
+
+    /**
+     * Determines the euclidean distance from a node to a coordinate.
+     */
+    private double distance(int node, int x, int y) {
+        return Math.sqrt(GeoMath.squaredDistance(iXs[node], iYs[node], x, y));
+    }
+
+}
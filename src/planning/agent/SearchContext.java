@@ -0,0 +1,211 @@
+package planning.agent;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+
+import java.util.Arrays;
+
+/**
+ * Holds the per-cell state of a search (g-score, parent, status) in arrays that are reused across searches.
+ * <div>Each cell is stamped with the generation of the search that last touched it, and a cell whose stamp is
+ * older than the current generation reads as unvisited. Starting a new search only increments the generation,
+ * so it takes constant time no matter how many cells the previous search touched or how large the grid is.</div>
+ */
+public class SearchContext {
+
+    /*
+        Constants
+     */
+
+    public static final int NO_CELL = -1;       // Marks the absence of a cell
+    private static final byte VISITED = 1;      // The cell has been reached by the current search
+    private static final byte CLOSED = 2;       // The cell has been expanded by the current search
+
+    /*
+        Fields
+     */
+
+    private int[] iStamps;          // The generation that last touched each cell
+    private byte[] bStatus;         // The status of each cell, valid while its stamp is current
+    private double[] dGScores;      // The path cost so far of each cell, valid while its stamp is current
+    private int[] iParents;         // The parent cell of each cell, valid while its stamp is current
+    private int[] iCells;           // A scratch buffer of cells, used as a queue or stack by uninformed searches
+    private IndexedHeap mOpenList;  // The open list used by informed searches
+    private int iGeneration;        // The generation of the current search
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a context able to hold searches over grids of up to the given amount of cells.
+     * @param capacity int: The amount of cells to size the context for. Grows on demand.
+     */
+    public SearchContext(int capacity) {
+        allocate(capacity);
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the amount of cells the context can currently hold.
+     * @return int: The capacity of the context.
+     */
+    public int getCapacity() {
+        return iStamps.length;
+    }
+
+    /**
+     * Gets the open list of the current search. It is emptied by begin().
+     * @return IndexedHeap: The open list.
+     */
+    public IndexedHeap getOpenList() {
+        return mOpenList;
+    }
+
+    /**
+     * Gets a scratch buffer with room for every cell, for use as a queue or stack.
+     * @return int[]: The scratch buffer.
+     */
+    public int[] getCellBuffer() {
+        return iCells;
+    }
+
+    /**
+     * Gets the g-score of a cell.
+     * @param cell int: The cell to look up.
+     * @return double: The g-score of the cell, or positive infinity if the current search has not reached it.
+     */
+    public double getGScore(int cell) {
+        return iStamps[cell] == iGeneration ? dGScores[cell] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Gets the parent of a cell.
+     * @param cell int: The cell to look up.
+     * @return int: The parent of the cell, or NO_CELL if it has none or the current search has not reached it.
+     */
+    public int getParent(int cell) {
+        return iStamps[cell] == iGeneration ? iParents[cell] : NO_CELL;
+    }
+
+    /**
+     * Records how the current search reached a cell, marking it visited.
+     * @param cell int: The cell being reached.
+     * @param score double: The g-score of the cell.
+     * @param parent int: The parent of the cell, or NO_CELL.
+     */
+    public void visit(int cell, double score, int parent) {
+        if (iStamps[cell] != iGeneration) {
+            iStamps[cell] = iGeneration;
+            bStatus[cell] = VISITED;
+        }
+        dGScores[cell] = score;
+        iParents[cell] = parent;
+    }
+
+    /**
+     * Updates the g-score of a cell that the current search has already visited.
+     * @param cell int: The cell to update.
+     * @param score double: The new g-score.
+     */
+    public void setGScore(int cell, double score) {
+        dGScores[cell] = score;
+    }
+
+    /**
+     * Updates the parent of a cell that the current search has already visited.
+     * @param cell int: The cell to update.
+     * @param parent int: The new parent.
+     */
+    public void setParent(int cell, int parent) {
+        iParents[cell] = parent;
+    }
+
+    /**
+     * Determines if the current search has reached a cell.
+     * @param cell int: The cell to check.
+     * @return boolean: Whether the cell has been visited.
+     */
+    public boolean isVisited(int cell) {
+        return iStamps[cell] == iGeneration;
+    }
+
+    /**
+     * Determines if the current search has expanded a cell.
+     * @param cell int: The cell to check.
+     * @return boolean: Whether the cell is on the closed list.
+     */
+    public boolean isClosed(int cell) {
+        return iStamps[cell] == iGeneration && bStatus[cell] == CLOSED;
+    }
+
+    /**
+     * Marks a visited cell as expanded.
+     * @param cell int: The cell to close, must have been visited by the current search.
+     */
+    public void close(int cell) {
+        bStatus[cell] = CLOSED;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Starts a new search, discarding the state of the previous one. Grows the context if the grid needs more cells.
+     * @param cells int: The amount of cells on the grid about to be searched.
+     */
+    public void begin(int cells) {
+        if (cells > iStamps.length) {
+            allocate(cells);
+        }
+        mOpenList.clear();
+        iGeneration += 1;
+        if (iGeneration == 0) {
+            // The generation wrapped around, so old stamps could collide with new ones
+            Arrays.fill(iStamps, 0);
+            iGeneration = 1;
+        }
+    }
+
+    /**
+     * Generates the path ending at a cell of the current search. The parent chain is walked once to size the path
+     * and once to fill it, so no tile is stored more than once.
+     * @param grid Grid: The grid that was searched.
+     * @param cell int: The last cell in the path.
+     * @return Path: The path, from the start to the given cell.
+     */
+    public Path generatePath(Grid grid, int cell) {
+        if (cell == NO_CELL) {
+            throw new IllegalArgumentException("ERROR: Cell cannot be NO_CELL!");
+        }
+        int length = 0;
+        for (int step = cell; step != NO_CELL; step = getParent(step)) {
+            length += 1;
+        }
+        Path.Builder path = new Path.Builder(length);
+        while (cell != NO_CELL) {
+            path.add(grid.getCellX(cell), grid.getCellY(cell));
+            cell = getParent(cell);
+        }
+        return path.buildReversed();
+    }
+
+    /**
+     * Allocates the context buffers.
+     * @param capacity int: The amount of cells to size the buffers for.
+     */
+    private void allocate(int capacity) {
+        iStamps = new int[capacity];
+        bStatus = new byte[capacity];
+        dGScores = new double[capacity];
+        iParents = new int[capacity];
+        iCells = new int[capacity];
+        mOpenList = new IndexedHeap(capacity);
+        iGeneration = 0;
+    }
+
+}
@@ -0,0 +1,186 @@
+package planning.agent;
+
+import planning.geom.GeoMath;
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+
+/**
+ * Defines a Theta* search agent that finds any-angle paths in a single pass. A cell may take the parent of the
+ * cell that generated it as its own parent whenever Grid.lineOfSight holds between the two, so the returned path
+ * only holds the vertices where it changes direction.
+ * <div>This algorithm comes from Theta*: "Any-Angle Path Planning on Grids" by Daniel et al.
+ * published in the Journal of Artificial Intelligence Resaech 39 (2010) pg. 533-579 and
+ * retrieved from https(colon)//arxiv(dot)org/pdf/1401(dot)3843(dot)pdf<div/>
+ */
+public class ThetaStarAgent extends Agent {
+
+    /*
+        Fields
+     */
+
+    private SearchContext mContext; // The per-cell state reused by every traversal
+    private int[] iNeighbors;       // Receives the neighbors of the cell being expanded
+    private Heuristic mHeuristic;   // The heuristic used for the agent
+    private boolean bLazy;          // Whether line of sight checks are deferred until expansion
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a Theta* agent with the specified parameters.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     */
+    public ThetaStarAgent(int sx, int sy, int gx, int gy, Heuristic heuristic) {
+        this(sx, sy, gx, gy, heuristic, false);
+    }
+
+    public ThetaStarAgent(Point start, Point goal, Heuristic heuristic) {
+        this(start.getX(), start.getY(), goal.getX(), goal.getY(), heuristic);
+    }
+
+    /**
+     * Creates a Theta* agent that checks line of sight either when a cell is generated or when it is expanded.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     * @param lazy boolean: Whether to defer line of sight checks until a cell is expanded.
+     */
+    protected ThetaStarAgent(int sx, int sy, int gx, int gy, Heuristic heuristic, boolean lazy) {
+        super(sx, sy, gx, gy);
+        mHeuristic = heuristic;
+        bLazy = lazy;
+        mContext = new SearchContext(0);
+        iNeighbors = new int[Grid.MAX_NEIGHBORS];
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Returns the heuristic currently in use by the agent.
+     * @return Heuristic: The heuristic in use by the agent.
+     */
+    public Heuristic getHeuristic() {
+        return mHeuristic;
+    }
+
+    /**
+     * Changes the heuristic used by the agent.
+     * @param heuristic: The new heuristic to use.
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        mHeuristic = heuristic;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Traverses the given grid for an any-angle path.
+     * @param grid The grid to path find across.
+     * @return Path: The vertices of the path if one is found. May return null if no path is found.
+     */
+    protected Path findPath(Grid grid) {
+        setNodesExpanded(0);
+        int sx = getStart().getX();
+        int sy = getStart().getY();
+        int gx = getGoal().getX();
+        int gy = getGoal().getY();
+        if (!grid.mayBeConnected(sx, sy, gx, gy)) {
+            return null;
+        }
+        mContext.begin(grid.getCellCount());
+        IndexedHeap openList = mContext.getOpenList();
+        int width = grid.getGridWidth();
+        int start = grid.getCellIndex(sx, sy);
+        int goal = grid.getCellIndex(gx, gy);
+        Heuristic bound = mHeuristic.bind(grid, gx, gy);
+        double h = bound.estimate(sx, sy);
+        mContext.visit(start, 0, SearchContext.NO_CELL);
+        openList.update(start, h, h);
+        int expansions = 0;
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            mContext.close(current);
+            expansions += 1;
+            if (bLazy) {
+                setVertex(grid, current, width);
+            }
+            if (current == goal) {
+                setNodesExpanded(expansions);
+                recordOpenList(openList);
+                return mContext.generatePath(grid, current);
+            }
+            int count = grid.getNeighbors(current, iNeighbors);
+            for (int i = 0; i < count; i++) {
+                int next = iNeighbors[i];
+                if (mContext.isClosed(next)) {
+                    continue;
+                }
+                updateVertex(grid, current, next, width, bound);
+            }
+        }
+        setNodesExpanded(expansions);
+        recordOpenList(openList);
+        return null;
+    }
+
+    /**
+     * Offers a cell a cheaper parent. The parent of the expanding cell is preferred when there is line of sight
+     * to it (always assumed by the lazy variant), otherwise the expanding cell itself is used.
+     * @param grid Grid: The grid being searched.
+     * @param current int: The cell being expanded.
+     * @param next int: The neighbor being updated.
+     * @param heuristic Heuristic: The heuristic bound to the goal.
+     */
+    private void updateVertex(Grid grid, int current, int next, int width, Heuristic heuristic) {
+        int parent = mContext.getParent(current);
+        int nx = next % width;
+        int ny = next / width;
+        int source = current;
+        if (parent != SearchContext.NO_CELL && (bLazy ||
+                lineOfSight(grid, parent % width, parent / width, nx, ny))) {
+            source = parent;
+        }
+        double score = mContext.getGScore(source) +
+                GeoMath.euclideanDistance(source % width, source / width, nx, ny);
+        if (score < mContext.getGScore(next)) {
+            mContext.visit(next, score, source);
+            double h = heuristic.estimate(nx, ny);
+            mContext.getOpenList().update(next, score + h, h);
+        }
+    }
+
+    /**
+     * Checks the line of sight a lazy update assumed. If it does not hold, the cell is attached to its cheapest
+     * closed neighbor instead.
+     * @param grid Grid: The grid being searched.
+     * @param cell int: The cell being expanded.
+     */
+    private void setVertex(Grid grid, int cell, int width) {
+        int parent = mContext.getParent(cell);
+        int x = cell % width;
+        int y = cell / width;
+        if (parent == SearchContext.NO_CELL || lineOfSight(grid, parent % width, parent / width, x, y)) {
+            return;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        int count = grid.getNeighbors(cell, iNeighbors);
+        for (int i = 0; i < count; i++) {
+            int neighbor = iNeighbors[i];
+            if (!mContext.isClosed(neighbor)) {
+                continue;
+            }
+            double score = mContext.getGScore(neighbor) +
+                    GeoMath.euclideanDistance(neighbor % width, neighbor / width, x, y);
+            if (score < best) {
+                best = score;
+                mContext.setParent(cell, neighbor);
+            }
+        }
+        mContext.setGScore(cell, best);
+    }
+
+}
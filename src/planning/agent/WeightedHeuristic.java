@@ -0,0 +1,33 @@
+package planning.agent;
+
+import planning.geom.Grid;
+
+/**
+ * Scales the estimates of another heuristic by a constant weight.
+ */
+final class WeightedHeuristic implements Heuristic {
+
+    private final Heuristic mHeuristic; // The heuristic being scaled
+    private final double dWeight;       // The factor estimates are scaled by
+
+    WeightedHeuristic(Heuristic heuristic, double weight) {
+        mHeuristic = heuristic;
+        dWeight = weight;
+    }
+
+    @Override
+    public double estimate(int x, int y) {
+        return dWeight * mHeuristic.estimate(x, y);
+    }
+
+    @Override
+    public Heuristic bind(Grid grid, int gx, int gy) {
+        return new WeightedHeuristic(mHeuristic.bind(grid, gx, gy), dWeight);
+    }
+
+    @Override
+    public String toString() {
+        return dWeight + " * " + mHeuristic;
+    }
+
+}
@@ -0,0 +1,590 @@
+package planning.flow;
+
+import planning.agent.IndexedHeap;
+import planning.geom.Grid;
+import planning.geom.GridListener;
+import planning.geom.Path;
+import planning.geom.Point;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Defines a flow field: the distance from every tile of a grid to one goal, along with the direction of the next
+ * step towards it. Any amount of units heading to the same goal can then read their next step in constant time
+ * rather than each searching on its own.
+ * <div>Distances are measured in integer weights, CARDINAL_WEIGHT for a horizontal or vertical step and
+ * DIAGONAL_WEIGHT for a diagonal one, whose ratio of 1.4 is within one percent of the octile ratio. With integer
+ * weights the wavefront grows from the goal one distance at a time, as in Dial's algorithm, and since a step never
+ * lands on the distance being expanded every tile of a level can be expanded in parallel. Large levels are split
+ * across a fork-join pool, and tiles reached by two threads at once keep the smaller distance.</div>
+ * <div>The field listens to its grid and records the regions that change. The next update clears the tiles whose
+ * steps led through a newly occupied tile, then grows the field back into them and out from any freed tile,
+ * leaving the rest of the field untouched. Lookups read the field as of the last update and are not synchronized,
+ * so the field should be updated between the steps of the units reading it.</div>
+ */
+public class FlowField implements GridListener {
+
+    /*
+        Constants
+     */
+
+    public static final int CARDINAL_WEIGHT = 5;                // The weight of a horizontal or vertical step
+    public static final int DIAGONAL_WEIGHT = 7;                // The weight of a diagonal step
+    public static final int UNREACHABLE = Integer.MAX_VALUE;    // The distance of tiles that cannot reach the goal
+    public static final byte NO_DIRECTION = -1;                 // The direction of the goal and unreachable tiles
+    private static final int[] DX = {-1, 0, 1, -1, 1, -1, 0, 1};    // The x offset of each direction
+    private static final int[] DY = {-1, -1, -1, 0, 0, 1, 1, 1};    // The y offset of each direction
+    private static final int LEVELS = DIAGONAL_WEIGHT + 1;      // The amount of levels that can be pending at once
+    private static final int PARALLEL_LEVEL = 4096;             // The smallest level expanded in parallel
+    private static final int CHUNK = 1024;                      // The amount of tiles of a level each task expands
+    private static final int MAX_PENDING_REGIONS = 256;         // The changed regions kept before rebuilding
+
+    /*
+        Fields
+     */
+
+    private final Grid mGrid;                   // The grid the field covers
+    private final int iGoal;                    // The cell of the goal
+    private final ForkJoinPool mPool;           // The pool the wavefront is expanded on
+    private final AtomicIntegerArray iDistances;    // The weighted distance from each cell to the goal
+    private final byte[] bDirections;           // The direction of the next step from each cell, one byte per cell
+    private IndexedHeap mOpen;                  // The open list of repairs, null until the first repair
+    private int[] iRegions;                     // The changed regions as (minX, minY, maxX, maxY) quadruples
+    private int iRegionCount;                   // The amount of changed regions recorded
+    private boolean bRebuild;                   // Whether the field must be rebuilt from scratch
+    private long lRebuilds;                     // The amount of times the field has been built from scratch
+    private long lRepairs;                      // The amount of cells whose distance was repaired in place
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates the flow field of a goal on the common fork-join pool.
+     * @param grid Grid: The grid to cover, cannot be null.
+     * @param gx int: The x ordinal of the goal.
+     * @param gy int: The y ordinal of the goal.
+     */
+    public FlowField(Grid grid, int gx, int gy) {
+        this(grid, gx, gy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates the flow field of a goal, builds it and starts listening to the grid for changes.
+     * @param grid Grid: The grid to cover, cannot be null.
+     * @param gx int: The x ordinal of the goal. Must be on the grid.
+     * @param gy int: The y ordinal of the goal. Must be on the grid.
+     * @param pool ForkJoinPool: The pool to expand the wavefront on, cannot be null.
+     */
+    public FlowField(Grid grid, int gx, int gy, ForkJoinPool pool) {
+        if (grid == null) {
+            throw new IllegalArgumentException("ERROR: Grid cannot be null!");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("ERROR: Pool cannot be null!");
+        }
+        if (gx < 0 || gx >= grid.getGridWidth() || gy < 0 || gy >= grid.getGridHeight()) {
+            throw new IllegalArgumentException("ERROR: Goal falls outside bounds of grid!");
+        }
+        if (grid.getCellCount() > UNREACHABLE / DIAGONAL_WEIGHT) {
+            throw new IllegalArgumentException("ERROR: Grid is too large for a flow field!");
+        }
+        mGrid = grid;
+        iGoal = grid.getCellIndex(gx, gy);
+        mPool = pool;
+        iDistances = new AtomicIntegerArray(grid.getCellCount());
+        bDirections = new byte[grid.getCellCount()];
+        iRegions = new int[16];
+        bRebuild = true;
+        update();
+        grid.addListener(this);
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the grid the field covers.
+     * @return Grid: The covered grid.
+     */
+    public Grid getGrid() {
+        return mGrid;
+    }
+
+    /**
+     * Gets the goal of the field.
+     * @return Point: The tile every step leads towards.
+     */
+    public Point getGoal() {
+        return new Point(mGrid.getCellX(iGoal), mGrid.getCellY(iGoal));
+    }
+
+    /**
+     * Gets the amount of times the field has been built from scratch, counting the initial build.
+     * @return long: The amount of rebuilds.
+     */
+    public synchronized long getRebuildCount() {
+        return lRebuilds;
+    }
+
+    /**
+     * Gets the amount of cells repaired in place rather than rebuilt, counting a cell again for every repair it
+     * took part in.
+     * @return long: The amount of cell repairs.
+     */
+    public synchronized long getRepairCount() {
+        return lRepairs;
+    }
+
+    /**
+     * Gets the weighted distance from a cell to the goal.
+     * @param cell int: The cell index of the tile.
+     * @return int: The distance in step weights, or UNREACHABLE if the tile is occupied or cannot reach the goal.
+     */
+    public int getDistance(int cell) {
+        return iDistances.get(cell);
+    }
+
+    /**
+     * Gets the path cost from a tile to the goal, in the units of a horizontal step.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return double: The path cost, or positive infinity if the tile is out of bounds, occupied or cannot reach
+     * the goal.
+     */
+    public double getCost(int x, int y) {
+        if (!isInBounds(x, y)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int distance = iDistances.get(mGrid.getCellIndex(x, y));
+        return distance == UNREACHABLE ? Double.POSITIVE_INFINITY : (double)distance / CARDINAL_WEIGHT;
+    }
+
+    /**
+     * Gets the direction of the next step from a cell.
+     * @param cell int: The cell index of the tile.
+     * @return byte: The direction, an index into getDirectionX and getDirectionY, or NO_DIRECTION if the tile is
+     * the goal or cannot reach it.
+     */
+    public byte getDirection(int cell) {
+        return bDirections[cell];
+    }
+
+    /**
+     * Gets the x offset of a direction.
+     * @param direction byte: The direction, cannot be NO_DIRECTION.
+     * @return int: The change in x of a step in that direction.
+     */
+    public static int getDirectionX(byte direction) {
+        return DX[direction];
+    }
+
+    /**
+     * Gets the y offset of a direction.
+     * @param direction byte: The direction, cannot be NO_DIRECTION.
+     * @return int: The change in y of a step in that direction.
+     */
+    public static int getDirectionY(byte direction) {
+        return DY[direction];
+    }
+
+    /**
+     * Gets the cell of the next step from a cell towards the goal.
+     * @param cell int: The cell index of the tile.
+     * @return int: The cell index of the next tile, or -1 if the tile is the goal or cannot reach it.
+     */
+    public int getNextCell(int cell) {
+        byte direction = bDirections[cell];
+        if (direction == NO_DIRECTION) {
+            return -1;
+        }
+        return cell + DY[direction] * mGrid.getGridWidth() + DX[direction];
+    }
+
+    /**
+     * Gets the next step from a tile towards the goal.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return Point: The next tile, or null if the tile is out of bounds, is the goal or cannot reach it.
+     */
+    public Point next(int x, int y) {
+        if (!isInBounds(x, y)) {
+            return null;
+        }
+        byte direction = bDirections[mGrid.getCellIndex(x, y)];
+        if (direction == NO_DIRECTION) {
+            return null;
+        }
+        return new Point(x + DX[direction], y + DY[direction]);
+    }
+
+    /**
+     * Determines if a tile can reach the goal.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return boolean: Whether the tile is in bounds and has a path to the goal.
+     */
+    public boolean isReachable(int x, int y) {
+        return isInBounds(x, y) && iDistances.get(mGrid.getCellIndex(x, y)) != UNREACHABLE;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Follows the field from a tile to the goal.
+     * @param x int: The x ordinal of the first tile.
+     * @param y int: The y ordinal of the first tile.
+     * @return Path: Every tile from the first to the goal, or null if the tile cannot reach the goal or the walk
+     * meets a tile cleared by an update running alongside it.
+     */
+    public Path path(int x, int y) {
+        if (!isReachable(x, y)) {
+            return null;
+        }
+        Path.Builder path = new Path.Builder();
+        int width = mGrid.getGridWidth();
+        int cell = mGrid.getCellIndex(x, y);
+        path.add(x, y);
+        // A walk racing an update can meet a cleared tile, or follow old and new steps around a loop
+        for (int steps = mGrid.getCellCount(); cell != iGoal; steps--) {
+            cell = getNextCell(cell);
+            if (cell < 0 || steps == 0) {
+                return null;
+            }
+            path.add(cell % width, cell / width);
+        }
+        return path.build();
+    }
+
+    /**
+     * Records a changed region of the grid, to be repaired on the next update.
+     */
+    @Override
+    public synchronized void cellsChanged(int minX, int minY, int maxX, int maxY) {
+        if (bRebuild) {
+            return;
+        }
+        // Large or numerous changes are cheaper to rebuild in parallel than to repair cell by cell
+        long area = (long)(maxX - minX + 1) * (maxY - minY + 1);
+        if (iRegionCount == MAX_PENDING_REGIONS || area * 4 > mGrid.getCellCount()) {
+            bRebuild = true;
+            iRegionCount = 0;
+            return;
+        }
+        if (iRegions.length == 4 * iRegionCount) {
+            iRegions = Arrays.copyOf(iRegions, iRegions.length * 2);
+        }
+        int slot = 4 * iRegionCount;
+        iRegions[slot] = minX;
+        iRegions[slot + 1] = minY;
+        iRegions[slot + 2] = maxX;
+        iRegions[slot + 3] = maxY;
+        iRegionCount += 1;
+    }
+
+    /**
+     * Brings the field up to date with the grid, repairing the regions that changed since the last update or
+     * rebuilding it if too much changed. Must not run while units are reading the field.
+     */
+    public synchronized void update() {
+        // An occupied goal leaves the whole field unreachable, so occupying or freeing it changes every tile
+        boolean goalFree = mGrid.isValidCoordinates(mGrid.getCellX(iGoal), mGrid.getCellY(iGoal));
+        if (bRebuild || goalFree != (iDistances.get(iGoal) == 0)) {
+            rebuild();
+            bRebuild = false;
+            iRegionCount = 0;
+            lRebuilds += 1;
+        } else if (iRegionCount > 0) {
+            repair();
+            iRegionCount = 0;
+        }
+    }
+
+    /**
+     * Stops the field from listening to its grid. The field keeps its last state.
+     */
+    public void detach() {
+        mGrid.removeListener(this);
+    }
+
+    /**
+     * Builds the field from scratch, expanding the wavefront from the goal one distance at a time.
+     */
+    private void rebuild() {
+        int cells = mGrid.getCellCount();
+        for (int cell = 0; cell < cells; cell++) {
+            iDistances.set(cell, UNREACHABLE);
+        }
+        Arrays.fill(bDirections, NO_DIRECTION);
+        if (!mGrid.isValidCoordinates(mGrid.getCellX(iGoal), mGrid.getCellY(iGoal))) {
+            return;
+        }
+        // Steps land at most DIAGONAL_WEIGHT past the level being expanded, so the levels pending at once fit a ring
+        int[][] levels = new int[LEVELS][16];
+        int[] sizes = new int[LEVELS];
+        iDistances.set(iGoal, 0);
+        levels[0][0] = iGoal;
+        sizes[0] = 1;
+        int pending = 1;
+        int[] neighbors = new int[Grid.MAX_NEIGHBORS];
+        for (int distance = 0; pending > 0; distance++) {
+            int slot = distance % LEVELS;
+            int[] level = levels[slot];
+            int size = sizes[slot];
+            sizes[slot] = 0;
+            pending -= size;
+            if (size == 0) {
+                continue;
+            }
+            if (size < PARALLEL_LEVEL) {
+                Frontier next = new Frontier();
+                expand(level, 0, size, distance, neighbors, next);
+                pending += next.drainTo(levels, sizes, distance);
+            } else {
+                int finalDistance = distance;
+                Frontier[] parts = new Frontier[(size + CHUNK - 1) / CHUNK];
+                mPool.submit(() -> IntStream.range(0, parts.length).parallel().forEach(part -> {
+                    Frontier next = new Frontier();
+                    expand(level, part * CHUNK, Math.min(size, (part + 1) * CHUNK), finalDistance,
+                            new int[Grid.MAX_NEIGHBORS], next);
+                    parts[part] = next;
+                })).join();
+                for (Frontier next : parts) {
+                    pending += next.drainTo(levels, sizes, distance);
+                }
+            }
+        }
+        mPool.submit(() -> IntStream.range(0, mGrid.getGridHeight()).parallel().forEach(y -> {
+            int row = y * mGrid.getGridWidth();
+            for (int x = 0; x < mGrid.getGridWidth(); x++) {
+                bDirections[row + x] = findDirection(row + x);
+            }
+        })).join();
+    }
+
+    /**
+     * Expands the tiles of one level, lowering the distance of their neighbors. Neighbors may be lowered by
+     * several threads at once, and only the thread whose distance wins adds the neighbor to the next levels.
+     */
+    private void expand(int[] level, int from, int to, int distance, int[] neighbors, Frontier next) {
+        int width = mGrid.getGridWidth();
+        for (int i = from; i < to; i++) {
+            int cell = level[i];
+            // A tile lowered after it was queued was already expanded at its lower distance
+            if (iDistances.get(cell) != distance) {
+                continue;
+            }
+            int count = mGrid.getNeighbors(cell, neighbors);
+            for (int j = 0; j < count; j++) {
+                int neighbor = neighbors[j];
+                boolean diagonal = neighbor % width != cell % width && neighbor / width != cell / width;
+                int lowered = distance + (diagonal ? DIAGONAL_WEIGHT : CARDINAL_WEIGHT);
+                int current = iDistances.get(neighbor);
+                while (lowered < current) {
+                    int witness = iDistances.compareAndExchange(neighbor, current, lowered);
+                    if (witness == current) {
+                        next.add(neighbor, diagonal);
+                        break;
+                    }
+                    current = witness;
+                }
+            }
+        }
+    }
+
+    /**
+     * Repairs the field around the changed regions. Tiles whose steps led through a newly occupied tile lose their
+     * distance, then they and any freed tile are seeded from their neighbors and the field grows back from the
+     * seeds with Dijkstra's algorithm. Directions are recomputed around every tile whose distance changed, so the
+     * field ends up exactly as a rebuild would leave it.
+     */
+    private void repair() {
+        int width = mGrid.getGridWidth();
+        int[] changed = new int[64];
+        int changedCount = 0;
+        int[] seeds = new int[64];
+        int seedCount = 0;
+        for (int region = 0; region < iRegionCount; region++) {
+            int slot = 4 * region;
+            for (int y = iRegions[slot + 1]; y <= iRegions[slot + 3]; y++) {
+                for (int x = iRegions[slot]; x <= iRegions[slot + 2]; x++) {
+                    int cell = y * width + x;
+                    boolean free = mGrid.isValidCoordinates(x, y);
+                    int distance = iDistances.get(cell);
+                    if (!free && distance != UNREACHABLE) {
+                        // Clear the tile and every tile whose steps led through it
+                        int start = changedCount;
+                        changed = append(changed, changedCount++, cell);
+                        iDistances.set(cell, UNREACHABLE);
+                        bDirections[cell] = NO_DIRECTION;
+                        for (int i = start; i < changedCount; i++) {
+                            int parent = changed[i];
+                            int px = parent % width;
+                            int py = parent / width;
+                            for (int d = 0; d < DX.length; d++) {
+                                int cx = px - DX[d];
+                                int cy = py - DY[d];
+                                if (isInBounds(cx, cy) && bDirections[cy * width + cx] == d) {
+                                    int child = cy * width + cx;
+                                    iDistances.set(child, UNREACHABLE);
+                                    bDirections[child] = NO_DIRECTION;
+                                    changed = append(changed, changedCount++, child);
+                                    seeds = append(seeds, seedCount++, child);
+                                }
+                            }
+                        }
+                    } else if (free && distance == UNREACHABLE) {
+                        seeds = append(seeds, seedCount++, cell);
+                    }
+                }
+            }
+        }
+        if (mOpen == null) {
+            mOpen = new IndexedHeap(mGrid.getCellCount());
+        }
+        IndexedHeap open = mOpen;
+        open.clear();
+        for (int i = 0; i < seedCount; i++) {
+            int seed = seeds[i];
+            if (!mGrid.isValidCoordinates(seed % width, seed / width)) {
+                continue;
+            }
+            int best = UNREACHABLE;
+            for (int d = 0; d < DX.length; d++) {
+                int nx = seed % width + DX[d];
+                int ny = seed / width + DY[d];
+                if (mGrid.isValidCoordinates(nx, ny)) {
+                    int distance = iDistances.get(ny * width + nx);
+                    if (distance != UNREACHABLE) {
+                        best = Math.min(best, distance + weight(d));
+                    }
+                }
+            }
+            if (best != UNREACHABLE && best < iDistances.get(seed)) {
+                iDistances.set(seed, best);
+                open.update(seed, best, 0);
+            }
+        }
+        int[] neighbors = new int[Grid.MAX_NEIGHBORS];
+        while (!open.isEmpty()) {
+            int cell = open.poll();
+            int distance = iDistances.get(cell);
+            changed = append(changed, changedCount++, cell);
+            int count = mGrid.getNeighbors(cell, neighbors);
+            for (int j = 0; j < count; j++) {
+                int neighbor = neighbors[j];
+                boolean diagonal = neighbor % width != cell % width && neighbor / width != cell / width;
+                int lowered = distance + (diagonal ? DIAGONAL_WEIGHT : CARDINAL_WEIGHT);
+                if (lowered < iDistances.get(neighbor)) {
+                    iDistances.set(neighbor, lowered);
+                    open.update(neighbor, lowered, 0);
+                }
+            }
+        }
+        for (int i = 0; i < changedCount; i++) {
+            int cell = changed[i];
+            int x = cell % width;
+            int y = cell / width;
+            for (int dy = -1; dy < 2; dy++) {
+                for (int dx = -1; dx < 2; dx++) {
+                    if (isInBounds(x + dx, y + dy)) {
+                        int around = cell + dy * width + dx;
+                        bDirections[around] = findDirection(around);
+                    }
+                }
+            }
+        }
+        lRepairs += changedCount;
+    }
+
+    /**
+     * Finds the direction of the step from a cell to the neighbor it is closest to the goal through. Ties go to
+     * the first direction, so the result only depends on the distances.
+     * @return byte: The direction, or NO_DIRECTION if the cell is the goal or cannot reach it.
+     */
+    private byte findDirection(int cell) {
+        if (cell == iGoal || iDistances.get(cell) == UNREACHABLE) {
+            return NO_DIRECTION;
+        }
+        int width = mGrid.getGridWidth();
+        int x = cell % width;
+        int y = cell / width;
+        byte best = NO_DIRECTION;
+        long bestDistance = Long.MAX_VALUE;
+        for (int d = 0; d < DX.length; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (!mGrid.isValidCoordinates(nx, ny)) {
+                continue;
+            }
+            int distance = iDistances.get(ny * width + nx);
+            if (distance != UNREACHABLE && (long)distance + weight(d) < bestDistance) {
+                bestDistance = (long)distance + weight(d);
+                best = (byte)d;
+            }
+        }
+        return best;
+    }
+
+    private boolean isInBounds(int x, int y) {
+        return x >= 0 && x < mGrid.getGridWidth() && y >= 0 && y < mGrid.getGridHeight();
+    }
+
+    private static int weight(int direction) {
+        return DX[direction] != 0 && DY[direction] != 0 ? DIAGONAL_WEIGHT : CARDINAL_WEIGHT;
+    }
+
+    private static int[] append(int[] cells, int size, int cell) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+        }
+        cells[size] = cell;
+        return cells;
+    }
+
+    /**
+     * Collects the tiles a task lowered, split by the weight of the step that reached them, until they are moved
+     * into the levels they belong to.
+     */
+    private static final class Frontier {
+
+        private int[] iCardinal = new int[16];  // The tiles reached by a horizontal or vertical step
+        private int iCardinalCount;             // The amount of tiles reached by a horizontal or vertical step
+        private int[] iDiagonal = new int[16];  // The tiles reached by a diagonal step
+        private int iDiagonalCount;             // The amount of tiles reached by a diagonal step
+
+        private void add(int cell, boolean diagonal) {
+            if (diagonal) {
+                iDiagonal = append(iDiagonal, iDiagonalCount++, cell);
+            } else {
+                iCardinal = append(iCardinal, iCardinalCount++, cell);
+            }
+        }
+
+        /**
+         * Appends the collected tiles to the levels after the one they were reached from.
+         * @return int: The amount of tiles appended.
+         */
+        private int drainTo(int[][] levels, int[] sizes, int distance) {
+            push(levels, sizes, (distance + CARDINAL_WEIGHT) % LEVELS, iCardinal, iCardinalCount);
+            push(levels, sizes, (distance + DIAGONAL_WEIGHT) % LEVELS, iDiagonal, iDiagonalCount);
+            return iCardinalCount + iDiagonalCount;
+        }
+
+        private static void push(int[][] levels, int[] sizes, int slot, int[] cells, int count) {
+            if (sizes[slot] + count > levels[slot].length) {
+                levels[slot] = Arrays.copyOf(levels[slot], Math.max(levels[slot].length * 2, sizes[slot] + count));
+            }
+            System.arraycopy(cells, 0, levels[slot], sizes[slot], count);
+            sizes[slot] += count;
+        }
+
+    }
+
+}
@@ -0,0 +1,88 @@
+package planning.flow;
+
+import planning.agent.Agent;
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+
+/**
+ * Defines an agent that follows a shared flow field to its goal rather than searching. Any amount of agents can
+ * share one field, and each traversal only reads one step per tile of its path.
+ * <div>The goal of the agent is the goal of the field. Traversals only read the field and never update it, since
+ * an update would clear tiles under the other agents reading it. The owner of the field updates it between the
+ * steps of its agents, and paths read the field as of the last update.</div>
+ */
+public class FlowFieldAgent extends Agent {
+
+    /*
+        Fields
+     */
+
+    private final FlowField mField;     // The field the agent follows
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an agent following a flow field.
+     * @param field FlowField: The field to follow, cannot be null.
+     * @param sx int: The x ordinal of the starting point.
+     * @param sy int: The y ordinal of the starting point.
+     */
+    public FlowFieldAgent(FlowField field, int sx, int sy) {
+        super(new Point(sx, sy), checkField(field).getGoal());
+        mField = field;
+    }
+
+    /**
+     * Creates an agent following a flow field.
+     * @param field FlowField: The field to follow, cannot be null.
+     * @param start Point: The starting location.
+     */
+    public FlowFieldAgent(FlowField field, Point start) {
+        this(field, start.getX(), start.getY());
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the field the agent follows.
+     * @return FlowField: The shared flow field.
+     */
+    public FlowField getField() {
+        return mField;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Follows the field from the start to the goal, as of the last update of the field.
+     * @param grid Grid: The grid to path find across. Must be the grid of the field.
+     * @return Path: The path, or null if the start cannot reach the goal.
+     */
+    @Override
+    protected Path findPath(Grid grid) {
+        if (grid != mField.getGrid()) {
+            throw new IllegalArgumentException("ERROR: Flow field does not cover the grid!");
+        }
+        if (!getGoal().equals(mField.getGoal())) {
+            throw new IllegalArgumentException("ERROR: Agent goal does not match the flow field goal!");
+        }
+        Path path = mField.path(getStart().getX(), getStart().getY());
+        setNodesExpanded(path == null ? 0 : path.size());
+        return path;
+    }
+
+    private static FlowField checkField(FlowField field) {
+        if (field == null) {
+            throw new IllegalArgumentException("ERROR: Flow field cannot be null!");
+        }
+        return field;
+    }
+
+}
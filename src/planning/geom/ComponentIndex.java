@@ -0,0 +1,297 @@
+package planning.geom;
+
+import java.util.stream.IntStream;
+
+/**
+ * Labels the unoccupied tiles of a grid with the 8-connected component they belong to, using a union-find
+ * forest over cell indices.
+ * <div>The forest is built in parallel: the grid is split into bands of rows, each band is unioned on its own,
+ * and the seams between bands are joined afterwards. Opening a tile only needs unions with its neighbors, so it
+ * is applied in place. Occupying a tile may split a component, which a union-find cannot undo, so a bounded search
+ * around the tile first looks for a way between its unoccupied neighbors that avoids it. If there is one, the
+ * component stays whole and the tile is simply left in the forest, to be ignored while it is occupied. Only when
+ * no such way is found nearby is the index marked stale and rebuilt the next time it is queried.</div>
+ * <div>The forest holds one int per tile, four bytes per tile of memory.</div>
+ */
+class ComponentIndex {
+
+    /*
+        Constants
+     */
+
+    private static final int BLOCKED = -1;                  // Marks an occupied tile
+    private static final int PARALLEL_THRESHOLD = 1 << 16;  // The amount of cells below which builds are serial
+    private static final int BANDS_PER_THREAD = 4;          // The amount of row bands per available processor
+    private static final int SPLIT_RADIUS = 8;              // How far a split check searches from the occupied tile
+
+    /*
+        Fields
+     */
+
+    private final Grid mGrid;       // The grid being labeled
+    private final int[] iParents;   // The union-find parent of each cell, or BLOCKED if occupied at the last build
+    private volatile boolean bStale;    // Whether a tile was occupied since the last build and may split a component
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates and builds the component index of a grid.
+     * @param grid Grid: The grid to label.
+     */
+    ComponentIndex(Grid grid) {
+        mGrid = grid;
+        iParents = new int[grid.getCellCount()];
+        rebuild();
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Determines if the index must be rebuilt before it can be queried.
+     * @return boolean: Whether the index is stale.
+     */
+    boolean isStale() {
+        return bStale;
+    }
+
+    /**
+     * Marks the index as needing a rebuild.
+     */
+    void markStale() {
+        bStale = true;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Finds the component of a cell.
+     * @param cell int: The cell index to look up.
+     * @return int: The representative cell of the component, or -1 if the cell is occupied.
+     */
+    int find(int cell) {
+        if (iParents[cell] == BLOCKED) {
+            return BLOCKED;
+        }
+        while (iParents[cell] != cell) {
+            // Path halving only ever points a cell at one of its ancestors
+            iParents[cell] = iParents[iParents[cell]];
+            cell = iParents[cell];
+        }
+        return cell;
+    }
+
+    /**
+     * Joins a newly unoccupied tile with the components of its unoccupied neighbors.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     */
+    void cellOpened(int x, int y) {
+        if (bStale) {
+            return;
+        }
+        int cell = mGrid.getCellIndex(x, y);
+        if (iParents[cell] == BLOCKED) {
+            iParents[cell] = cell;
+        } else if (!isRootAround(cell, x, y)) {
+            // The tile was occupied after the build and its neighbors have since moved on, so the component it is
+            // still filed under may not reach it any longer
+            bStale = true;
+            return;
+        }
+        for (int dy = -1; dy < 2; dy++) {
+            for (int dx = -1; dx < 2; dx++) {
+                if ((dx != 0 || dy != 0) && mGrid.isValidCoordinates(x + dx, y + dy)) {
+                    union(cell, mGrid.getCellIndex(x + dx, y + dy));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a newly occupied tile does not split its component, marking the index stale if it may.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     */
+    void cellClosed(int x, int y) {
+        if (bStale) {
+            return;
+        }
+        if (!isJoinedAround(x, y)) {
+            bStale = true;
+        }
+    }
+
+    /**
+     * Determines if a tile shares its component with at least one of its unoccupied neighbors.
+     */
+    private boolean isRootAround(int cell, int x, int y) {
+        int root = find(cell);
+        for (int dy = -1; dy < 2; dy++) {
+            for (int dx = -1; dx < 2; dx++) {
+                if ((dx != 0 || dy != 0) && mGrid.isValidCoordinates(x + dx, y + dy) &&
+                        find(mGrid.getCellIndex(x + dx, y + dy)) == root) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Searches the tiles within SPLIT_RADIUS of an occupied tile for a way between all of its unoccupied
+     * neighbors. Any path through the tile can then go around it instead, so its component is still whole.
+     * @return boolean: Whether every unoccupied neighbor was reached from the first.
+     */
+    private boolean isJoinedAround(int x, int y) {
+        int size = 2 * SPLIT_RADIUS + 1;
+        boolean[] visited = new boolean[size * size];
+        int[] queue = new int[size * size];
+        int head = 0;
+        int tail = 0;
+        int remaining = 0;
+        for (int dy = -1; dy < 2; dy++) {
+            for (int dx = -1; dx < 2; dx++) {
+                if ((dx != 0 || dy != 0) && mGrid.isValidCoordinates(x + dx, y + dy)) {
+                    remaining += 1;
+                    if (tail == 0) {
+                        int local = (dy + SPLIT_RADIUS) * size + dx + SPLIT_RADIUS;
+                        visited[local] = true;
+                        queue[tail++] = local;
+                    }
+                }
+            }
+        }
+        // The tile itself is occupied, so the search never passes through it
+        while (head < tail && remaining > 0) {
+            int local = queue[head++];
+            int lx = local % size - SPLIT_RADIUS;
+            int ly = local / size - SPLIT_RADIUS;
+            if (Math.abs(lx) <= 1 && Math.abs(ly) <= 1) {
+                remaining -= 1;
+            }
+            for (int dy = -1; dy < 2; dy++) {
+                for (int dx = -1; dx < 2; dx++) {
+                    int nx = lx + dx;
+                    int ny = ly + dy;
+                    if (Math.abs(nx) > SPLIT_RADIUS || Math.abs(ny) > SPLIT_RADIUS) {
+                        continue;
+                    }
+                    int next = (ny + SPLIT_RADIUS) * size + nx + SPLIT_RADIUS;
+                    if (!visited[next] && mGrid.isValidCoordinates(x + nx, y + ny)) {
+                        visited[next] = true;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return remaining == 0;
+    }
+
+    /**
+     * Rebuilds the forest from the current state of the grid.
+     */
+    void rebuild() {
+        int height = mGrid.getGridHeight();
+        int bands = 1;
+        if (iParents.length >= PARALLEL_THRESHOLD) {
+            bands = Math.min(height, Runtime.getRuntime().availableProcessors() * BANDS_PER_THREAD);
+        }
+        int rowsPerBand = (height + bands - 1) / bands;
+        int count = (height + rowsPerBand - 1) / rowsPerBand;
+        // Each band only writes to its own cells, so the bands can be unioned concurrently
+        IntStream.range(0, count).parallel().forEach(band ->
+                unionRows(band * rowsPerBand, Math.min(height, (band + 1) * rowsPerBand)));
+        for (int band = 1; band < count; band++) {
+            unionSeam(band * rowsPerBand);
+        }
+        IntStream.range(0, count).parallel().forEach(band ->
+                flatten(band * rowsPerBand, Math.min(height, (band + 1) * rowsPerBand)));
+        bStale = false;
+    }
+
+    /**
+     * Unions the unoccupied tiles of the rows [top, bottom) without looking outside of them.
+     */
+    private void unionRows(int top, int bottom) {
+        int width = mGrid.getGridWidth();
+        for (int y = top; y < bottom; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = mGrid.getCellIndex(x, y);
+                if (!mGrid.isValidCoordinates(x, y)) {
+                    iParents[cell] = BLOCKED;
+                    continue;
+                }
+                iParents[cell] = cell;
+                if (mGrid.isValidCoordinates(x - 1, y)) {
+                    union(cell, cell - 1);
+                }
+                if (y > top) {
+                    unionAbove(cell, x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * Unions the first row of a band with the last row of the band above it.
+     * @param y int: The y ordinal of the first row of the band.
+     */
+    private void unionSeam(int y) {
+        int width = mGrid.getGridWidth();
+        for (int x = 0; x < width; x++) {
+            if (mGrid.isValidCoordinates(x, y)) {
+                unionAbove(mGrid.getCellIndex(x, y), x, y);
+            }
+        }
+    }
+
+    /**
+     * Unions an unoccupied tile with its unoccupied neighbors on the row above it.
+     */
+    private void unionAbove(int cell, int x, int y) {
+        int width = mGrid.getGridWidth();
+        for (int dx = -1; dx < 2; dx++) {
+            if (mGrid.isValidCoordinates(x + dx, y - 1)) {
+                union(cell, cell - width + dx);
+            }
+        }
+    }
+
+    /**
+     * Points every unoccupied tile of the rows [top, bottom) directly at its representative. Cells outside the
+     * rows are only read, and any value read for them is one of their ancestors, so bands may flatten concurrently.
+     */
+    private void flatten(int top, int bottom) {
+        int width = mGrid.getGridWidth();
+        for (int cell = top * width; cell < bottom * width; cell++) {
+            if (iParents[cell] == BLOCKED) {
+                continue;
+            }
+            int root = cell;
+            while (iParents[root] != root) {
+                root = iParents[root];
+            }
+            iParents[cell] = root;
+        }
+    }
+
+    /**
+     * Merges the components of two unoccupied cells. The representative with the lower index is kept.
+     */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA < rootB) {
+            iParents[rootB] = rootA;
+        } else if (rootB < rootA) {
+            iParents[rootA] = rootB;
+        }
+    }
+
+}
@@ -5,6 +5,16 @@ package planning.geom;
  */
 public class GeoMath {
 
+    /*
+        Constants
+     */
+
+    private static final double DIAGONAL_SAVING = Math.sqrt(2) - 2;   // The cost a diagonal step saves over two
+
+    /*
+        Methods
+     */
+
     /**
      * Determines the euclidean distance between two coordinates.
      * @param x1 int: The x ordinal of the first point.
@@ -14,7 +24,7 @@ public class GeoMath {
      * @return double: The euclidean distance between two coordinates.
      */
     public static double euclideanDistance(int x1, int y1, int x2, int y2) {
-        return Math.sqrt(Math.pow(x1 - x2, 2) + Math.pow(y1 - y2, 2));
+        return Math.sqrt(squaredDistance(x1, y1, x2, y2));
     }
 
     /**
@@ -27,6 +37,21 @@ public class GeoMath {
         return euclideanDistance(p1.getX(), p1.getY(), p2.getX(), p2.getY());
     }
 
+    /**
+     * Determines the squared euclidean distance between two coordinates. Orders coordinates by distance the same
+     * way euclideanDistance does without taking a square root.
+     * @param x1 int: The x ordinal of the first point.
+     * @param y1 int: The y ordinal of the first point.
+     * @param x2 int: The x ordinal of the second point.
+     * @param y2 int: The y ordinal of the second point.
+     * @return long: The squared euclidean distance between two coordinates.
+     */
+    public static long squaredDistance(int x1, int y1, int x2, int y2) {
+        long dx = x1 - x2;
+        long dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
     /**
      * Determines the manhattan distance between two coordinates.
      * @param x1 int: The x ordinal of the first point.
@@ -58,8 +83,9 @@ public class GeoMath {
      * @return double: The octile distance between two coordinates.
      */
     public static double octileDistance(int x1, int y1, int x2, int y2) {
-        return (Math.abs(x1 - x2) + Math.abs(y1 - y2)) +
-                (Math.sqrt(2) - 2) * Math.min(Math.abs(x1 - x2), Math.abs(y1 - y2));
+        int dx = Math.abs(x1 - x2);
+        int dy = Math.abs(y1 - y2);
+        return (dx + dy) + DIAGONAL_SAVING * Math.min(dx, dy);
     }
 
     /**
@@ -72,4 +98,23 @@ public class GeoMath {
         return octileDistance(p1.getX(), p1.getY(), p2.getX(), p2.getY());
     }
 
+    /**
+     * Determines the point reached by moving from one coordinate towards another by at most a given distance.
+     * @param x1 int: The x ordinal of the origin.
+     * @param y1 int: The y ordinal of the origin.
+     * @param x2 int: The x ordinal of the destination.
+     * @param y2 int: The y ordinal of the destination.
+     * @param distance double: The maximum distance to move.
+     * @return Point: The destination if it is closer than the distance, otherwise the point that distance along
+     * the line to it, rounded down.
+     */
+    public static Point stepTowards(int x1, int y1, int x2, int y2, double distance) {
+        if (squaredDistance(x1, y1, x2, y2) < distance * distance) {
+            return new Point(x2, y2);
+        }
+        double theta = Math.atan2(y2 - y1, x2 - x1);
+        return new Point((int)Math.floor(x1 + distance * Math.cos(theta)),
+                (int)Math.floor(y1 + distance * Math.sin(theta)));
+    }
+
 }
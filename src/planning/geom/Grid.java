@@ -1,19 +1,61 @@
 package planning.geom;
 
-import planning.agent.Node;
-
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+import java.util.stream.IntStream;
 
 /**
  * Represents a grid based world for an agent to path across.
+ * <div>Tiles are stored in flat arrays. Each row is padded to a whole number of 64 bit words so that rows
+ * never share a word. A one bit per tile occupancy layer answers the passable/blocked queries made by
+ * the search agents, and a two bit per tile state layer is only allocated once a tile is set to a state
+ * the occupancy layer cannot express (State.PROTECTED or State.PATH).</div>
  */
 public class Grid {
 
+    /*
+        Constants
+     */
+
+    public static final int MAX_NEIGHBORS = 8;                // The most neighbors a tile can have
+
+    private static final State[] STATES = State.values();   // Maps a packed state to its State
+    private static final int STATE_BITS = 2;                // The amount of bits per tile in the state layer
+    private static final long STATE_MASK = 3L;              // Masks a single tile in the state layer
+    private static final int MIN_BAND_ROWS = 64;            // The fewest rows a band of createObstacles() may hold
+    private static final int JOURNAL_CAPACITY = 256;        // The amount of changes the journal remembers
+
     /*
     Fields
      */
 
-    private State[][] mGrid;            // Stores map data
+    private int iWidth;                 // The width of the grid
+    private int iHeight;                // The height of the grid
+    private int iWordsPerRow;           // The amount of occupancy words per row
+    private int iStateWordsPerRow;      // The amount of state words per row
+    private long[] lOccupancy;          // One bit per tile, set when the tile is occupied
+    private int iWordsPerColumn;        // The amount of column occupancy words per column
+    private volatile long[] lColumns;   // The occupancy layer transposed to columns, null until a steep line needs it
+    private long[] lStates;             // Two bits per tile holding the State ordinal, null until needed
+    private volatile ComponentIndex mComponents;    // The connected components of unoccupied tiles, null until queried
+    private List<GridListener> mListeners;  // The listeners notified of occupancy changes, null until added
+    private long lVersion;              // The amount of occupancy changes made to the grid
+    private long[] lJournalVersions;    // The version produced by each change in the journal, null until a change
+    private int[] iJournalRegions;      // The bounds of each change in the journal as (minX, minY, maxX, maxY)
+    private int iJournalHead;           // The slot the next change is written to
+    private int iJournalSize;           // The amount of changes in the journal
+    private int iBatchDepth;            // The amount of open batches folding changes into one
+    private int iBatchMinX;             // The smallest x ordinal changed in the open batch
+    private int iBatchMinY;             // The smallest y ordinal changed in the open batch
+    private int iBatchMaxX;             // The largest x ordinal changed in the open batch, -1 if none
+    private int iBatchMaxY;             // The largest y ordinal changed in the open batch
+    private RandomGenerator mRandom;    // The generator behind random() and createObstacles(), null if unseeded
     private int iObstacleWidth;         // The obstacle width
     private int iObstacleHeight;        // The obstacle height
     private double dPercentObstacles;   // The percent of the map that is occupied
@@ -33,15 +75,19 @@ public class Grid {
      */
     public Grid(int width, int height, int obsWidth,
                 int obsHeight, double percentObs) {
-        mGrid = new State[height][width];
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("ERROR: Grid dimensions must be positive!");
+        }
+        iWidth = width;
+        iHeight = height;
+        iWordsPerRow = (width + Long.SIZE - 1) / Long.SIZE;
+        iStateWordsPerRow = (width * STATE_BITS + Long.SIZE - 1) / Long.SIZE;
+        lOccupancy = new long[Math.multiplyExact(iWordsPerRow, height)];
+        iWordsPerColumn = (height + Long.SIZE - 1) / Long.SIZE;
+        lStates = null;
         iObstacleWidth = obsWidth;
         iObstacleHeight = obsHeight;
         dPercentObstacles = percentObs;
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                mGrid[y][x] = State.EMPTY;
-            }
-        }
     }
 
     /*
@@ -53,7 +99,7 @@ public class Grid {
      * @return int: The width of the grid.
      */
     public int getGridWidth() {
-        return mGrid[0].length;
+        return iWidth;
     }
 
     /**
@@ -61,7 +107,43 @@ public class Grid {
      * @return int: The height of the grid.
      */
     public int getGridHeight() {
-        return mGrid.length;
+        return iHeight;
+    }
+
+    /**
+     * Gets the amount of tiles on the grid.
+     * @return int: The width of the grid multiplied by its height.
+     */
+    public int getCellCount() {
+        return getGridWidth() * getGridHeight();
+    }
+
+    /**
+     * Converts a coordinate to a cell index. Cells are numbered in row-major order (y * width + x).
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return int: The cell index of the tile.
+     */
+    public int getCellIndex(int x, int y) {
+        return y * getGridWidth() + x;
+    }
+
+    /**
+     * Gets the x ordinal of a cell index.
+     * @param cell int: The cell index.
+     * @return int: The x ordinal of the cell.
+     */
+    public int getCellX(int cell) {
+        return cell % getGridWidth();
+    }
+
+    /**
+     * Gets the y ordinal of a cell index.
+     * @param cell int: The cell index.
+     * @return int: The y ordinal of the cell.
+     */
+    public int getCellY(int cell) {
+        return cell / getGridWidth();
     }
 
     /**
@@ -100,6 +182,59 @@ public class Grid {
         }
     }
 
+    /**
+     * Gets the generator used by random() and createObstacles().
+     * @return RandomGenerator: The generator in use, or null if the grid draws from ThreadLocalRandom.
+     */
+    public RandomGenerator getRandom() {
+        return mRandom;
+    }
+
+    /**
+     * Sets the generator used by random() and createObstacles(). Seeding it makes obstacle layouts repeatable,
+     * and a splittable generator (such as SplittableRandom or L64X128MixRandom) is split directly across the
+     * bands of createObstacles(). Generators are generally not thread safe, so agents sampling concurrently
+     * should pass their own to random(RandomGenerator).
+     * @param random RandomGenerator: The generator to use, or null to draw from ThreadLocalRandom.
+     */
+    public void setRandom(RandomGenerator random) {
+        mRandom = random;
+    }
+
+    /**
+     * Gets the version of the grid. It starts at zero (0) and increases by one (1) with every change to the
+     * occupancy of the grid, so anything computed from the grid stays valid for as long as the version does.
+     * Setting a tile to a state with the same occupancy, such as State.PATH on an empty tile, keeps the version.
+     * @return long: The version of the grid.
+     */
+    public long getVersion() {
+        return lVersion;
+    }
+
+    /**
+     * Gets the regions changed since a version, oldest first. The journal only remembers the most recent
+     * changes, so a consumer that falls too far behind has to assume the whole grid changed.
+     * @param version long: The version the consumer is up to date with. Cannot exceed the current version.
+     * @return List: The region of every change made after the version, or null if the journal no longer
+     * reaches back that far.
+     */
+    public List<Region> getChangesSince(long version) {
+        if (version > lVersion || version < 0) {
+            throw new IllegalArgumentException("ERROR: Version is not a version of the grid!");
+        }
+        long changes = lVersion - version;
+        if (changes > iJournalSize) {
+            return null;
+        }
+        List<Region> regions = new ArrayList<>((int)changes);
+        for (int i = (int)changes; i > 0; i--) {
+            int slot = Math.floorMod(iJournalHead - i, JOURNAL_CAPACITY);
+            regions.add(new Region(iJournalRegions[4 * slot], iJournalRegions[4 * slot + 1],
+                    iJournalRegions[4 * slot + 2], iJournalRegions[4 * slot + 3], lJournalVersions[slot]));
+        }
+        return regions;
+    }
+
     /**
      * Gets the percent of all tiles of the grid that are occupied by obstacles.
      * @return double: The percent of tiles on the grid occupied by obstacles.
@@ -122,35 +257,195 @@ public class Grid {
         Methods
      */
 
+    /**
+     * Registers a listener to be notified whenever tiles change between occupied and unoccupied.
+     * @param listener GridListener: The listener to add, cannot be null.
+     */
+    public void addListener(GridListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("ERROR: Listener cannot be null!");
+        }
+        if (mListeners == null) {
+            mListeners = new ArrayList<>();
+        }
+        mListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener. Does nothing if the listener was never added.
+     * @param listener GridListener: The listener to remove.
+     */
+    public void removeListener(GridListener listener) {
+        if (mListeners != null) {
+            mListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Records that the occupancy of tiles inside a rectangle has changed. Inside a batch the rectangle is folded
+     * into the batch, otherwise it becomes a new version right away.
+     */
+    private void changed(int minX, int minY, int maxX, int maxY) {
+        if (iBatchDepth == 0) {
+            commitChange(minX, minY, maxX, maxY);
+        } else if (iBatchMaxX < 0) {
+            iBatchMinX = minX;
+            iBatchMinY = minY;
+            iBatchMaxX = maxX;
+            iBatchMaxY = maxY;
+        } else {
+            iBatchMinX = Math.min(iBatchMinX, minX);
+            iBatchMinY = Math.min(iBatchMinY, minY);
+            iBatchMaxX = Math.max(iBatchMaxX, maxX);
+            iBatchMaxY = Math.max(iBatchMaxY, maxY);
+        }
+    }
+
+    /**
+     * Opens a batch, so that the changes made by a compound edit produce a single version and notification.
+     */
+    private void beginBatch() {
+        if (iBatchDepth == 0) {
+            iBatchMaxX = -1;
+        }
+        iBatchDepth += 1;
+    }
+
+    /**
+     * Closes a batch, committing the bounds of its changes if it was the outermost one and changed anything.
+     */
+    private void endBatch() {
+        iBatchDepth -= 1;
+        if (iBatchDepth == 0 && iBatchMaxX >= 0) {
+            commitChange(iBatchMinX, iBatchMinY, iBatchMaxX, iBatchMaxY);
+        }
+    }
+
+    /**
+     * Advances the version, journals the change and notifies the listeners, which see the new version.
+     */
+    private void commitChange(int minX, int minY, int maxX, int maxY) {
+        lVersion += 1;
+        if (lJournalVersions == null) {
+            lJournalVersions = new long[JOURNAL_CAPACITY];
+            iJournalRegions = new int[4 * JOURNAL_CAPACITY];
+        }
+        int slot = iJournalHead;
+        lJournalVersions[slot] = lVersion;
+        iJournalRegions[4 * slot] = minX;
+        iJournalRegions[4 * slot + 1] = minY;
+        iJournalRegions[4 * slot + 2] = maxX;
+        iJournalRegions[4 * slot + 3] = maxY;
+        iJournalHead = (slot + 1) % JOURNAL_CAPACITY;
+        iJournalSize = Math.min(iJournalSize + 1, JOURNAL_CAPACITY);
+        if (mListeners == null) {
+            return;
+        }
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).cellsChanged(minX, minY, maxX, maxY);
+        }
+    }
+
     /**
      * Sets all tiles on the grid to the State.EMPTY state.
      */
     public void clear() {
-        for (int y = 0; y < mGrid.length; y++) {
-            for (int x = 0; x < mGrid[0].length; x++) {
-                setState(x, y, State.EMPTY);
-            }
+        Arrays.fill(lOccupancy, 0L);
+        lColumns = null;
+        lStates = null;
+        if (mComponents != null) {
+            mComponents.markStale();
         }
+        changed(0, 0, iWidth - 1, iHeight - 1);
     }
 
     /**
      * Creates obstacles on the map based on the max width and height as well as percent.
+     * <div>The grid is split into bands of rows at least as tall as an obstacle, and each band places the
+     * obstacles anchored in it from its own generator, split from the generator of the grid in band order. An
+     * obstacle can only spill into the band below its own, so the even bands are filled in parallel and then the
+     * odd ones, and no two bands ever write the same row at once. Bands are sized from the grid alone, so the layout
+     * only depends on the generator and never on how many threads fill it.</div>
      */
     public void createObstacles() {
-        for (int obs = 0; obs < (int)(dPercentObstacles * getGridWidth() * getGridHeight()); obs++) {
-            int x = (int)(Math.random()*getGridWidth());
-            int y = (int)(Math.random()*getGridHeight());
-            for (int dy = 0; dy < (int)(Math.random()*getObstacleHeight()); dy++) {
-                for (int dx = 0; dx < (int)(Math.random()*getObstacleWidth()); dx++) {
-                    if (isInBounds(x + dx, y + dy) &&
-                            getState(x + dx, y + dy) != State.PROTECTED) {
-                        setState(x + dx, y + dy, State.OCCUPIED);
+        int obstacles = (int)(dPercentObstacles * getGridWidth() * getGridHeight());
+        int bands = Math.max(1, iHeight / Math.max(MIN_BAND_ROWS, iObstacleHeight));
+        int rowsPerBand = (iHeight + bands - 1) / bands;
+        SplittableGenerator root = getSplittableRandom();
+        RandomGenerator[] randoms = new RandomGenerator[bands];
+        for (int band = 0; band < bands; band++) {
+            randoms[band] = root.split();
+        }
+        for (int parity = 0; parity < 2; parity++) {
+            int first = parity;
+            IntStream.range(0, (bands - first + 1) / 2).parallel().forEach(i -> {
+                int band = first + 2 * i;
+                int top = Math.min(iHeight, band * rowsPerBand);
+                int bottom = Math.min(iHeight, top + rowsPerBand);
+                // Bands share out the obstacles in proportion to their rows, earlier bands taking the remainder
+                long before = (long)obstacles * top / iHeight;
+                long after = (long)obstacles * bottom / iHeight;
+                placeObstacles(randoms[band], top, bottom, (int)(after - before));
+            });
+        }
+        lColumns = null;
+        if (mComponents != null) {
+            mComponents.markStale();
+        }
+        changed(0, 0, iWidth - 1, iHeight - 1);
+    }
+
+    /**
+     * Places obstacles anchored in the rows [top, bottom). Tiles are occupied without notifying the component index
+     * or the listeners, so that bands can be filled concurrently.
+     * @param random RandomGenerator: The generator of the band.
+     * @param top int: The first row of the band.
+     * @param bottom int: The row after the last row of the band.
+     * @param obstacles int: The amount of obstacles to place.
+     */
+    private void placeObstacles(RandomGenerator random, int top, int bottom, int obstacles) {
+        for (int obs = 0; obs < obstacles; obs++) {
+            int x = random.nextInt(iWidth);
+            int y = random.nextInt(top, bottom);
+            int height = iObstacleHeight > 0 ? random.nextInt(iObstacleHeight) : 0;
+            int width = iObstacleWidth > 0 ? random.nextInt(iObstacleWidth) : 0;
+            for (int dy = 0; dy < height && y + dy < iHeight; dy++) {
+                for (int dx = 0; dx < width && x + dx < iWidth; dx++) {
+                    if (getState(x + dx, y + dy) != State.PROTECTED) {
+                        occupy(x + dx, y + dy);
                     }
                 }
             }
         }
     }
 
+    /**
+     * Marks a tile as occupied in both layers without any notification.
+     * @param x int: The x ordinal of the tile, must be in bounds.
+     * @param y int: The y ordinal of the tile, must be in bounds.
+     */
+    private void occupy(int x, int y) {
+        lOccupancy[y * iWordsPerRow + (x >>> 6)] |= 1L << x;
+        if (lStates != null) {
+            int stateWord = y * iStateWordsPerRow + x * STATE_BITS / Long.SIZE;
+            int shift = x * STATE_BITS;
+            lStates[stateWord] = (lStates[stateWord] & ~(STATE_MASK << shift)) |
+                    ((long)State.OCCUPIED.ordinal() << shift);
+        }
+    }
+
+    /**
+     * Gets a generator that can be split across threads, derived from the generator of the grid.
+     * @return SplittableGenerator: The generator of the grid if it is splittable, otherwise one seeded from it.
+     */
+    private SplittableGenerator getSplittableRandom() {
+        if (mRandom instanceof SplittableGenerator) {
+            return (SplittableGenerator)mRandom;
+        }
+        RandomGenerator random = mRandom != null ? mRandom : ThreadLocalRandom.current();
+        return new SplittableRandom(random.nextLong());
+    }
+
     /**
      * Generates a list of neighbors to a given point.
      * @param x int: The x ordinal of the point to generate neighbors from.
@@ -173,6 +468,37 @@ public class Grid {
         return neighbors;
     }
 
+    /**
+     * Writes the cell indices of the unoccupied neighbors of a cell into a caller supplied buffer.
+     * Neighbors are reported in the same order as generateNeighbors and nothing is allocated.
+     * @param cell int: The cell index to generate neighbors from.
+     * @param neighbors int[]: The buffer to write to. Must hold at least MAX_NEIGHBORS entries.
+     * @return int: The amount of neighbors written to the buffer.
+     */
+    public int getNeighbors(int cell, int[] neighbors) {
+        int x = cell % iWidth;
+        int y = cell / iWidth;
+        int count = 0;
+        for (int dy = -1; dy < 2; dy++) {
+            int ny = y + dy;
+            if (ny < 0 || ny >= iHeight) {
+                continue;
+            }
+            int row = ny * iWordsPerRow;
+            for (int dx = -1; dx < 2; dx++) {
+                int nx = x + dx;
+                if ((dx == 0 && dy == 0) || nx < 0 || nx >= iWidth) {
+                    continue;
+                }
+                if ((lOccupancy[row + (nx >>> 6)] & (1L << nx)) == 0) {
+                    neighbors[count] = cell + dy * iWidth + dx;
+                    count += 1;
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Gets the state of a tile on the grid.
      * @param x int: The x ordinal of the tile.
@@ -181,7 +507,11 @@ public class Grid {
      */
     public State getState(int x, int y) {
         if (isInBounds(x, y)) {
-            return mGrid[y][x];
+            if (lStates == null) {
+                return isOccupied(x, y) ? State.OCCUPIED : State.EMPTY;
+            }
+            long word = lStates[y * iStateWordsPerRow + x * STATE_BITS / Long.SIZE];
+            return STATES[(int)((word >>> (x * STATE_BITS)) & STATE_MASK)];
         }
         throw new IndexOutOfBoundsException("ERROR: Coordinates fall outside bounds of grid!");
     }
@@ -213,17 +543,65 @@ public class Grid {
      * @return boolean: Whether the specified coordinates are in bounds.
      */
     private boolean isInBounds(int x, int y) {
-        return x >= 0 && x < mGrid[0].length && y >= 0 && y < mGrid.length;
+        return x >= 0 && x < iWidth && y >= 0 && y < iHeight;
     }
 
     /**
      * Determines if a tile at the specified coordinates is occupied by an obstacle or not.
+     * Tiles outside the bounds of the grid are treated as occupied.
      * @param x int: The x ordinal of the tile to check.
      * @param y int: The y ordinal of the tile to check.
      * @return boolean: Whether the tile is occupied or not.
      */
     private boolean isOccupied(int x, int y) {
-        return getState(x, y) == State.OCCUPIED;
+        return !isInBounds(x, y) || isOccupiedBit(x, y);
+    }
+
+    /**
+     * Gets the occupancy of 64 consecutive tiles of a row in a single word. Bit i of the result is set if the
+     * tile (x + i, y) is occupied or lies outside the bounds of the grid.
+     * @param x int: The x ordinal of the first tile, may be out of bounds.
+     * @param y int: The y ordinal of the row, may be out of bounds.
+     * @return long: The occupancy bits of the tiles [x, x + 63] on row y.
+     */
+    public long getOccupancyBits(int x, int y) {
+        if (y < 0 || y >= iHeight) {
+            return -1L;
+        }
+        int word = x >> 6;
+        int offset = x & 63;
+        long low = getOccupancyWord(y, word);
+        if (offset == 0) {
+            return low;
+        }
+        return (low >>> offset) | (getOccupancyWord(y, word + 1) << (Long.SIZE - offset));
+    }
+
+    /**
+     * Gets a word of the occupancy layer of a row. Words and bits past the edges of the grid read as occupied.
+     * @param y int: The y ordinal of the row, must be in bounds.
+     * @param word int: The index of the word within the row.
+     * @return long: The occupancy word.
+     */
+    private long getOccupancyWord(int y, int word) {
+        if (word < 0 || word >= iWordsPerRow) {
+            return -1L;
+        }
+        long bits = lOccupancy[y * iWordsPerRow + word];
+        if (word == iWordsPerRow - 1 && (iWidth & 63) != 0) {
+            bits |= -1L << iWidth;
+        }
+        return bits;
+    }
+
+    /**
+     * Reads the occupancy bit of an in bounds tile.
+     * @param x int: The x ordinal of the tile, must be in bounds.
+     * @param y int: The y ordinal of the tile, must be in bounds.
+     * @return boolean: Whether the tile is occupied or not.
+     */
+    private boolean isOccupiedBit(int x, int y) {
+        return (lOccupancy[y * iWordsPerRow + (x >>> 6)] & (1L << x)) != 0;
     }
 
     /**
@@ -233,7 +611,88 @@ public class Grid {
      * @return boolean: Whether the coordinate is in bounds and not occupied.
      */
     public boolean isValidCoordinates(int x, int y) {
-        return isInBounds(x, y) && !isOccupied(x, y);
+        return isInBounds(x, y) && !isOccupiedBit(x, y);
+    }
+
+    /**
+     * Gets the connected component of a tile. Two unoccupied tiles are in the same component if and only if a path
+     * of 8-connected unoccupied tiles joins them.
+     * <div>The components are labeled the first time they are queried, which takes time linear in the size of the
+     * grid and four bytes of memory per tile, a gigabyte for a grid of 16384 by 16384 tiles. Afterwards, freeing a
+     * tile updates them in place, and so does occupying one unless it might split its component, in which case they
+     * are relabeled on the next query. Queries never lock the grid unless they relabel it.</div>
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return int: An identifier of the component, or -1 if the tile is out of bounds or occupied.
+     */
+    public int getComponent(int x, int y) {
+        if (!isValidCoordinates(x, y)) {
+            return -1;
+        }
+        return getComponentIndex().find(getCellIndex(x, y));
+    }
+
+    /**
+     * Determines if a path can exist between two coordinates, without searching for it.
+     * @param x1 int: The x ordinal of the first tile.
+     * @param y1 int: The y ordinal of the first tile.
+     * @param x2 int: The x ordinal of the second tile.
+     * @param y2 int: The y ordinal of the second tile.
+     * @return boolean: Whether both tiles are unoccupied and in the same connected component.
+     */
+    public boolean isConnected(int x1, int y1, int x2, int y2) {
+        int component = getComponent(x1, y1);
+        return component != -1 && component == getComponent(x2, y2);
+    }
+
+    /**
+     * Determines cheaply if a path may exist between two coordinates. Unlike isConnected, the components are never
+     * labeled or relabeled here, so the answer only uses them once getComponent or isConnected has labeled them and
+     * only while no tile that may have split a component has been occupied since.
+     * @param x1 int: The x ordinal of the first tile.
+     * @param y1 int: The y ordinal of the first tile.
+     * @param x2 int: The x ordinal of the second tile.
+     * @param y2 int: The y ordinal of the second tile.
+     * @return boolean: False if either tile is out of bounds or occupied, or the tiles are known to be in different
+     * components, otherwise true.
+     */
+    public boolean mayBeConnected(int x1, int y1, int x2, int y2) {
+        if (!isValidCoordinates(x1, y1) || !isValidCoordinates(x2, y2)) {
+            return false;
+        }
+        ComponentIndex index = mComponents;
+        if (index == null || index.isStale()) {
+            return true;
+        }
+        return index.find(getCellIndex(x1, y1)) == index.find(getCellIndex(x2, y2));
+    }
+
+    /**
+     * Gets the component index, labeling the grid if it has not been labeled or has gone stale. An up to date
+     * index is returned without locking.
+     * @return ComponentIndex: An up to date component index.
+     */
+    private ComponentIndex getComponentIndex() {
+        ComponentIndex index = mComponents;
+        if (index != null && !index.isStale()) {
+            return index;
+        }
+        return labelComponents();
+    }
+
+    /**
+     * Labels or relabels the components under the lock of the grid, unless another thread already has.
+     * @return ComponentIndex: An up to date component index.
+     */
+    private synchronized ComponentIndex labelComponents() {
+        ComponentIndex index = mComponents;
+        if (index == null) {
+            index = new ComponentIndex(this);
+            mComponents = index;
+        } else if (index.isStale()) {
+            index.rebuild();
+        }
+        return index;
     }
 
     /**
@@ -246,74 +705,171 @@ public class Grid {
      * <div>This algorithm comes from Theta*: "Any-Angle Path Planning on Grids" by Daniel et al.
      * published in the Journal of Artificial Intelligence Resaech 39 (2010) pg. 533-579 and
      * retrieved from https(colon)//arxiv(dot)org/pdf/1401(dot)3843(dot)pdf<div/>
+     * <div>Rather than stepping tile by tile, the line is split into the runs of tiles it crosses along each row,
+     * or along each column for lines steeper than 45 degrees, and every run is tested 64 tiles at a time against
+     * the occupancy bits. The first steep line transposes the occupancy layer into columns, which is then kept up
+     * to date by setState.</div>
      */
     public boolean lineOfSight(int x1, int y1, int x2, int y2) {
         if (!isInBounds(x1, y1) || !isInBounds(x2, y2)) {
             return false;
         }
-        int sx = 0;
-        int sy = 0;
-        int dy = y2 - y1;
-        int dx = x2 - x1;
-        int f = 0;
-        if (dy < 0) {
-            dx = -dx;
-            sy = -1;
-        } else {
-            sy = 1;
+        if (Math.abs(x2 - x1) >= Math.abs(y2 - y1)) {
+            return sweep(lOccupancy, iWordsPerRow, x1, y1, x2, y2);
         }
-        if (dx < 0) {
-            dx = -dx;
-            sx = -1;
-        } else {
-            sx = 1;
-        }
-        if (dx >= dy) {
-            while (x1 != x2) {
-                f += dy;
-                if (f >= dx) {
-                    if (isOccupied(x1 + ((sx - 1)/2), y1 + ((sy - 1)/2))) {
-                        return false;
-                    }
-                    y1 += sy;
-                    f -= dx;
-                }
-                if (f != 0 &&
-                        isOccupied(x1 + ((sx - 1)/2), y1 + ((sy - 1)/2))) {
-                    return false;
-                }
-                if (dy == 0 &&
-                        isOccupied(x1 + ((sx-1)/2), y1) &&
-                        isOccupied(x1 + ((sx-1)/2), y1 - 1)) {
-                    return false;
-                }
-                x1 += sx;
+        long[] columns = lColumns;
+        if (columns == null) {
+            columns = getColumns();
+        }
+        return sweep(columns, iWordsPerColumn, y1, x1, y2, x2);
+    }
+
+    /**
+     * Determines if there is line of sight between pairs of cells, checking all of them against the same layers.
+     * @param from int[]: The cell index of the origin of each pair.
+     * @param to int[]: The cell index of the destination of each pair. Must be as long as from.
+     * @param out boolean[]: Receives whether each pair has line of sight. Must be at least as long as from.
+     */
+    public void lineOfSight(int[] from, int[] to, boolean[] out) {
+        if (from == null || to == null || out == null) {
+            throw new IllegalArgumentException("ERROR: Cell arrays cannot be null!");
+        }
+        if (to.length != from.length || out.length < from.length) {
+            throw new IllegalArgumentException("ERROR: Cell arrays must be as long as each other!");
+        }
+        int cells = getCellCount();
+        long[] columns = lColumns;
+        for (int i = 0; i < from.length; i++) {
+            int origin = from[i];
+            int destination = to[i];
+            // A single unsigned comparison bounds a cell index from both sides
+            if (Integer.compareUnsigned(origin, cells) >= 0 || Integer.compareUnsigned(destination, cells) >= 0) {
+                out[i] = false;
+                continue;
             }
-        } else {
-            while (y1 != y2) {
-                f += dx;
-                if (f >= dy) {
-                    if (isOccupied(x1 + ((sx - 1)/2), y1 + ((sy - 1)/2))) {
-                        return false;
-                    }
-                    x1 += sx;
-                    f -= dy;
+            int x1 = origin % iWidth;
+            int y1 = origin / iWidth;
+            int x2 = destination % iWidth;
+            int y2 = destination / iWidth;
+            if (Math.abs(x2 - x1) >= Math.abs(y2 - y1)) {
+                out[i] = sweep(lOccupancy, iWordsPerRow, x1, y1, x2, y2);
+            } else {
+                if (columns == null) {
+                    columns = getColumns();
                 }
-                if (f != 0 &&
-                        isOccupied(x1 + ((sx - 1)/2), y1 + ((sy - 1)/2))) {
-                    return false;
-                }
-                if (dx == 0 &&
-                        isOccupied(x1, y1 + ((sy-1)/2)) &&
-                        isOccupied(x1 - 1, y1 + ((sy-1)/2))) {
-                    return false;
-                }
-                y1 += sy;
+                out[i] = sweep(columns, iWordsPerColumn, y1, x1, y2, x2);
+            }
+        }
+    }
+
+    /**
+     * Traces a line no steeper than 45 degrees across a bit layer, in which each line of the layer holds one bit
+     * per tile along the major axis. Both ends must be in bounds.
+     * @param layer long[]: The occupancy bits, either by row or by column.
+     * @param words int: The amount of words per line of the layer.
+     * @param a1 int: The major ordinal of the origin.
+     * @param b1 int: The minor ordinal of the origin, which picks the line of the layer.
+     * @param a2 int: The major ordinal of the destination.
+     * @param b2 int: The minor ordinal of the destination.
+     * @return boolean: Whether the line is unobstructed.
+     */
+    private static boolean sweep(long[] layer, int words, int a1, int b1, int a2, int b2) {
+        int da = Math.abs(a2 - a1);
+        int db = Math.abs(b2 - b1);
+        int sa = a2 < a1 ? -1 : 1;
+        int sb = b2 < b1 ? -1 : 1;
+        if (da == 0) {
+            return true;
+        }
+        if (db == 0) {
+            // A line along the edge between two lines is only blocked where both are occupied
+            int low = Math.min(a1, a2);
+            int high = Math.max(a1, a2) - 1;
+            return isRunFree(layer, words, b1, b1 - 1, low, high);
+        }
+        // Tiles are crossed through their corners, so a line heading backwards tests the tiles behind it
+        int line = b1 + (sb - 1) / 2;
+        int tile = a1 + (sa - 1) / 2;
+        int runStart = tile;
+        int remaining = da;
+        int f = 0;
+        while (true) {
+            // The amount of tiles until the line crosses into the next line of the layer, the last always crossing
+            int steps = (da - f + db - 1) / db;
+            int crossing = tile + sa * (steps - 1);
+            if (!isRunFree(layer, words, line, -1, Math.min(runStart, crossing), Math.max(runStart, crossing))) {
+                return false;
+            }
+            remaining -= steps;
+            if (remaining <= 0) {
+                return true;
+            }
+            f += steps * db - da;
+            line += sb;
+            tile = crossing + sa;
+            // Unless the line passes exactly through a corner, the crossing tile is also entered on the next line
+            runStart = f != 0 ? crossing : tile;
+        }
+    }
+
+    /**
+     * Tests a run of tiles along a line of a bit layer, 64 at a time.
+     * @param layer long[]: The occupancy bits, either by row or by column.
+     * @param words int: The amount of words per line of the layer.
+     * @param line int: The line of the run, must be in bounds.
+     * @param other int: A second line that must also be occupied for a tile to block, -1 to treat it as occupied.
+     * @param low int: The first tile of the run, must be in bounds.
+     * @param high int: The last tile of the run, must be in bounds.
+     * @return boolean: Whether no tile of the run is blocked.
+     */
+    private static boolean isRunFree(long[] layer, int words, int line, int other, int low, int high) {
+        int base = line * words;
+        int otherBase = other * words;
+        int first = low >>> 6;
+        int last = high >>> 6;
+        for (int word = first; word <= last; word++) {
+            long bits = layer[base + word];
+            if (other >= 0) {
+                bits &= layer[otherBase + word];
+            }
+            if (word == first) {
+                bits &= -1L << low;
+            }
+            if (word == last) {
+                bits &= -1L >>> (63 - (high & 63));
+            }
+            if (bits != 0) {
+                return false;
             }
         }
         return true;
     }
 
+    /**
+     * Gets the occupancy layer transposed to columns, building it from the rows if it is not up to date.
+     * @return long[]: One bit per tile, where bit y of the column words of x is set if (x, y) is occupied.
+     */
+    private synchronized long[] getColumns() {
+        long[] columns = lColumns;
+        if (columns != null) {
+            return columns;
+        }
+        columns = new long[Math.multiplyExact(iWordsPerColumn, iWidth)];
+        for (int y = 0; y < iHeight; y++) {
+            int row = y * iWordsPerRow;
+            for (int word = 0; word < iWordsPerRow; word++) {
+                long bits = lOccupancy[row + word];
+                while (bits != 0) {
+                    int x = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    columns[x * iWordsPerColumn + (y >>> 6)] |= 1L << y;
+                    bits &= bits - 1;
+                }
+            }
+        }
+        lColumns = columns;
+        return columns;
+    }
+
     /**
      * Determines if there is line of sight between two points on the grid.
      * @param p1 Point: The origin point.
@@ -325,7 +881,7 @@ public class Grid {
     }
 
     /**
-     *
+     * Occupies a rectangle of tiles. The whole obstacle is a single change to the grid.
      * @param x int: The x ordinal of the anchor for the obstacle.
      * @param y int: The y ordinal of the anchor for the obstacle.
      * @param width int: The width of the obstacle.
@@ -333,11 +889,13 @@ public class Grid {
      */
     public void placeObstacle(int x, int y, int width, int height) {
         if (isInBounds(x, y) && isInBounds(x + width, y + height)) {
+            beginBatch();
             for (int dy = 0; dy < height; dy++) {
                 for (int dx = 0; dx < width; dx++) {
                     setState(x + dx, y + dy, State.OCCUPIED);
                 }
             }
+            endBatch();
         }
     }
 
@@ -348,6 +906,7 @@ public class Grid {
      */
     public void protect(int x, int y) {
         if (isInBounds(x, y)) {
+            beginBatch();
             for (int dy = -1; dy < 2; dy++) {
                 for (int dx = -1; dx < 2; dx++) {
                     if (isInBounds(x + dx, y + dy)) {
@@ -355,6 +914,7 @@ public class Grid {
                     }
                 }
             }
+            endBatch();
         }
     }
 
@@ -363,8 +923,17 @@ public class Grid {
      * @return Point: A random point on the grid.
      */
     public Point random() {
-        return new Point((int)Math.floor(Math.random()*getGridWidth()),
-                (int)Math.floor(Math.random()*getGridHeight()));
+        return random(mRandom != null ? mRandom : ThreadLocalRandom.current());
+    }
+
+    /**
+     * Generates a random point on the grid from the given generator. Threads that each own a generator never
+     * contend with each other.
+     * @param random RandomGenerator: The generator to draw the point from.
+     * @return Point: A random point on the grid.
+     */
+    public Point random(RandomGenerator random) {
+        return new Point(random.nextInt(getGridWidth()), random.nextInt(getGridHeight()));
     }
 
     /**
@@ -374,10 +943,59 @@ public class Grid {
      * @param state State: A state to update the tile to.
      */
     public void setState(int x, int y, State state) {
-        if (isInBounds(x, y)) {
-            mGrid[y][x] = state;
+        if (!isInBounds(x, y)) {
+            throw new IndexOutOfBoundsException("ERROR: Coordinates fall outside bounds of grid!");
+        }
+        int word = y * iWordsPerRow + (x >>> 6);
+        boolean wasOccupied = (lOccupancy[word] & (1L << x)) != 0;
+        long[] columns = lColumns;
+        int columnWord = x * iWordsPerColumn + (y >>> 6);
+        if (state == State.OCCUPIED) {
+            lOccupancy[word] |= 1L << x;
+            if (columns != null) {
+                columns[columnWord] |= 1L << y;
+            }
+        } else {
+            lOccupancy[word] &= ~(1L << x);
+            if (columns != null) {
+                columns[columnWord] &= ~(1L << y);
+            }
+        }
+        if (wasOccupied != (state == State.OCCUPIED)) {
+            if (mComponents != null) {
+                if (wasOccupied) {
+                    mComponents.cellOpened(x, y);
+                } else {
+                    mComponents.cellClosed(x, y);
+                }
+            }
+            changed(x, y, x, y);
+        }
+        if (lStates == null && (state == State.PROTECTED || state == State.PATH)) {
+            allocateStates();
+        }
+        if (lStates != null) {
+            int stateWord = y * iStateWordsPerRow + x * STATE_BITS / Long.SIZE;
+            int shift = x * STATE_BITS;
+            lStates[stateWord] = (lStates[stateWord] & ~(STATE_MASK << shift)) |
+                    ((long)state.ordinal() << shift);
+        }
+    }
+
+    /**
+     * Allocates the state layer and seeds it from the occupancy layer.
+     */
+    private void allocateStates() {
+        lStates = new long[Math.multiplyExact(iStateWordsPerRow, iHeight)];
+        for (int y = 0; y < iHeight; y++) {
+            for (int x = 0; x < iWidth; x++) {
+                if (isOccupiedBit(x, y)) {
+                    int shift = x * STATE_BITS;
+                    lStates[y * iStateWordsPerRow + x * STATE_BITS / Long.SIZE] |=
+                            (long)State.OCCUPIED.ordinal() << shift;
+                }
+            }
         }
-        throw new IndexOutOfBoundsException("ERROR: Coordinates fall outside bounds of grid!");
     }
 
     /**
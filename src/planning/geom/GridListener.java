@@ -0,0 +1,21 @@
+package planning.geom;
+
+/**
+ * Receives notifications when tiles of a grid change between occupied and unoccupied.
+ * <div>Listeners are called on the thread that modified the grid, while the modification is in progress, so they
+ * should only record what changed and defer any expensive work. The grid has already moved to the version the
+ * change produced, and compound edits such as Grid.placeObstacle arrive as one call covering the whole edit.
+ * Consumers that would rather poll can read Grid.getChangesSince instead.</div>
+ */
+public interface GridListener {
+
+    /**
+     * Called after the occupancy of one or more tiles inside a rectangle of the grid has changed.
+     * @param minX int: The smallest x ordinal of the changed region.
+     * @param minY int: The smallest y ordinal of the changed region.
+     * @param maxX int: The largest x ordinal of the changed region.
+     * @param maxY int: The largest y ordinal of the changed region.
+     */
+    void cellsChanged(int minX, int minY, int maxX, int maxY);
+
+}
@@ -0,0 +1,405 @@
+package planning.geom;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Represents an immutable path of tiles, ordered from the start to the goal.
+ * <div>Each tile is packed into a single long holding its x ordinal in the high half and its y ordinal in the
+ * low half, so a path costs eight bytes per tile and reads any tile in constant time. Reversed paths and sub-paths
+ * are views sharing the array of the path they came from, and asList presents the tiles as points created only
+ * when they are read.</div>
+ */
+public final class Path implements Iterable<Point> {
+
+    /*
+        Constants
+     */
+
+    private static final long Y_MASK = 0xFFFFFFFFL;     // Masks the y ordinal out of a packed tile
+
+    /*
+        Fields
+     */
+
+    private final long[] lTiles;    // The packed tiles, shared between views
+    private final int iOffset;      // The slot of the first tile of the path in the array
+    private final int iLength;      // The amount of tiles in the path
+    private final boolean bReversed;    // Whether the path reads the array from its last slot backwards
+
+    /*
+        Constructors
+     */
+
+    private Path(long[] tiles, int offset, int length, boolean reversed) {
+        lTiles = tiles;
+        iOffset = offset;
+        iLength = length;
+        bReversed = reversed;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the amount of tiles in the path.
+     * @return int: The length of the path, counting both ends.
+     */
+    public int size() {
+        return iLength;
+    }
+
+    /**
+     * Determines if the path holds no tiles.
+     * @return boolean: Whether the path is empty.
+     */
+    public boolean isEmpty() {
+        return iLength == 0;
+    }
+
+    /**
+     * Gets the x ordinal of a tile.
+     * @param index int: The position of the tile, counting from zero (0) at the start.
+     * @return int: The x ordinal of the tile.
+     */
+    public int getX(int index) {
+        return (int)(packed(index) >> 32);
+    }
+
+    /**
+     * Gets the y ordinal of a tile.
+     * @param index int: The position of the tile, counting from zero (0) at the start.
+     * @return int: The y ordinal of the tile.
+     */
+    public int getY(int index) {
+        return (int)packed(index);
+    }
+
+    /**
+     * Gets a tile as a point.
+     * @param index int: The position of the tile, counting from zero (0) at the start.
+     * @return Point: A new point at the tile.
+     */
+    public Point get(int index) {
+        long tile = packed(index);
+        return new Point((int)(tile >> 32), (int)tile);
+    }
+
+    /**
+     * Gets the first tile of the path.
+     * @return Point: The start of the path.
+     */
+    public Point getStart() {
+        return get(0);
+    }
+
+    /**
+     * Gets the last tile of the path.
+     * @return Point: The goal of the path.
+     */
+    public Point getGoal() {
+        return get(iLength - 1);
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Creates a path through the given points.
+     * @param points Point: The tiles of the path, in order.
+     * @return Path: The path.
+     */
+    public static Path of(Point... points) {
+        long[] tiles = new long[points.length];
+        for (int i = 0; i < points.length; i++) {
+            tiles[i] = pack(points[i].getX(), points[i].getY());
+        }
+        return new Path(tiles, 0, tiles.length, false);
+    }
+
+    /**
+     * Creates a path through the given points.
+     * @param points Iterable: The tiles of the path, in order.
+     * @return Path: The path.
+     */
+    public static Path of(Iterable<Point> points) {
+        Builder builder = new Builder();
+        for (Point point : points) {
+            builder.add(point.getX(), point.getY());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Packs a tile into a long.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return long: The packed tile.
+     */
+    public static long pack(int x, int y) {
+        return ((long)x << 32) | (y & Y_MASK);
+    }
+
+    /**
+     * Presents the path as a list of points, created as they are read. The list cannot be modified.
+     * @return List: A random access view of the tiles, from the start to the goal.
+     */
+    public List<Point> asList() {
+        return new PointList();
+    }
+
+    /**
+     * Creates a view of the path from the goal back to the start, without copying it.
+     * @return Path: The reversed path.
+     */
+    public Path reverse() {
+        return new Path(lTiles, iOffset, iLength, !bReversed);
+    }
+
+    /**
+     * Creates a view of part of the path, without copying it.
+     * @param from int: The position of the first tile of the view, inclusive.
+     * @param to int: The position after the last tile of the view, exclusive.
+     * @return Path: The sub-path.
+     */
+    public Path subPath(int from, int to) {
+        if (from < 0 || to > iLength || from > to) {
+            throw new IndexOutOfBoundsException("ERROR: Sub-path bounds are out of range!");
+        }
+        int offset = bReversed ? iOffset + iLength - to : iOffset + from;
+        return new Path(lTiles, offset, to - from, bReversed);
+    }
+
+    /**
+     * Finds the first position of a tile on the path.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return int: The position of the tile, or -1 if the path does not pass through it.
+     */
+    public int indexOf(int x, int y) {
+        long tile = pack(x, y);
+        for (int i = 0; i < iLength; i++) {
+            if (packed(i) == tile) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Measures the length of the path, summing the straight line distance between consecutive tiles. For paths of
+     * neighboring tiles this is the cost of the path.
+     * @return double: The length of the path.
+     */
+    public double length() {
+        double length = 0;
+        for (int i = 1; i < iLength; i++) {
+            length += GeoMath.euclideanDistance(getX(i - 1), getY(i - 1), getX(i), getY(i));
+        }
+        return length;
+    }
+
+    /**
+     * Copies the packed tiles of the path into a new array, from the start to the goal.
+     * @return long[]: The packed tiles.
+     */
+    public long[] toArray() {
+        long[] tiles = new long[iLength];
+        for (int i = 0; i < iLength; i++) {
+            tiles[i] = packed(i);
+        }
+        return tiles;
+    }
+
+    /**
+     * Iterates over the tiles of the path from the start to the goal.
+     * @return Iterator: An iterator creating a point for each tile.
+     */
+    @Override
+    public Iterator<Point> iterator() {
+        return new Iterator<>() {
+            private int iNext = 0;
+
+            @Override
+            public boolean hasNext() {
+                return iNext < iLength;
+            }
+
+            @Override
+            public Point next() {
+                if (iNext >= iLength) {
+                    throw new NoSuchElementException();
+                }
+                iNext += 1;
+                return get(iNext - 1);
+            }
+        };
+    }
+
+    /**
+     * Determines if another object is a path through the same tiles in the same order.
+     * @param object Object: The object to compare against.
+     * @return boolean: Whether the paths are equal.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof Path)) {
+            return false;
+        }
+        Path path = (Path)object;
+        if (path.iLength != iLength) {
+            return false;
+        }
+        for (int i = 0; i < iLength; i++) {
+            if (path.packed(i) != packed(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < iLength; i++) {
+            hash = 31 * hash + Long.hashCode(packed(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Generates a string representation of the path.
+     * @return String: The tiles of the path in order.
+     */
+    @Override
+    public String toString() {
+        return asList().toString();
+    }
+
+    /**
+     * Reads the packed tile at a position of the path.
+     */
+    private long packed(int index) {
+        if (index < 0 || index >= iLength) {
+            throw new IndexOutOfBoundsException("ERROR: Index is out of range!");
+        }
+        return lTiles[bReversed ? iOffset + iLength - 1 - index : iOffset + index];
+    }
+
+    /**
+     * Collects the tiles of a path as they are found. Searches that follow parents from the goal back to the start
+     * add the tiles in that order and build the path reversed.
+     */
+    public static final class Builder {
+
+        private long[] lTiles;  // The packed tiles added so far
+        private int iSize;      // The amount of tiles added
+
+        /**
+         * Creates an empty builder.
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Creates an empty builder sized for a path of the given length.
+         * @param capacity int: The amount of tiles expected. Grows on demand.
+         */
+        public Builder(int capacity) {
+            lTiles = new long[Math.max(1, capacity)];
+        }
+
+        /**
+         * Gets the amount of tiles added.
+         * @return int: The size of the builder.
+         */
+        public int size() {
+            return iSize;
+        }
+
+        /**
+         * Adds a tile to the end of the path.
+         * @param x int: The x ordinal of the tile.
+         * @param y int: The y ordinal of the tile.
+         * @return Builder: The builder.
+         */
+        public Builder add(int x, int y) {
+            if (iSize == lTiles.length) {
+                lTiles = Arrays.copyOf(lTiles, iSize * 2);
+            }
+            lTiles[iSize] = pack(x, y);
+            iSize += 1;
+            return this;
+        }
+
+        /**
+         * Adds a point to the end of the path.
+         * @param point Point: The tile to add.
+         * @return Builder: The builder.
+         */
+        public Builder add(Point point) {
+            return add(point.getX(), point.getY());
+        }
+
+        /**
+         * Adds every tile of a path to the end of the path.
+         * @param path Path: The tiles to add, in order.
+         * @return Builder: The builder.
+         */
+        public Builder addAll(Path path) {
+            for (int i = 0; i < path.size(); i++) {
+                if (iSize == lTiles.length) {
+                    lTiles = Arrays.copyOf(lTiles, Math.max(iSize * 2, iSize + path.size() - i));
+                }
+                lTiles[iSize] = path.packed(i);
+                iSize += 1;
+            }
+            return this;
+        }
+
+        /**
+         * Creates a path of the tiles in the order they were added.
+         * @return Path: The path.
+         */
+        public Path build() {
+            return new Path(Arrays.copyOf(lTiles, iSize), 0, iSize, false);
+        }
+
+        /**
+         * Creates a path of the tiles in the reverse of the order they were added.
+         * @return Path: The path, starting at the last tile added.
+         */
+        public Path buildReversed() {
+            return new Path(Arrays.copyOf(lTiles, iSize), 0, iSize, true);
+        }
+
+    }
+
+    /**
+     * Presents the tiles as an unmodifiable list of points.
+     */
+    private final class PointList extends AbstractList<Point> implements RandomAccess {
+
+        @Override
+        public Point get(int index) {
+            return Path.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return iLength;
+        }
+
+    }
+
+}
@@ -0,0 +1,117 @@
+package planning.geom;
+
+/**
+ * Represents a rectangle of tiles on a grid, with inclusive bounds, tagged with the grid version it belongs to.
+ */
+public class Region {
+
+    /*
+        Fields
+     */
+
+    private final int iMinX;        // The smallest x ordinal of the region
+    private final int iMinY;        // The smallest y ordinal of the region
+    private final int iMaxX;        // The largest x ordinal of the region
+    private final int iMaxY;        // The largest y ordinal of the region
+    private final long lVersion;    // The grid version the change to the region produced
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an instance of a Region object.
+     * @param minX int: The smallest x ordinal of the region.
+     * @param minY int: The smallest y ordinal of the region.
+     * @param maxX int: The largest x ordinal of the region.
+     * @param maxY int: The largest y ordinal of the region.
+     * @param version long: The grid version the change to the region produced.
+     */
+    public Region(int minX, int minY, int maxX, int maxY, long version) {
+        iMinX = minX;
+        iMinY = minY;
+        iMaxX = maxX;
+        iMaxY = maxY;
+        lVersion = version;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the smallest x ordinal of the region.
+     * @return int: The left edge of the region.
+     */
+    public int getMinX() {
+        return iMinX;
+    }
+
+    /**
+     * Gets the smallest y ordinal of the region.
+     * @return int: The top edge of the region.
+     */
+    public int getMinY() {
+        return iMinY;
+    }
+
+    /**
+     * Gets the largest x ordinal of the region.
+     * @return int: The right edge of the region.
+     */
+    public int getMaxX() {
+        return iMaxX;
+    }
+
+    /**
+     * Gets the largest y ordinal of the region.
+     * @return int: The bottom edge of the region.
+     */
+    public int getMaxY() {
+        return iMaxY;
+    }
+
+    /**
+     * Gets the grid version the change to the region produced.
+     * @return long: The version of the grid right after the change.
+     */
+    public long getVersion() {
+        return lVersion;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Determines if a tile lies inside the region.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return boolean: Whether the tile is inside the region.
+     */
+    public boolean contains(int x, int y) {
+        return x >= iMinX && x <= iMaxX && y >= iMinY && y <= iMaxY;
+    }
+
+    /**
+     * Determines if the region overlaps another rectangle.
+     * @param minX int: The smallest x ordinal of the rectangle.
+     * @param minY int: The smallest y ordinal of the rectangle.
+     * @param maxX int: The largest x ordinal of the rectangle.
+     * @param maxY int: The largest y ordinal of the rectangle.
+     * @return boolean: Whether the two share at least one tile.
+     */
+    public boolean intersects(int minX, int minY, int maxX, int maxY) {
+        return minX <= iMaxX && maxX >= iMinX && minY <= iMaxY && maxY >= iMinY;
+    }
+
+    /**
+     * Generates a string representation of the region.
+     * @return String: The bounds and version of the region.
+     */
+    @Override
+    public String toString() {
+        return String.format("Region: (%d, %d) to (%d, %d) at version %d", iMinX, iMinY, iMaxX, iMaxY, lVersion);
+    }
+
+}
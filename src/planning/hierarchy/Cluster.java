@@ -0,0 +1,155 @@
+package planning.hierarchy;
+
+/**
+ * Holds the abstract nodes of one cluster of a ClusterGraph: the tiles through which paths may enter or leave the
+ * cluster, the shortest distance between each pair of them without leaving the cluster, and the transitions from
+ * each of them into the neighboring clusters.
+ * <div>A cluster is immutable. When tiles inside of it change, the graph builds a replacement.</div>
+ */
+class Cluster {
+
+    /*
+        Fields
+     */
+
+    private final int iLeft;            // The x ordinal of the leftmost column of the cluster
+    private final int iTop;             // The y ordinal of the topmost row of the cluster
+    private final int iWidth;           // The width of the cluster
+    private final int iHeight;          // The height of the cluster
+    private final int[] iNodes;         // The cell index of each node
+    private final double[] dDistances;  // The distance between each pair of nodes, row-major
+    private final int[] iLinkOffsets;   // The first transition of each node, followed by the end of the last one
+    private final int[] iLinkCells;     // The cell each transition leads to, in a neighboring cluster
+    private final double[] dLinkCosts;  // The cost of each transition
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a cluster from its precomputed parts.
+     * @param left int: The x ordinal of the leftmost column of the cluster.
+     * @param top int: The y ordinal of the topmost row of the cluster.
+     * @param width int: The width of the cluster.
+     * @param height int: The height of the cluster.
+     * @param nodes int[]: The cell index of each node.
+     * @param distances double[]: The distance between each pair of nodes, positive infinity if unreachable.
+     * @param linkOffsets int[]: The first transition of each node, followed by the amount of transitions.
+     * @param linkCells int[]: The cell each transition leads to.
+     * @param linkCosts double[]: The cost of each transition.
+     */
+    Cluster(int left, int top, int width, int height, int[] nodes, double[] distances,
+            int[] linkOffsets, int[] linkCells, double[] linkCosts) {
+        iLeft = left;
+        iTop = top;
+        iWidth = width;
+        iHeight = height;
+        iNodes = nodes;
+        dDistances = distances;
+        iLinkOffsets = linkOffsets;
+        iLinkCells = linkCells;
+        dLinkCosts = linkCosts;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    int getLeft() {
+        return iLeft;
+    }
+
+    int getTop() {
+        return iTop;
+    }
+
+    int getWidth() {
+        return iWidth;
+    }
+
+    int getHeight() {
+        return iHeight;
+    }
+
+    /**
+     * Gets the amount of nodes in the cluster.
+     * @return int: The amount of nodes.
+     */
+    int getNodeCount() {
+        return iNodes.length;
+    }
+
+    /**
+     * Gets the cell index of a node.
+     * @param node int: The local index of the node.
+     * @return int: The cell index of the node.
+     */
+    int getNode(int node) {
+        return iNodes[node];
+    }
+
+    /**
+     * Gets the length of the shortest path between two nodes that stays inside the cluster.
+     * @param from int: The local index of the first node.
+     * @param to int: The local index of the second node.
+     * @return double: The distance, or positive infinity if the nodes are not connected inside the cluster.
+     */
+    double getDistance(int from, int to) {
+        return dDistances[from * iNodes.length + to];
+    }
+
+    /**
+     * Gets the first transition of a node.
+     * @param node int: The local index of the node.
+     * @return int: The index of the first transition leaving the node.
+     */
+    int getLinkStart(int node) {
+        return iLinkOffsets[node];
+    }
+
+    /**
+     * Gets the end of the transitions of a node.
+     * @param node int: The local index of the node.
+     * @return int: One past the index of the last transition leaving the node.
+     */
+    int getLinkEnd(int node) {
+        return iLinkOffsets[node + 1];
+    }
+
+    /**
+     * Gets the cell a transition leads to.
+     * @param link int: The index of the transition.
+     * @return int: The cell index of the node on the other side of the transition.
+     */
+    int getLinkCell(int link) {
+        return iLinkCells[link];
+    }
+
+    /**
+     * Gets the cost of a transition.
+     * @param link int: The index of the transition.
+     * @return double: The cost of the single step the transition takes.
+     */
+    double getLinkCost(int link) {
+        return dLinkCosts[link];
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Finds the node on a cell.
+     * @param cell int: The cell index to look up.
+     * @return int: The local index of the node, or -1 if the cell is not a node of the cluster.
+     */
+    int indexOf(int cell) {
+        for (int i = 0; i < iNodes.length; i++) {
+            if (iNodes[i] == cell) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,491 @@
+package planning.hierarchy;
+
+import planning.agent.AStarSearch;
+import planning.geom.Grid;
+import planning.geom.GridListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Abstracts a grid into a graph of entrances between fixed-size clusters, as used by HPA*.
+ * <div>The grid is split into square clusters. Wherever unoccupied tiles face each other across the border of two
+ * clusters, an entrance is placed: a transition of a single step between a tile on each side, both of which
+ * become abstract nodes. Within each cluster, the shortest distances between its nodes are precomputed, so a
+ * search over the abstract graph only ever visits entrances.</div>
+ * <div>This algorithm comes from "Near Optimal Hierarchical Path-Finding" by Botea et al. published in the Journal
+ * of Game Development 1 (2004) pg. 7-28. Since the grid lets diagonal steps cut corners, a diagonal step across a
+ * border that cannot be replaced by two straight steps becomes an entrance of its own, including at the corners
+ * where four clusters meet, so no path of the grid is lost to the abstraction.</div>
+ * <div>The graph listens to its grid. Changing a tile only marks its cluster, and any cluster sharing the border it
+ * lies on, as dirty, and the dirty clusters are rebuilt in parallel the next time the graph is updated.</div>
+ * <div>Since the grid keeps every listener alive, a graph lives as long as its grid until it is detached. Graphs
+ * handed out by acquire are shared by every owner of the same grid and cluster size, and each owner must call
+ * release once it is done with the graph. The last release detaches it.</div>
+ */
+public class ClusterGraph implements GridListener {
+
+    /*
+        Constants
+     */
+
+    public static final int DEFAULT_CLUSTER_SIZE = 32;  // The cluster size used when none is given
+    private static final int LONG_ENTRANCE = 6;         // Entrances at least this wide get a transition at each end
+    private static final Map<Grid, List<ClusterGraph>> SHARED = new IdentityHashMap<>();   // The shared graphs
+
+    /*
+        Fields
+     */
+
+    private final Grid mGrid;                           // The grid being abstracted
+    private final int iClusterSize;                     // The width and height of a cluster
+    private final int iClustersX;                       // The amount of clusters across the grid
+    private final int iClustersY;                       // The amount of clusters down the grid
+    private final Cluster[] mClusters;                  // The clusters in row-major order
+    private final BitSet mDirty;                        // The clusters that must be rebuilt before the next query
+    private final ThreadLocal<ClusterSearch> mSearches; // The search buffers of each thread building clusters
+    private int[] iBases;                               // The node id of the first node of each cluster
+    private int[] iNodeClusters;                        // The cluster of each node id
+    private long lRebuilds;                             // The amount of clusters built since the graph was created
+    private int iOwners;                                // The amount of owners of a shared graph, zero (0) if private
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates the abstract graph of a grid with the default cluster size.
+     * @param grid Grid: The grid to abstract, cannot be null.
+     */
+    public ClusterGraph(Grid grid) {
+        this(grid, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Creates the abstract graph of a grid and starts listening to it for changes.
+     * @param grid Grid: The grid to abstract, cannot be null.
+     * @param clusterSize int: The width and height of a cluster. Must be greater than one (1).
+     */
+    public ClusterGraph(Grid grid, int clusterSize) {
+        if (grid == null) {
+            throw new IllegalArgumentException("ERROR: Grid cannot be null!");
+        }
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("ERROR: Cluster size must be greater than one!");
+        }
+        mGrid = grid;
+        iClusterSize = clusterSize;
+        iClustersX = (grid.getGridWidth() + clusterSize - 1) / clusterSize;
+        iClustersY = (grid.getGridHeight() + clusterSize - 1) / clusterSize;
+        mClusters = new Cluster[iClustersX * iClustersY];
+        mDirty = new BitSet(mClusters.length);
+        mDirty.set(0, mClusters.length);
+        mSearches = ThreadLocal.withInitial(() -> new ClusterSearch(clusterSize));
+        update();
+        grid.addListener(this);
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the grid the graph abstracts.
+     * @return Grid: The abstracted grid.
+     */
+    public Grid getGrid() {
+        return mGrid;
+    }
+
+    /**
+     * Gets the width and height of a cluster.
+     * @return int: The cluster size.
+     */
+    public int getClusterSize() {
+        return iClusterSize;
+    }
+
+    /**
+     * Gets the amount of clusters the grid is split into.
+     * @return int: The amount of clusters.
+     */
+    public int getClusterCount() {
+        return mClusters.length;
+    }
+
+    /**
+     * Gets the amount of abstract nodes as of the last update.
+     * @return int: The amount of nodes.
+     */
+    public synchronized int getNodeCount() {
+        return iNodeClusters.length;
+    }
+
+    /**
+     * Gets the amount of clusters that have been built, counting the initial build.
+     * @return long: The amount of cluster builds.
+     */
+    public synchronized long getRebuildCount() {
+        return lRebuilds;
+    }
+
+    /**
+     * Gets the cluster containing a tile.
+     * @param x int: The x ordinal of the tile.
+     * @param y int: The y ordinal of the tile.
+     * @return int: The index of the cluster.
+     */
+    int getClusterAt(int x, int y) {
+        return (y / iClusterSize) * iClustersX + x / iClusterSize;
+    }
+
+    /**
+     * Gets a cluster as of the last update.
+     * @param cluster int: The index of the cluster.
+     * @return Cluster: The cluster.
+     */
+    Cluster getCluster(int cluster) {
+        return mClusters[cluster];
+    }
+
+    /**
+     * Gets the node id of the first node of a cluster. The nodes of a cluster have consecutive ids.
+     * @param cluster int: The index of the cluster.
+     * @return int: The node id of its first node.
+     */
+    int getBase(int cluster) {
+        return iBases[cluster];
+    }
+
+    /**
+     * Gets the cluster a node belongs to.
+     * @param node int: The node id.
+     * @return int: The index of the cluster.
+     */
+    int getNodeCluster(int node) {
+        return iNodeClusters[node];
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Marks the clusters touched by a change as dirty. A tile on the edge of a cluster also changes the entrances
+     * of the cluster across that edge, so the region is grown by one tile before it is mapped to clusters.
+     */
+    @Override
+    public synchronized void cellsChanged(int minX, int minY, int maxX, int maxY) {
+        int left = Math.max(0, minX - 1) / iClusterSize;
+        int top = Math.max(0, minY - 1) / iClusterSize;
+        int right = Math.min(mGrid.getGridWidth() - 1, maxX + 1) / iClusterSize;
+        int bottom = Math.min(mGrid.getGridHeight() - 1, maxY + 1) / iClusterSize;
+        for (int cy = top; cy <= bottom; cy++) {
+            mDirty.set(cy * iClustersX + left, cy * iClustersX + right + 1);
+        }
+    }
+
+    /**
+     * Rebuilds every dirty cluster. Called by searches before they read the graph, so it is only needed to move
+     * the cost of rebuilding away from the next query.
+     */
+    public synchronized void update() {
+        if (mDirty.isEmpty()) {
+            return;
+        }
+        int[] dirty = mDirty.stream().toArray();
+        IntStream.of(dirty).parallel().forEach(cluster ->
+                mClusters[cluster] = buildCluster(cluster, mSearches.get()));
+        mDirty.clear();
+        lRebuilds += dirty.length;
+        renumber();
+    }
+
+    /**
+     * Gets the graph of a grid shared by every owner with the same cluster size, building it if there is none.
+     * Every call must be matched by a call to release.
+     * @param grid Grid: The grid to abstract, cannot be null.
+     * @param clusterSize int: The width and height of a cluster. Must be greater than one (1).
+     * @return ClusterGraph: The shared graph.
+     */
+    public static ClusterGraph acquire(Grid grid, int clusterSize) {
+        synchronized (SHARED) {
+            List<ClusterGraph> graphs = SHARED.get(grid);
+            if (graphs != null) {
+                for (ClusterGraph graph : graphs) {
+                    if (graph.iClusterSize == clusterSize) {
+                        graph.iOwners += 1;
+                        return graph;
+                    }
+                }
+            }
+            ClusterGraph graph = new ClusterGraph(grid, clusterSize);
+            graph.iOwners = 1;
+            SHARED.computeIfAbsent(grid, key -> new ArrayList<>()).add(graph);
+            return graph;
+        }
+    }
+
+    /**
+     * Gives up one ownership of a graph. A shared graph is detached once its last owner releases it, and a graph
+     * that was not acquired is detached at once.
+     */
+    public void release() {
+        synchronized (SHARED) {
+            if (iOwners > 1) {
+                iOwners -= 1;
+                return;
+            }
+            if (iOwners == 1) {
+                iOwners = 0;
+                List<ClusterGraph> graphs = SHARED.get(mGrid);
+                graphs.remove(this);
+                if (graphs.isEmpty()) {
+                    SHARED.remove(mGrid);
+                }
+            }
+        }
+        detach();
+    }
+
+    /**
+     * Stops listening to the grid. The graph must not be used afterwards. Shared graphs are released instead.
+     */
+    public void detach() {
+        mGrid.removeListener(this);
+    }
+
+    /**
+     * Assigns consecutive node ids to the nodes of every cluster.
+     */
+    private void renumber() {
+        iBases = new int[mClusters.length];
+        int count = 0;
+        for (int c = 0; c < mClusters.length; c++) {
+            iBases[c] = count;
+            count += mClusters[c].getNodeCount();
+        }
+        iNodeClusters = new int[count];
+        for (int c = 0; c < mClusters.length; c++) {
+            Arrays.fill(iNodeClusters, iBases[c], iBases[c] + mClusters[c].getNodeCount(), c);
+        }
+    }
+
+    /**
+     * Finds the entrances of a cluster and the distances between them.
+     * @param cluster int: The index of the cluster.
+     * @param search ClusterSearch: The search buffers of the calling thread.
+     * @return Cluster: The built cluster.
+     */
+    private Cluster buildCluster(int cluster, ClusterSearch search) {
+        int left = (cluster % iClustersX) * iClusterSize;
+        int top = (cluster / iClustersX) * iClusterSize;
+        int right = Math.min(mGrid.getGridWidth(), left + iClusterSize) - 1;
+        int bottom = Math.min(mGrid.getGridHeight(), top + iClusterSize) - 1;
+        Transitions transitions = new Transitions();
+        // Both clusters of a border scan it identically and keep their own side, so the two sides always agree
+        if (right + 1 < mGrid.getGridWidth()) {
+            scanBorder(right, top, bottom, true, true, transitions);
+        }
+        if (left > 0) {
+            scanBorder(left - 1, top, bottom, true, false, transitions);
+        }
+        if (bottom + 1 < mGrid.getGridHeight()) {
+            scanBorder(bottom, left, right, false, true, transitions);
+        }
+        if (top > 0) {
+            scanBorder(top - 1, left, right, false, false, transitions);
+        }
+        scanCorner(right, bottom, right, bottom, transitions);
+        scanCorner(left - 1, bottom, left, bottom, transitions);
+        scanCorner(right, top - 1, right, top, transitions);
+        scanCorner(left - 1, top - 1, left, top, transitions);
+
+        // Several transitions may leave from the same tile, which is a single node
+        int[] nodes = new int[transitions.iCount];
+        int[] owners = new int[transitions.iCount];
+        int count = 0;
+        for (int i = 0; i < transitions.iCount; i++) {
+            int node = indexOf(nodes, count, transitions.iFrom[i]);
+            if (node < 0) {
+                node = count;
+                nodes[count] = transitions.iFrom[i];
+                count += 1;
+            }
+            owners[i] = node;
+        }
+        nodes = Arrays.copyOf(nodes, count);
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < transitions.iCount; i++) {
+            offsets[owners[i] + 1] += 1;
+        }
+        for (int i = 0; i < count; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, count);
+        int[] linkCells = new int[transitions.iCount];
+        double[] linkCosts = new double[transitions.iCount];
+        for (int i = 0; i < transitions.iCount; i++) {
+            int link = next[owners[i]]++;
+            linkCells[link] = transitions.iTo[i];
+            linkCosts[link] = transitions.dCosts[i];
+        }
+
+        // Distances are symmetric, so each search only fills the pairs not found by an earlier one
+        int width = right - left + 1;
+        int height = bottom - top + 1;
+        double[] distances = new double[count * count];
+        search.bind(left, top, width, height);
+        for (int i = 0; i < count; i++) {
+            if (i + 1 < count) {
+                search.explore(mGrid, nodes[i]);
+            }
+            for (int j = i + 1; j < count; j++) {
+                double distance = search.getDistance(mGrid, nodes[j]);
+                distances[i * count + j] = distance;
+                distances[j * count + i] = distance;
+            }
+        }
+        return new Cluster(left, top, width, height, nodes, distances, offsets, linkCells, linkCosts);
+    }
+
+    /**
+     * Finds the transitions across the border between two rows or two columns of tiles. Straight transitions are
+     * grouped into entrances: maximal runs where both sides are unoccupied. Short entrances get one transition in
+     * their middle, long ones get one at each end. Diagonal steps are only added where both straight steps that
+     * could replace them are blocked.
+     * @param line int: The column (or row) on the near side of the border. The far side is line + 1.
+     * @param from int: The first row (or column) of the border.
+     * @param to int: The last row (or column) of the border.
+     * @param vertical boolean: Whether the border runs along a column rather than a row.
+     * @param near boolean: Whether the cluster being built lies on the near side of the border.
+     * @param transitions Transitions: Receives the transitions leaving the cluster being built.
+     */
+    private void scanBorder(int line, int from, int to, boolean vertical, boolean near, Transitions transitions) {
+        int start = -1;
+        for (int i = from; i <= to + 1; i++) {
+            boolean open = i <= to && isOpen(line, i, vertical) && isOpen(line + 1, i, vertical);
+            if (open && start < 0) {
+                start = i;
+            } else if (!open && start >= 0) {
+                int end = i - 1;
+                if (end - start + 1 < LONG_ENTRANCE) {
+                    int middle = (start + end) >>> 1;
+                    addTransition(line, middle, middle, vertical, near, AStarSearch.CARDINAL_COST, transitions);
+                } else {
+                    addTransition(line, start, start, vertical, near, AStarSearch.CARDINAL_COST, transitions);
+                    addTransition(line, end, end, vertical, near, AStarSearch.CARDINAL_COST, transitions);
+                }
+                start = -1;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            boolean nearFirst = isOpen(line, i, vertical);
+            boolean farFirst = isOpen(line + 1, i, vertical);
+            boolean nearSecond = isOpen(line, i + 1, vertical);
+            boolean farSecond = isOpen(line + 1, i + 1, vertical);
+            if (nearFirst && farSecond && !farFirst && !nearSecond) {
+                addTransition(line, i, i + 1, vertical, near, AStarSearch.DIAGONAL_COST, transitions);
+            } else if (nearSecond && farFirst && !nearFirst && !farSecond) {
+                addTransition(line, i + 1, i, vertical, near, AStarSearch.DIAGONAL_COST, transitions);
+            }
+        }
+    }
+
+    /**
+     * Finds the diagonal transition across a point where four clusters meet, if it is the only way across.
+     * @param x int: The x ordinal of the top left tile of the 2x2 block around the point.
+     * @param y int: The y ordinal of the top left tile of the 2x2 block around the point.
+     * @param ox int: The x ordinal of the tile of the block that belongs to the cluster being built.
+     * @param oy int: The y ordinal of the tile of the block that belongs to the cluster being built.
+     * @param transitions Transitions: Receives the transition if it leaves from the cluster being built.
+     */
+    private void scanCorner(int x, int y, int ox, int oy, Transitions transitions) {
+        boolean topLeft = mGrid.isValidCoordinates(x, y);
+        boolean topRight = mGrid.isValidCoordinates(x + 1, y);
+        boolean bottomLeft = mGrid.isValidCoordinates(x, y + 1);
+        boolean bottomRight = mGrid.isValidCoordinates(x + 1, y + 1);
+        int ax;
+        int bx;
+        if (topLeft && bottomRight && !topRight && !bottomLeft) {
+            ax = x;
+            bx = x + 1;
+        } else if (topRight && bottomLeft && !topLeft && !bottomRight) {
+            ax = x + 1;
+            bx = x;
+        } else {
+            return;
+        }
+        // The diagonal joins (ax, y) and (bx, y + 1)
+        if (ox == ax && oy == y) {
+            transitions.add(mGrid.getCellIndex(ax, y), mGrid.getCellIndex(bx, y + 1), AStarSearch.DIAGONAL_COST);
+        } else if (ox == bx && oy == y + 1) {
+            transitions.add(mGrid.getCellIndex(bx, y + 1), mGrid.getCellIndex(ax, y), AStarSearch.DIAGONAL_COST);
+        }
+    }
+
+    /**
+     * Determines if a tile addressed relative to a border is unoccupied.
+     */
+    private boolean isOpen(int line, int i, boolean vertical) {
+        return vertical ? mGrid.isValidCoordinates(line, i) : mGrid.isValidCoordinates(i, line);
+    }
+
+    /**
+     * Records a transition from the tile at (line, nearIndex) to the tile at (line + 1, farIndex), or the reverse
+     * if the cluster being built lies on the far side of the border.
+     */
+    private void addTransition(int line, int nearIndex, int farIndex, boolean vertical, boolean near,
+                               double cost, Transitions transitions) {
+        int nearCell = vertical ? mGrid.getCellIndex(line, nearIndex) : mGrid.getCellIndex(nearIndex, line);
+        int farCell = vertical ? mGrid.getCellIndex(line + 1, farIndex) : mGrid.getCellIndex(farIndex, line + 1);
+        if (near) {
+            transitions.add(nearCell, farCell, cost);
+        } else {
+            transitions.add(farCell, nearCell, cost);
+        }
+    }
+
+    /**
+     * Finds a value among the first count entries of an array.
+     * @return int: The index of the value, or -1 if it is absent.
+     */
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Collects the transitions leaving a cluster while it is being built.
+     */
+    private static class Transitions {
+
+        private int[] iFrom = new int[16];          // The tile each transition leaves from
+        private int[] iTo = new int[16];            // The tile each transition leads to
+        private double[] dCosts = new double[16];   // The cost of each transition
+        private int iCount;                         // The amount of transitions collected
+
+        private void add(int from, int to, double cost) {
+            if (iCount == iFrom.length) {
+                iFrom = Arrays.copyOf(iFrom, iCount * 2);
+                iTo = Arrays.copyOf(iTo, iCount * 2);
+                dCosts = Arrays.copyOf(dCosts, iCount * 2);
+            }
+            iFrom[iCount] = from;
+            iTo[iCount] = to;
+            dCosts[iCount] = cost;
+            iCount += 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,195 @@
+package planning.hierarchy;
+
+import planning.agent.AStarSearch;
+import planning.agent.IndexedHeap;
+import planning.agent.SearchContext;
+import planning.geom.GeoMath;
+import planning.geom.Grid;
+import planning.geom.Path;
+
+/**
+ * Searches the tiles of a single cluster without ever stepping outside of its bounds. Cells are numbered locally,
+ * ((y - top) * width + (x - left)), so the per-cell state only needs room for one cluster however large the grid is.
+ */
+class ClusterSearch {
+
+    /*
+        Constants
+     */
+
+    private static final int NO_CELL = SearchContext.NO_CELL;  // Marks the absence of a cell
+
+    /*
+        Fields
+     */
+
+    private SearchContext mContext; // The per-cell state, indexed by local cell
+    private int[] iNeighbors;       // Receives the neighbors of the cell being expanded
+    private int iClusterSize;       // The width and height of the largest cluster the search can hold
+    private int iLeft;              // The x ordinal of the leftmost column of the bound cluster
+    private int iTop;               // The y ordinal of the topmost row of the bound cluster
+    private int iWidth;             // The width of the bound cluster
+    private int iHeight;            // The height of the bound cluster
+    private long lExpansions;       // The amount of cells expanded since the search was created
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a search for clusters of up to the given size.
+     * @param clusterSize int: The width and height of the largest cluster to search.
+     */
+    ClusterSearch(int clusterSize) {
+        mContext = new SearchContext(clusterSize * clusterSize);
+        iClusterSize = clusterSize;
+        iNeighbors = new int[Grid.MAX_NEIGHBORS];
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the size of the largest cluster the search can hold.
+     * @return int: The width and height of the largest cluster.
+     */
+    int getCapacity() {
+        return iClusterSize;
+    }
+
+    /**
+     * Gets the amount of cells expanded by every search run so far.
+     * @return long: The total amount of cells expanded.
+     */
+    long getExpandedCount() {
+        return lExpansions;
+    }
+
+    /**
+     * Restricts the following searches to a rectangle of the grid.
+     * @param left int: The x ordinal of the leftmost column.
+     * @param top int: The y ordinal of the topmost row.
+     * @param width int: The width of the rectangle.
+     * @param height int: The height of the rectangle.
+     */
+    void bind(int left, int top, int width, int height) {
+        iLeft = left;
+        iTop = top;
+        iWidth = width;
+        iHeight = height;
+    }
+
+    /**
+     * Restricts the following searches to the bounds of a cluster.
+     * @param cluster Cluster: The cluster to search.
+     */
+    void bind(Cluster cluster) {
+        bind(cluster.getLeft(), cluster.getTop(), cluster.getWidth(), cluster.getHeight());
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Runs Dijkstra's algorithm from a tile over the whole bound rectangle. Use getDistance to read the results.
+     * @param grid Grid: The grid to search.
+     * @param source int: The cell index to search from, must lie in the bound rectangle.
+     */
+    void explore(Grid grid, int source) {
+        run(grid, source, NO_CELL);
+    }
+
+    /**
+     * Gets the distance to a tile found by the last call to explore.
+     * @param grid Grid: The grid that was explored.
+     * @param cell int: The cell index of the tile, must lie in the bound rectangle.
+     * @return double: The distance to the tile, or positive infinity if it cannot be reached inside the rectangle.
+     */
+    double getDistance(Grid grid, int cell) {
+        return mContext.getGScore(toLocal(grid.getCellX(cell), grid.getCellY(cell)));
+    }
+
+    /**
+     * Finds the shortest path between two tiles of the bound rectangle that stays inside of it.
+     * @param grid Grid: The grid to search.
+     * @param from int: The cell index to start from.
+     * @param to int: The cell index to reach.
+     * @return Path: The tiles after the first up to and including the last, in order. Null if there is no path.
+     */
+    Path findPath(Grid grid, int from, int to) {
+        if (!run(grid, from, to)) {
+            return null;
+        }
+        Path.Builder path = new Path.Builder();
+        int cell = toLocal(grid.getCellX(to), grid.getCellY(to));
+        int first = toLocal(grid.getCellX(from), grid.getCellY(from));
+        while (cell != first) {
+            path.add(iLeft + cell % iWidth, iTop + cell / iWidth);
+            cell = mContext.getParent(cell);
+        }
+        return path.buildReversed();
+    }
+
+    /**
+     * Runs A* towards a target with the octile heuristic, or Dijkstra's algorithm when there is no target.
+     * @return boolean: Whether the target was reached.
+     */
+    private boolean run(Grid grid, int source, int target) {
+        mContext.begin(iWidth * iHeight);
+        IndexedHeap openList = mContext.getOpenList();
+        int width = grid.getGridWidth();
+        int goal = NO_CELL;
+        int gx = 0;
+        int gy = 0;
+        if (target != NO_CELL) {
+            gx = target % width;
+            gy = target / width;
+            goal = toLocal(gx, gy);
+        }
+        int start = toLocal(source % width, source / width);
+        mContext.visit(start, 0, NO_CELL);
+        openList.update(start, 0, 0);
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            mContext.close(current);
+            lExpansions += 1;
+            if (current == goal) {
+                return true;
+            }
+            int cx = iLeft + current % iWidth;
+            int cy = iTop + current / iWidth;
+            double g = mContext.getGScore(current);
+            int count = grid.getNeighbors(grid.getCellIndex(cx, cy), iNeighbors);
+            for (int i = 0; i < count; i++) {
+                int ny = iNeighbors[i] / width;
+                int nx = iNeighbors[i] - ny * width;
+                if (nx < iLeft || nx >= iLeft + iWidth || ny < iTop || ny >= iTop + iHeight) {
+                    continue;
+                }
+                int next = toLocal(nx, ny);
+                if (mContext.isClosed(next)) {
+                    continue;
+                }
+                double score = g + (nx != cx && ny != cy ?
+                        AStarSearch.DIAGONAL_COST : AStarSearch.CARDINAL_COST);
+                if (score >= mContext.getGScore(next)) {
+                    continue;
+                }
+                mContext.visit(next, score, current);
+                double h = goal == NO_CELL ? 0 : GeoMath.octileDistance(nx, ny, gx, gy);
+                openList.update(next, score + h, h);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts a coordinate inside the bound rectangle to a local cell index.
+     */
+    private int toLocal(int x, int y) {
+        return (y - iTop) * iWidth + (x - iLeft);
+    }
+
+}
@@ -0,0 +1,124 @@
+package planning.hierarchy;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+
+/**
+ * A path found on the abstract graph of a ClusterGraph, refined into tiles one segment at a time.
+ * <div>The waypoints of the path are the start, the entrances it passes through, and the goal. Consecutive
+ * waypoints either lie in the same cluster, in which case the segment between them is found by a search confined
+ * to that cluster when it is requested, or straddle a border, in which case the segment is a single step.</div>
+ * <div>Refinement reuses the buffers of the search that produced the path, so a path must be consumed before that
+ * search runs again.</div>
+ */
+public class HierarchicalPath {
+
+    /*
+        Fields
+     */
+
+    private final ClusterGraph mGraph;  // The graph the path was found on
+    private final ClusterSearch mSearch;// The search used to refine segments
+    private final int[] iWaypoints;     // The cell index of each waypoint, from the start to the goal
+    private final double dCost;         // The length of the path
+    private int iSegment;               // The index of the waypoint the next segment starts from
+    private long lExpansions;           // The amount of cells expanded refining segments
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a path over the given waypoints.
+     * @param graph ClusterGraph: The graph the path was found on.
+     * @param search ClusterSearch: The search to refine segments with.
+     * @param waypoints int[]: The cell index of each waypoint, from the start to the goal.
+     * @param cost double: The length of the path.
+     */
+    HierarchicalPath(ClusterGraph graph, ClusterSearch search, int[] waypoints, double cost) {
+        mGraph = graph;
+        mSearch = search;
+        iWaypoints = waypoints;
+        dCost = cost;
+        iSegment = 0;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the amount of waypoints on the path, including the start and the goal.
+     * @return int: The amount of waypoints.
+     */
+    public int getWaypointCount() {
+        return iWaypoints.length;
+    }
+
+    /**
+     * Gets a waypoint of the path.
+     * @param index int: The index of the waypoint, zero (0) being the start.
+     * @return Point: The waypoint.
+     */
+    public Point getWaypoint(int index) {
+        Grid grid = mGraph.getGrid();
+        return new Point(grid.getCellX(iWaypoints[index]), grid.getCellY(iWaypoints[index]));
+    }
+
+    /**
+     * Gets the length of the path, which the refined path matches as long as the grid is not modified.
+     * @return double: The length of the path.
+     */
+    public double getCost() {
+        return dCost;
+    }
+
+    /**
+     * Gets the amount of cells expanded while refining segments so far.
+     * @return long: The amount of cells expanded.
+     */
+    public long getExpandedCount() {
+        return lExpansions;
+    }
+
+    /**
+     * Determines if there are segments left to refine.
+     * @return boolean: Whether nextSegment may be called.
+     */
+    public boolean hasNextSegment() {
+        return iSegment < iWaypoints.length - 1;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Refines the next segment of the path into tiles.
+     * @return Path: The tiles after the current waypoint up to and including the next one, in order.
+     * Null if the grid has changed so that the segment can no longer be traversed.
+     */
+    public Path nextSegment() {
+        if (!hasNextSegment()) {
+            throw new IllegalStateException("ERROR: Path has no segments left!");
+        }
+        Grid grid = mGraph.getGrid();
+        int from = iWaypoints[iSegment];
+        int to = iWaypoints[iSegment + 1];
+        iSegment += 1;
+        int cluster = mGraph.getClusterAt(grid.getCellX(from), grid.getCellY(from));
+        if (cluster != mGraph.getClusterAt(grid.getCellX(to), grid.getCellY(to))) {
+            if (!grid.isValidCoordinates(grid.getCellX(to), grid.getCellY(to))) {
+                return null;
+            }
+            return new Path.Builder(1).add(grid.getCellX(to), grid.getCellY(to)).build();
+        }
+        long before = mSearch.getExpandedCount();
+        mSearch.bind(mGraph.getCluster(cluster));
+        Path segment = mSearch.findPath(grid, from, to);
+        lExpansions += mSearch.getExpandedCount() - before;
+        return segment;
+    }
+
+}
@@ -0,0 +1,216 @@
+package planning.hierarchy;
+
+import planning.agent.Heuristic;
+import planning.agent.IndexedHeap;
+import planning.agent.SearchContext;
+import planning.geom.Grid;
+
+/**
+ * Runs A* over the abstract graph of a ClusterGraph. The start and goal are connected to the entrances of their
+ * clusters by searches confined to those clusters, then the search only visits entrances, so its cost depends on
+ * the amount of clusters between the two rather than on the amount of tiles.
+ */
+public class HierarchicalSearch {
+
+    /*
+        Constants
+     */
+
+    private static final int NO_CELL = SearchContext.NO_CELL;  // Marks the absence of a node
+
+    /*
+        Fields
+     */
+
+    private SearchContext mContext;     // The per-node state reused by every search
+    private ClusterSearch mSearch;      // Connects the start and goal to their clusters and refines paths
+    private double[] dStartCosts;       // The distance from the start to each node of its cluster
+    private double[] dGoalCosts;        // The distance from each node of the goal's cluster to the goal
+    private long lExpansions;           // The amount of nodes and cells expanded by the last search
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a search whose buffers grow on demand.
+     */
+    public HierarchicalSearch() {
+        mContext = new SearchContext(0);
+        dStartCosts = new double[0];
+        dGoalCosts = new double[0];
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the amount of abstract nodes and tiles expanded by the most recent search, not counting refinement.
+     * @return long: The amount of expansions.
+     */
+    public long getExpandedCount() {
+        return lExpansions;
+    }
+
+    /**
+     * Gets the open list of the most recent search over the abstract graph.
+     * @return IndexedHeap: The open list, holding the nodes left unexpanded.
+     */
+    public IndexedHeap getOpenList() {
+        return mContext.getOpenList();
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Finds a path on the abstract graph. Dirty clusters are rebuilt first.
+     * @param graph ClusterGraph: The graph to search.
+     * @param sx int: The x ordinal of the starting point.
+     * @param sy int: The y ordinal of the starting point.
+     * @param gx int: The x ordinal of the goal point.
+     * @param gy int: The y ordinal of the goal point.
+     * @param heuristic Heuristic: The heuristic used to order the open list.
+     * @return HierarchicalPath: The path, ready to be refined. Null if no path exists.
+     */
+    public HierarchicalPath search(ClusterGraph graph, int sx, int sy, int gx, int gy, Heuristic heuristic) {
+        lExpansions = 0;
+        Grid grid = graph.getGrid();
+        if (!grid.mayBeConnected(sx, sy, gx, gy)) {
+            return null;
+        }
+        graph.update();
+        if (mSearch == null || mSearch.getCapacity() < graph.getClusterSize()) {
+            mSearch = new ClusterSearch(graph.getClusterSize());
+        }
+        long before = mSearch.getExpandedCount();
+        int start = grid.getCellIndex(sx, sy);
+        int goal = grid.getCellIndex(gx, gy);
+        int startCluster = graph.getClusterAt(sx, sy);
+        int goalCluster = graph.getClusterAt(gx, gy);
+        Cluster source = graph.getCluster(startCluster);
+        Cluster target = graph.getCluster(goalCluster);
+
+        // Connect the start and the goal to the entrances of their clusters
+        dStartCosts = measure(grid, source, start, dStartCosts);
+        double direct = startCluster == goalCluster ? mSearch.getDistance(grid, goal) : Double.POSITIVE_INFINITY;
+        dGoalCosts = measure(grid, target, goal, dGoalCosts);
+        lExpansions += mSearch.getExpandedCount() - before;
+
+        int nodes = graph.getNodeCount();
+        int startNode = nodes;
+        int goalNode = nodes + 1;
+        mContext.begin(nodes + 2);
+        IndexedHeap openList = mContext.getOpenList();
+        Heuristic bound = heuristic.bind(grid, gx, gy);
+        double h = bound.estimate(sx, sy);
+        mContext.visit(startNode, 0, NO_CELL);
+        openList.update(startNode, h, h);
+        while (!openList.isEmpty()) {
+            int current = openList.poll();
+            mContext.close(current);
+            lExpansions += 1;
+            if (current == goalNode) {
+                return new HierarchicalPath(graph, mSearch,
+                        generateWaypoints(graph, current, start, goal, startNode, goalNode),
+                        mContext.getGScore(current));
+            }
+            double g = mContext.getGScore(current);
+            if (current == startNode) {
+                int base = graph.getBase(startCluster);
+                for (int j = 0; j < source.getNodeCount(); j++) {
+                    relax(grid, base + j, source.getNode(j), g + dStartCosts[j], current, bound);
+                }
+                relax(grid, goalNode, goal, g + direct, current, bound);
+                continue;
+            }
+            int clusterIndex = graph.getNodeCluster(current);
+            Cluster cluster = graph.getCluster(clusterIndex);
+            int base = graph.getBase(clusterIndex);
+            int node = current - base;
+            for (int j = 0; j < cluster.getNodeCount(); j++) {
+                if (j != node) {
+                    relax(grid, base + j, cluster.getNode(j), g + cluster.getDistance(node, j), current, bound);
+                }
+            }
+            for (int link = cluster.getLinkStart(node); link < cluster.getLinkEnd(node); link++) {
+                int cell = cluster.getLinkCell(link);
+                int neighborIndex = graph.getClusterAt(grid.getCellX(cell), grid.getCellY(cell));
+                int neighbor = graph.getCluster(neighborIndex).indexOf(cell);
+                if (neighbor >= 0) {
+                    relax(grid, graph.getBase(neighborIndex) + neighbor, cell, g + cluster.getLinkCost(link),
+                            current, bound);
+                }
+            }
+            if (clusterIndex == goalCluster) {
+                relax(grid, goalNode, goal, g + dGoalCosts[node], current, bound);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the distance from a tile to each node of its cluster.
+     * @param grid Grid: The grid being searched.
+     * @param cluster Cluster: The cluster holding the tile.
+     * @param cell int: The cell index of the tile.
+     * @param costs double[]: A buffer to reuse if it is large enough.
+     * @return double[]: The distance to each node, positive infinity if unreachable inside the cluster.
+     */
+    private double[] measure(Grid grid, Cluster cluster, int cell, double[] costs) {
+        if (costs.length < cluster.getNodeCount()) {
+            costs = new double[cluster.getNodeCount()];
+        }
+        mSearch.bind(cluster);
+        mSearch.explore(grid, cell);
+        for (int j = 0; j < cluster.getNodeCount(); j++) {
+            costs[j] = mSearch.getDistance(grid, cluster.getNode(j));
+        }
+        return costs;
+    }
+
+    /**
+     * Offers a node a path through the node being expanded.
+     * @param node int: The node id.
+     * @param cell int: The cell index of the node.
+     * @param score double: The cost of reaching the node through the parent.
+     * @param parent int: The node being expanded.
+     * @param heuristic Heuristic: The heuristic bound to the goal.
+     */
+    private void relax(Grid grid, int node, int cell, double score, int parent, Heuristic heuristic) {
+        if (score == Double.POSITIVE_INFINITY || mContext.isClosed(node) || score >= mContext.getGScore(node)) {
+            return;
+        }
+        mContext.visit(node, score, parent);
+        double h = heuristic.estimate(grid.getCellX(cell), grid.getCellY(cell));
+        mContext.getOpenList().update(node, score + h, h);
+    }
+
+    /**
+     * Converts the chain of nodes ending at the goal into the cells of the waypoints.
+     * @return int[]: The cell index of each waypoint, from the start to the goal.
+     */
+    private int[] generateWaypoints(ClusterGraph graph, int node, int start, int goal, int startNode,
+                                    int goalNode) {
+        int count = 0;
+        for (int n = node; n != NO_CELL; n = mContext.getParent(n)) {
+            count += 1;
+        }
+        int[] waypoints = new int[count];
+        for (int n = node; n != NO_CELL; n = mContext.getParent(n)) {
+            count -= 1;
+            if (n == startNode) {
+                waypoints[count] = start;
+            } else if (n == goalNode) {
+                waypoints[count] = goal;
+            } else {
+                int cluster = graph.getNodeCluster(n);
+                waypoints[count] = graph.getCluster(cluster).getNode(n - graph.getBase(cluster));
+            }
+        }
+        return waypoints;
+    }
+
+}
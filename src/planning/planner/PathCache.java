@@ -0,0 +1,287 @@
+package planning.planner;
+
+import planning.agent.Agent;
+import planning.agent.Heuristic;
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+import planning.realtime.RealTimeAgent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches the paths found by agents, so that repeated queries on an unchanged grid skip the search.
+ * <div>Paths are keyed by the type and heuristic of the agent, its start and goal, and the grid and its version,
+ * so any change to the grid misses every path found before it. Agents of the same type that differ in other
+ * settings, such as the node budget of the sampling agents, should not share a cache. Paths are immutable, so
+ * the cached path itself is returned on a hit, and the least recently used path is evicted once the cache is
+ * full.</div>
+ * <div>A query that misses may still be answered from a cached path with the same start that passes through the
+ * goal, by cutting that path short at the goal. The prefix is a view of the cached path rather than a copy. For
+ * the optimal agents such a prefix is itself optimal.</div>
+ * <div>The cache is thread safe. Agents are not, so each thread should traverse with its own agent.</div>
+ */
+public class PathCache {
+
+    /*
+        Constants
+     */
+
+    public static final int DEFAULT_CAPACITY = 1024;    // The default amount of paths held
+    private static final Path NO_PATH = Path.of();      // Stands in for a query known to have no path
+
+    /*
+        Fields
+     */
+
+    private final int iCapacity;                    // The most paths the cache holds at once
+    private final LinkedHashMap<Key, Path> mPaths;  // The cached paths in access order
+    private final Map<Key, List<Key>> mByStart;     // The keys of the cached paths sharing each start
+    private long lHits;                             // The amount of queries answered by a cached path
+    private long lSubPathHits;                      // The amount of hits answered by a prefix of a cached path
+    private long lMisses;                           // The amount of queries passed on to the agent
+    private long lEvictions;                        // The amount of paths evicted to make room
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a cache with the default capacity.
+     */
+    public PathCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache with the specified capacity.
+     * @param capacity int: The most paths the cache holds at once. Must be one (1) or greater.
+     */
+    public PathCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("ERROR: Capacity must be positive!");
+        }
+        iCapacity = capacity;
+        mPaths = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Path> eldest) {
+                if (size() <= iCapacity) {
+                    return false;
+                }
+                forgetStart(eldest.getKey());
+                lEvictions += 1;
+                return true;
+            }
+        };
+        mByStart = new HashMap<>();
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the most paths the cache holds at once.
+     * @return int: The capacity of the cache.
+     */
+    public int getCapacity() {
+        return iCapacity;
+    }
+
+    /**
+     * Gets the amount of paths in the cache.
+     * @return int: The size of the cache.
+     */
+    public synchronized int size() {
+        return mPaths.size();
+    }
+
+    /**
+     * Gets the amount of queries answered by the cache, counting those answered by a prefix of a cached path.
+     * @return long: The amount of hits.
+     */
+    public synchronized long getHits() {
+        return lHits;
+    }
+
+    /**
+     * Gets the amount of hits answered by a prefix of a cached path to another goal.
+     * @return long: The amount of sub-path hits.
+     */
+    public synchronized long getSubPathHits() {
+        return lSubPathHits;
+    }
+
+    /**
+     * Gets the amount of queries the cache could not answer.
+     * @return long: The amount of misses.
+     */
+    public synchronized long getMisses() {
+        return lMisses;
+    }
+
+    /**
+     * Gets the amount of paths evicted to make room for newer ones.
+     * @return long: The amount of evictions.
+     */
+    public synchronized long getEvictions() {
+        return lEvictions;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Finds the path of an agent from its start to its goal, traversing the grid only if no cached path answers
+     * the query. The agent is not called on a hit, so its expansion count is left as it was.
+     * @param agent Agent: The agent to traverse with, cannot be a real-time agent.
+     * @param grid Grid: The grid to path find across.
+     * @return Path: The path, from the start to the goal. May return null if no path is found.
+     */
+    public Path traverse(Agent agent, Grid grid) {
+        if (agent == null || grid == null) {
+            throw new IllegalArgumentException("ERROR: Agent and grid cannot be null!");
+        }
+        if (agent instanceof RealTimeAgent) {
+            // Real-time agents return partial paths and move their start as they go
+            throw new IllegalArgumentException("ERROR: Real-time agents cannot be cached!");
+        }
+        Point start = agent.getStart();
+        Point goal = agent.getGoal();
+        if (!grid.isValidCoordinates(start.getX(), start.getY()) ||
+                !grid.isValidCoordinates(goal.getX(), goal.getY())) {
+            return agent.traverse(grid);
+        }
+        Key key = new Key(agent.getClass(), agent.getHeuristic(), grid, grid.getVersion(),
+                grid.getCellIndex(start.getX(), start.getY()), grid.getCellIndex(goal.getX(), goal.getY()));
+        Path cached = lookup(key, goal);
+        if (cached != null) {
+            return cached == NO_PATH ? null : cached;
+        }
+        // Search outside the lock so other threads are not held up, at the risk of two threads finding one path
+        Path path = agent.traverse(grid);
+        if (grid.getVersion() == key.lVersion) {
+            store(key, path == null ? NO_PATH : path);
+        }
+        return path;
+    }
+
+    /**
+     * Removes every path from the cache. The counters are kept.
+     */
+    public synchronized void clear() {
+        mPaths.clear();
+        mByStart.clear();
+    }
+
+    /**
+     * Finds a cached path answering a query, and updates the counters.
+     * @return Path: The path, NO_PATH if the query is known to have no path, or null on a miss.
+     */
+    private synchronized Path lookup(Key key, Point goal) {
+        Path path = mPaths.get(key);
+        if (path != null) {
+            lHits += 1;
+            return path;
+        }
+        List<Key> siblings = mByStart.get(key.startKey());
+        if (siblings != null) {
+            for (int i = 0; i < siblings.size(); i++) {
+                Path other = mPaths.get(siblings.get(i));
+                // The path runs from the shared start, so the query's path is its head up to the goal
+                int index = other.indexOf(goal.getX(), goal.getY());
+                if (index >= 0) {
+                    lHits += 1;
+                    lSubPathHits += 1;
+                    return other.subPath(0, index + 1);
+                }
+            }
+        }
+        lMisses += 1;
+        return null;
+    }
+
+    /**
+     * Caches a path, evicting the least recently used path if the cache is full.
+     */
+    private synchronized void store(Key key, Path path) {
+        if (mPaths.put(key, path) == null) {
+            mByStart.computeIfAbsent(key.startKey(), k -> new ArrayList<>(1)).add(key);
+        }
+    }
+
+    /**
+     * Removes a key from the keys sharing its start.
+     */
+    private void forgetStart(Key key) {
+        Key startKey = key.startKey();
+        List<Key> siblings = mByStart.get(startKey);
+        if (siblings != null) {
+            siblings.remove(key);
+            if (siblings.isEmpty()) {
+                mByStart.remove(startKey);
+            }
+        }
+    }
+
+    /**
+     * Identifies a query. The grid is compared by identity, since two grids can share a version.
+     */
+    private static class Key {
+
+        private static final int NO_GOAL = -1;  // Stands in for the goal of a key grouping paths by start
+
+        private final Class<?> mAgentType;  // The type of the agent
+        private final Heuristic mHeuristic; // The heuristic of the agent, null if it has none
+        private final Grid mGrid;           // The grid searched
+        private final long lVersion;        // The version of the grid searched
+        private final int iStart;           // The cell of the start
+        private final int iGoal;            // The cell of the goal, or NO_GOAL
+        private final int iHash;            // The hash of the key
+
+        private Key(Class<?> agentType, Heuristic heuristic, Grid grid, long version, int start, int goal) {
+            mAgentType = agentType;
+            mHeuristic = heuristic;
+            mGrid = grid;
+            lVersion = version;
+            iStart = start;
+            iGoal = goal;
+            int hash = System.identityHashCode(grid);
+            hash = 31 * hash + agentType.hashCode();
+            hash = 31 * hash + Objects.hashCode(heuristic);
+            hash = 31 * hash + Long.hashCode(version);
+            hash = 31 * hash + start;
+            iHash = 31 * hash + goal;
+        }
+
+        /**
+         * Gets the key grouping every path with the same start as this one.
+         */
+        private Key startKey() {
+            return new Key(mAgentType, mHeuristic, mGrid, lVersion, iStart, NO_GOAL);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+            Key key = (Key)object;
+            return mGrid == key.mGrid && lVersion == key.lVersion && iStart == key.iStart && iGoal == key.iGoal &&
+                    mAgentType == key.mAgentType && mHeuristic == key.mHeuristic;
+        }
+
+        @Override
+        public int hashCode() {
+            return iHash;
+        }
+
+    }
+
+}
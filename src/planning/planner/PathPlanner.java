@@ -0,0 +1,113 @@
+package planning.planner;
+
+import planning.agent.AStarSearch;
+import planning.agent.Heuristic;
+import planning.geom.Grid;
+import planning.geom.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Answers batches of A* path finding queries against a shared grid in parallel.
+ * <div>Unlike the agents, a planner holds no per-query state. Every worker thread keeps its own search buffers,
+ * which are sized to the largest grid it has searched and reused by every later query on that thread. The grid
+ * is only read, so it must not be modified while a batch is being solved.</div>
+ */
+public class PathPlanner {
+
+    /*
+        Fields
+     */
+
+    private final Heuristic mHeuristic;                 // The heuristic used for every query
+    private final ForkJoinPool mPool;                   // The pool the queries are spread over
+    private final ThreadLocal<AStarSearch> mSearches;   // The search buffers of each worker thread
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a planner that solves batches on the common fork-join pool.
+     * @param heuristic Heuristic: The heuristic to use for every query.
+     */
+    public PathPlanner(Heuristic heuristic) {
+        this(heuristic, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a planner that solves batches on the given pool.
+     * @param heuristic Heuristic: The heuristic to use for every query.
+     * @param pool ForkJoinPool: The pool to spread queries over, cannot be null.
+     */
+    public PathPlanner(Heuristic heuristic, ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("ERROR: Pool cannot be null!");
+        }
+        mHeuristic = heuristic;
+        mPool = pool;
+        mSearches = ThreadLocal.withInitial(() -> new AStarSearch(0));
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the heuristic used for every query.
+     * @return Heuristic: The heuristic in use by the planner.
+     */
+    public Heuristic getHeuristic() {
+        return mHeuristic;
+    }
+
+    /**
+     * Gets the pool the queries are spread over.
+     * @return ForkJoinPool: The pool used by the planner.
+     */
+    public ForkJoinPool getPool() {
+        return mPool;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Solves a single query on the calling thread, reusing that threads search buffers.
+     * @param grid Grid: The grid to path find across.
+     * @param query Query: The query to solve.
+     * @return Path: The path, from the start to the goal. May return null if no path is found.
+     */
+    public Path solve(Grid grid, Query query) {
+        AStarSearch search = mSearches.get();
+        if (!search.search(grid, query.getStart().getX(), query.getStart().getY(),
+                query.getGoal().getX(), query.getGoal().getY(), mHeuristic, AStarSearch.NO_DEADLINE)) {
+            return null;
+        }
+        return search.generatePath(grid, search.getLastCell());
+    }
+
+    /**
+     * Solves every query in parallel over the planners pool.
+     * @param grid Grid: The grid to path find across. Must not be modified until the call returns.
+     * @param queries List: The queries to solve.
+     * @return List: The path of each query, in the same order as the queries. Entries are null where no path exists.
+     */
+    public List<Path> solveAll(Grid grid, List<Query> queries) {
+        if (grid == null || queries == null) {
+            throw new IllegalArgumentException("ERROR: Grid and queries cannot be null!");
+        }
+        Query[] batch = queries.toArray(new Query[0]);
+        Path[] paths = new Path[batch.length];
+        // Parallel streams run on the pool of the task that starts them
+        mPool.submit(() -> IntStream.range(0, batch.length).parallel()
+                .forEach(i -> paths[i] = solve(grid, batch[i]))).join();
+        return new ArrayList<>(Arrays.asList(paths));
+    }
+
+}
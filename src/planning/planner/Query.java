@@ -0,0 +1,78 @@
+package planning.planner;
+
+import planning.geom.Point;
+
+/**
+ * Represents a single start to goal path finding request answered by a PathPlanner.
+ */
+public class Query {
+
+    /*
+        Fields
+     */
+
+    private final Point mStart;     // The start point
+    private final Point mGoal;      // The goal point
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a query with the specified parameters.
+     * @param sx int: The x ordinal of the starting point.
+     * @param sy int: The y ordinal of the starting point.
+     * @param gx int: The x ordinal of the goal point.
+     * @param gy int: The y ordinal of the goal point.
+     */
+    public Query(int sx, int sy, int gx, int gy) {
+        this(new Point(sx, sy), new Point(gx, gy));
+    }
+
+    /**
+     * Creates a query with the specified parameters.
+     * @param start Point: The starting location, cannot be null.
+     * @param goal Point: The goal location, cannot be null.
+     */
+    public Query(Point start, Point goal) {
+        if (start == null || goal == null) {
+            throw new IllegalArgumentException("ERROR: Start and goal cannot be null!");
+        }
+        mStart = start;
+        mGoal = goal;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the starting location of the query.
+     * @return Point: The starting location.
+     */
+    public Point getStart() {
+        return mStart;
+    }
+
+    /**
+     * Gets the goal location of the query.
+     * @return Point: The goal location.
+     */
+    public Point getGoal() {
+        return mGoal;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Generates a string representation for the query.
+     * @return String: The string representation of the query.
+     */
+    @Override
+    public String toString() {
+        return String.format("Query: (%d, %d) -> (%d, %d)", mStart.getX(), mStart.getY(), mGoal.getX(), mGoal.getY());
+    }
+
+}
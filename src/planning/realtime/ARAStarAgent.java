@@ -0,0 +1,471 @@
+package planning.realtime;
+
+import planning.agent.AStarSearch;
+import planning.agent.Heuristic;
+import planning.agent.IndexedHeap;
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Defines an Anytime Repairing A* (ARA*) agent. The first search inflates the heuristic by a weight, which finds a
+ * path quickly whose cost is at most that weight times the optimal cost. Each later search lowers the weight and
+ * only revisits the cells whose cost improved since they were last expanded, so the path tightens towards optimal
+ * for as long as the planning time allows.
+ * <div>The weight starts at the initial weight and drops by the weight step after each search. When a search
+ * finishes in under a quarter of the time left, the next drop is doubled, so short deadlines still reach low
+ * weights. Every cheaper path, and every tighter bound on the current one, is reported to the solution
+ * listeners. A traversal that runs out of time returns the best path so far, and the next traversal of the same
+ * query on the unchanged grid resumes the improvement rather than starting over.</div>
+ * <div>This algorithm comes from "ARA*: Anytime A* with Provable Bounds on Sub-Optimality" by Likhachev, Gordon and
+ * Thrun published in Advances in Neural Information Processing Systems 16 (2004) pg. 767-774.</div>
+ */
+public class ARAStarAgent extends RealTimeAgent {
+
+    /*
+        Constants
+     */
+
+    public static final double DEFAULT_INITIAL_WEIGHT = 2.5;   // The default weight of the first search
+    public static final double DEFAULT_WEIGHT_STEP = 0.5;      // The default drop in weight between searches
+    private static final double INFINITY = Double.POSITIVE_INFINITY;   // The cost of unreached cells
+    private static final int NO_CELL = AStarSearch.NO_CELL;             // Marks the absence of a cell
+    private static final int DEADLINE_CHECK_INTERVAL = 64;              // The amount of expansions between clock reads
+
+    /*
+        Fields
+     */
+
+    private Heuristic mHeuristic;       // The heuristic used for the agent
+    private double dInitialWeight;      // The weight of the first search
+    private double dWeightStep;         // The drop in weight between searches
+    private List<SolutionListener> mListeners;  // The listeners told of improved solutions, null until added
+
+    private Grid mGrid;                 // The grid the search state belongs to, null until the first traversal
+    private long lVersion;              // The version of the grid the search state belongs to
+    private int iSearchStart;           // The start cell the search state belongs to
+    private int iSearchGoal;            // The goal cell the search state belongs to
+    private boolean bRestart;           // Whether the search state must be rebuilt from scratch
+    private boolean bComplete;          // Whether the search has proven its path optimal or found no path
+    private Heuristic mBound;           // The heuristic bound to the goal of the search
+    private double dWeight;             // The weight of the current search
+    private int iIteration;             // Numbers the current search, stamping the cells it closes
+    private long lIterationTime;        // The time in milliseconds the last completed search took
+    private double[] dGScores;          // The best known cost from the start to each cell
+    private int[] iParents;             // The cell each cell was reached from
+    private int[] iClosed;              // The search that last expanded each cell
+    private int[] iMarked;              // The search that last put each cell in the inconsistent list
+    private int[] iInconsistent;        // The cells improved after being expanded by the current search
+    private int iInconsistentCount;     // The amount of cells in the inconsistent list
+    private IndexedHeap mOpen;          // The cells waiting to be expanded by the current search
+    private int[] iNeighbors;           // Receives the neighbors of the cell being expanded
+
+    private Path mBestPath;                 // The cheapest path found, null if none was found
+    private double dBestCost;               // The cost of the cheapest path found
+    private double dBestBound;              // The proven bound on the suboptimality of the cheapest path
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an instance of an ARA* agent with the specified parameters.
+     * @param sx int: The x ordinal of the starting point.
+     * @param sy int: The y ordinal of the starting point.
+     * @param gx int: The x ordinal of the goal point.
+     * @param gy int: The y ordinal of the goal point.
+     * @param heuristic Heuristic: The heuristic to use for the agent. Must not overestimate for the bounds to hold.
+     * @param planningTime long: The planning time used for the agent.
+     */
+    public ARAStarAgent(int sx, int sy, int gx, int gy, Heuristic heuristic, long planningTime) {
+        super(sx, sy, gx, gy, planningTime);
+        mHeuristic = heuristic;
+        dInitialWeight = DEFAULT_INITIAL_WEIGHT;
+        dWeightStep = DEFAULT_WEIGHT_STEP;
+        dWeight = DEFAULT_INITIAL_WEIGHT;
+        iNeighbors = new int[Grid.MAX_NEIGHBORS];
+        bRestart = true;
+    }
+
+    /**
+     * Creates an instance of an ARA* agent with the specified parameters.
+     * @param start Point: The starting location.
+     * @param goal Point: The goal location.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     * @param planningTime long: The planning time used for the agent.
+     */
+    public ARAStarAgent(Point start, Point goal, Heuristic heuristic, long planningTime) {
+        this(start.getX(), start.getY(), goal.getX(), goal.getY(), heuristic, planningTime);
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the heuristic in use by the agent.
+     * @return Heuristic: The heuristic in use by the agent.
+     */
+    public Heuristic getHeuristic() {
+        return mHeuristic;
+    }
+
+    /**
+     * Sets the heuristic in use by the agent. The search starts over on the next traversal.
+     * @param heuristic Heuristic: The heuristic the agent should use.
+     */
+    public void setHeuristic(Heuristic heuristic) {
+        mHeuristic = heuristic;
+        bRestart = true;
+    }
+
+    /**
+     * Gets the weight the first search inflates the heuristic by.
+     * @return double: The initial weight.
+     */
+    public double getInitialWeight() {
+        return dInitialWeight;
+    }
+
+    /**
+     * Sets the weight the first search inflates the heuristic by. The search starts over on the next traversal.
+     * @param weight double: The initial weight. Must be one (1) or greater.
+     */
+    public void setInitialWeight(double weight) {
+        if (!(weight >= 1)) {
+            throw new IllegalArgumentException("ERROR: Initial weight must be at least one!");
+        }
+        dInitialWeight = weight;
+        bRestart = true;
+    }
+
+    /**
+     * Gets the amount the weight drops by between searches.
+     * @return double: The weight step.
+     */
+    public double getWeightStep() {
+        return dWeightStep;
+    }
+
+    /**
+     * Sets the amount the weight drops by between searches.
+     * @param step double: The weight step. Must be greater than zero (0).
+     */
+    public void setWeightStep(double step) {
+        if (!(step > 0)) {
+            throw new IllegalArgumentException("ERROR: Weight step must be positive!");
+        }
+        dWeightStep = step;
+    }
+
+    /**
+     * Gets the weight of the search in progress.
+     * @return double: The current weight, one (1) once the search is optimal.
+     */
+    public double getWeight() {
+        return dWeight;
+    }
+
+    /**
+     * Gets the cost of the cheapest path found for the current query.
+     * @return double: The path cost, or positive infinity if no path was found yet.
+     */
+    public double getSolutionCost() {
+        return dBestCost;
+    }
+
+    /**
+     * Gets the proven bound on how far the cheapest path found is from optimal.
+     * @return double: The factor the path cost is at most over the optimal cost, or positive infinity if no path
+     * was found yet.
+     */
+    public double getSuboptimalityBound() {
+        return dBestBound;
+    }
+
+    /**
+     * Determines if the search has finished improving, either because its path is optimal or because the goal
+     * cannot be reached.
+     * @return boolean: Whether further traversals of the same query would find nothing new.
+     */
+    public boolean isComplete() {
+        return bComplete;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Adds a listener to be told of each improved solution.
+     * @param listener SolutionListener: The listener to add, cannot be null.
+     */
+    public void addSolutionListener(SolutionListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("ERROR: Listener cannot be null!");
+        }
+        if (mListeners == null) {
+            mListeners = new ArrayList<>();
+        }
+        mListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added by addSolutionListener.
+     * @param listener SolutionListener: The listener to remove.
+     */
+    public void removeSolutionListener(SolutionListener listener) {
+        if (mListeners != null) {
+            mListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Improves the path from the start to the goal until the planning time runs out or the path is optimal.
+     * The search state is kept, so traversing the same query on an unchanged grid again continues improving it.
+     * Changing the start, the goal or the grid starts over.
+     * @param grid The grid to path find across.
+     * @return Path: The cheapest path found, from the start to the goal. Contains
+     * only the start if the planning time ran out before any path was found, and is null if the goal cannot be
+     * reached.
+     */
+    protected Path findPath(Grid grid) {
+        long deadline = System.currentTimeMillis() + getPlanningTime();
+        setPathFound(false);
+        setNodesExpanded(0);
+        int sx = getStart().getX();
+        int sy = getStart().getY();
+        int gx = getGoal().getX();
+        int gy = getGoal().getY();
+        if (!grid.mayBeConnected(sx, sy, gx, gy)) {
+            return null;
+        }
+        int start = grid.getCellIndex(sx, sy);
+        int goal = grid.getCellIndex(gx, gy);
+        if (bRestart || grid != mGrid || grid.getVersion() != lVersion || start != iSearchStart ||
+                goal != iSearchGoal) {
+            initialize(grid, start, goal);
+        }
+        mOpen.resetCounters();
+        long expansions = 0;
+        while (!bComplete) {
+            long began = System.currentTimeMillis();
+            long expanded = improvePath(grid, deadline);
+            expansions += Math.abs(expanded);
+            if (expanded < 0) {
+                // Out of time, the search resumes from here on the next traversal
+                break;
+            }
+            long now = System.currentTimeMillis();
+            lIterationTime = now - began;
+            if (dGScores[goal] == INFINITY) {
+                bComplete = true;
+                break;
+            }
+            publish(grid);
+            if (dWeight <= 1) {
+                bComplete = true;
+                break;
+            }
+            beginIteration(grid, nextWeight(deadline - now));
+        }
+        setNodesExpanded(expansions);
+        recordOpenList(mOpen);
+        if (mBestPath == null) {
+            if (bComplete) {
+                return null;
+            }
+            return Path.of(getStart());
+        }
+        setPathFound(true);
+        return mBestPath;
+    }
+
+    /**
+     * Throws away the search state and seeds the open list with the start.
+     */
+    private void initialize(Grid grid, int start, int goal) {
+        int cells = grid.getCellCount();
+        if (dGScores == null || dGScores.length != cells) {
+            dGScores = new double[cells];
+            iParents = new int[cells];
+            iClosed = new int[cells];
+            iMarked = new int[cells];
+            iInconsistent = new int[cells];
+            mOpen = new IndexedHeap(cells);
+        }
+        Arrays.fill(dGScores, INFINITY);
+        Arrays.fill(iClosed, 0);
+        Arrays.fill(iMarked, 0);
+        mOpen.clear();
+        mGrid = grid;
+        lVersion = grid.getVersion();
+        iSearchStart = start;
+        iSearchGoal = goal;
+        mBound = mHeuristic.bind(grid, grid.getCellX(goal), grid.getCellY(goal));
+        bRestart = false;
+        bComplete = false;
+        dWeight = dInitialWeight;
+        iIteration = 1;
+        iInconsistentCount = 0;
+        lIterationTime = 0;
+        mBestPath = null;
+        dBestCost = INFINITY;
+        dBestBound = INFINITY;
+        dGScores[start] = 0;
+        iParents[start] = NO_CELL;
+        double h = estimate(grid, start);
+        mOpen.update(start, dWeight * h, h);
+    }
+
+    /**
+     * Expands cells in order of their inflated estimate until the goal is no worse than every cell left open.
+     * Cells improved after the current search expanded them are set aside for the next search.
+     * @return long: The amount of cells expanded, negated if the deadline passed first.
+     */
+    private long improvePath(Grid grid, long deadline) {
+        int width = grid.getGridWidth();
+        int goal = iSearchGoal;
+        double goalEstimate = dWeight * estimate(grid, goal);
+        long expansions = 0;
+        while (!mOpen.isEmpty()) {
+            int current = mOpen.peek();
+            if (dGScores[goal] + goalEstimate <= mOpen.getKey(current)) {
+                break;
+            }
+            if (expansions % DEADLINE_CHECK_INTERVAL == 0 && expansions > 0 &&
+                    System.currentTimeMillis() >= deadline) {
+                return -expansions;
+            }
+            mOpen.poll();
+            iClosed[current] = iIteration;
+            expansions += 1;
+            int cx = current % width;
+            int cy = current / width;
+            double g = dGScores[current];
+            int count = grid.getNeighbors(current, iNeighbors);
+            for (int i = 0; i < count; i++) {
+                int next = iNeighbors[i];
+                int ny = next / width;
+                int nx = next - ny * width;
+                double score = g + (nx != cx && ny != cy ? AStarSearch.DIAGONAL_COST : AStarSearch.CARDINAL_COST);
+                if (score >= dGScores[next]) {
+                    continue;
+                }
+                dGScores[next] = score;
+                iParents[next] = current;
+                if (iClosed[next] != iIteration) {
+                    double h = mBound.estimate(nx, ny);
+                    mOpen.update(next, score + dWeight * h, h);
+                } else if (iMarked[next] != iIteration) {
+                    iMarked[next] = iIteration;
+                    iInconsistent[iInconsistentCount] = next;
+                    iInconsistentCount += 1;
+                }
+            }
+        }
+        return expansions;
+    }
+
+    /**
+     * Starts the next search: lowers the weight, moves the inconsistent cells into the open list and orders the
+     * open list on the new weight.
+     */
+    private void beginIteration(Grid grid, double weight) {
+        dWeight = weight;
+        for (int i = 0; i < iInconsistentCount; i++) {
+            mOpen.update(iInconsistent[i], 0, 0);
+        }
+        iInconsistentCount = 0;
+        // The keys of every open cell change with the weight. Updating moves cells between slots, so the cells
+        // are copied out first.
+        int size = mOpen.size();
+        int[] cells = iInconsistent;
+        for (int i = 0; i < size; i++) {
+            cells[i] = mOpen.get(i);
+        }
+        for (int i = 0; i < size; i++) {
+            int cell = cells[i];
+            double h = estimate(grid, cell);
+            mOpen.update(cell, dGScores[cell] + dWeight * h, h);
+        }
+        iIteration += 1;
+    }
+
+    /**
+     * Chooses the weight of the next search, dropping twice as far when the last search left plenty of time.
+     * @param remaining long: The planning time left in milliseconds.
+     * @return double: The weight of the next search, never below one (1).
+     */
+    private double nextWeight(long remaining) {
+        double step = lIterationTime * 4 < remaining ? 2 * dWeightStep : dWeightStep;
+        return Math.max(1, dWeight - step);
+    }
+
+    /**
+     * Records the path to the goal if it is cheaper, or its bound tighter, than the best so far, and tells the
+     * listeners.
+     */
+    private void publish(Grid grid) {
+        double cost = 0;
+        Path.Builder path = new Path.Builder();
+        int cell = iSearchGoal;
+        // Costs only fall along the parents, so the chain cannot cycle and costs at most the goal's g score
+        for (int steps = 0; cell != NO_CELL && steps < dGScores.length; steps++) {
+            int x = grid.getCellX(cell);
+            int y = grid.getCellY(cell);
+            path.add(x, y);
+            int parent = iParents[cell];
+            if (parent != NO_CELL) {
+                cost += x != grid.getCellX(parent) && y != grid.getCellY(parent) ?
+                        AStarSearch.DIAGONAL_COST : AStarSearch.CARDINAL_COST;
+            }
+            cell = parent;
+        }
+        double bound = bound(grid, cost);
+        if (cost >= dBestCost && bound >= dBestBound) {
+            return;
+        }
+        mBestPath = path.buildReversed();
+        dBestCost = Math.min(cost, dBestCost);
+        dBestBound = Math.min(bound, dBestBound);
+        if (mListeners != null) {
+            for (int i = 0; i < mListeners.size(); i++) {
+                mListeners.get(i).solutionFound(mBestPath, cost, bound);
+            }
+        }
+    }
+
+    /**
+     * Computes the bound on the suboptimality of a path. No path can be cheaper than the smallest uninflated
+     * estimate through a cell still open or inconsistent, and none can be more than the weight over optimal.
+     */
+    private double bound(Grid grid, double cost) {
+        double lowest = INFINITY;
+        for (int i = 0; i < mOpen.size(); i++) {
+            int cell = mOpen.get(i);
+            lowest = Math.min(lowest, dGScores[cell] + estimate(grid, cell));
+        }
+        for (int i = 0; i < iInconsistentCount; i++) {
+            int cell = iInconsistent[i];
+            lowest = Math.min(lowest, dGScores[cell] + estimate(grid, cell));
+        }
+        if (lowest == INFINITY || lowest >= cost) {
+            return 1;
+        }
+        return Math.max(1, Math.min(dWeight, cost / lowest));
+    }
+
+    /**
+     * Estimates the cost from a cell to the goal with the heuristic of the agent.
+     */
+    private double estimate(Grid grid, int cell) {
+        int width = grid.getGridWidth();
+        return mBound.estimate(cell % width, cell / width);
+    }
+
+}
@@ -0,0 +1,426 @@
+package planning.realtime;
+
+import planning.agent.AStarSearch;
+import planning.agent.Heuristic;
+import planning.agent.IndexedHeap;
+import planning.geom.Grid;
+import planning.geom.Path;
+import planning.geom.GridListener;
+import planning.geom.Point;
+
+import java.util.Arrays;
+
+/**
+ * Defines a D* Lite agent. The search runs backwards from the goal and keeps its g and rhs values between
+ * traversals, so when tiles change or the start moves only the cells whose distance to the goal is affected are
+ * expanded again, rather than the whole search space.
+ * <div>The agent listens to the grid it traverses and records the regions that change between traversals. The
+ * next traversal updates the cells in and around those regions and resumes the search from there. A traversal that
+ * runs out of planning time keeps its progress, and the next one picks up where it stopped.</div>
+ * <div>This algorithm comes from "D* Lite" by Koenig and Likhachev published in the Proceedings of the AAAI
+ * Conference on Artificial Intelligence (2002) pg. 476-483.</div>
+ */
+public class DStarLiteAgent extends RealTimeAgent implements GridListener {
+
+    /*
+        Constants
+     */
+
+    private static final double INFINITY = Double.POSITIVE_INFINITY;   // The distance of unreachable cells
+    private static final int NO_CELL = AStarSearch.NO_CELL;             // Marks the absence of a cell
+    private static final int DEADLINE_CHECK_INTERVAL = 64;              // The amount of expansions between clock reads
+    private static final int MAX_PENDING_REGIONS = 256;                 // The changed regions kept before replanning
+    private static final double KEY_TOLERANCE = 1e-9;                   // Primary keys closer than this may tie
+
+    /*
+        Fields
+     */
+
+    private Heuristic mHeuristic;       // The heuristic used for the agent
+    private Heuristic mBound;           // The heuristic bound to the start of the current traversal
+    private Grid mGrid;                 // The grid the search state belongs to, null until the first traversal
+    private double[] dGScores;          // The distance from each cell to the goal as of its last expansion
+    private double[] dRhs;              // The one step lookahead distance from each cell to the goal
+    private IndexedHeap mOpen;          // The inconsistent cells, keyed on the D* Lite key pair
+    private int[] iNeighbors;           // Receives the neighbors of the cell being expanded
+    private int[] iLookahead;           // Receives the neighbors of a cell whose lookahead is being computed
+    private int[] iRegions;             // The changed regions as (minX, minY, maxX, maxY) quadruples
+    private int iRegionCount;           // The amount of changed regions recorded
+    private boolean bReplan;            // Whether the search state must be rebuilt from scratch
+    private int iSearchGoal;            // The goal cell the search state belongs to
+    private int iLastStart;             // The start cell the keys in the open list were computed for
+    private double dKeyModifier;        // The bound on how much the keys have shrunk since the search began
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an instance of a D* Lite agent with the specified parameters.
+     * @param sx int: The x ordinal of the starting point.
+     * @param sy int: The y ordinal of the starting point.
+     * @param gx int: The x ordinal of the goal point.
+     * @param gy int: The y ordinal of the goal point.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     * @param planningTime long: The planning time used for the agent.
+     */
+    public DStarLiteAgent(int sx, int sy, int gx, int gy, Heuristic heuristic, long planningTime) {
+        super(sx, sy, gx, gy, planningTime);
+        mHeuristic = heuristic;
+        iNeighbors = new int[Grid.MAX_NEIGHBORS];
+        iLookahead = new int[Grid.MAX_NEIGHBORS];
+        iRegions = new int[4 * 16];
+        bReplan = true;
+    }
+
+    /**
+     * Creates an instance of a D* Lite agent with the specified parameters.
+     * @param start Point: The starting location.
+     * @param goal Point: The goal location.
+     * @param heuristic Heuristic: The heuristic to use for the agent.
+     * @param planningTime long: The planning time used for the agent.
+     */
+    public DStarLiteAgent(Point start, Point goal, Heuristic heuristic, long planningTime) {
+        this(start.getX(), start.getY(), goal.getX(), goal.getY(), heuristic, planningTime);
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the heuristic in use by the agent.
+     * @return Heuristic: The heuristic in use by the agent.
+     */
+    public Heuristic getHeuristic() {
+        return mHeuristic;
+    }
+
+    /**
+     * Sets the heuristic in use by the agent. The search is rebuilt on the next traversal.
+     * @param heuristic Heuristic: The heuristic the agent should use.
+     */
+    public synchronized void setHeuristic(Heuristic heuristic) {
+        mHeuristic = heuristic;
+        bReplan = true;
+    }
+
+    /**
+     * Gets the grid the agent is listening to.
+     * @return Grid: The grid of the last traversal, may be null.
+     */
+    public Grid getGrid() {
+        return mGrid;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Records a changed region of the grid, to be repaired on the next traversal.
+     */
+    @Override
+    public synchronized void cellsChanged(int minX, int minY, int maxX, int maxY) {
+        if (bReplan) {
+            return;
+        }
+        // Large or numerous changes are cheaper to plan from scratch than to repair cell by cell
+        long area = (long)(maxX - minX + 1) * (maxY - minY + 1);
+        if (iRegionCount == MAX_PENDING_REGIONS || area * 4 > mGrid.getCellCount()) {
+            bReplan = true;
+            iRegionCount = 0;
+            return;
+        }
+        if (iRegions.length == 4 * iRegionCount) {
+            iRegions = Arrays.copyOf(iRegions, iRegions.length * 2);
+        }
+        int slot = 4 * iRegionCount;
+        iRegions[slot] = minX;
+        iRegions[slot + 1] = minY;
+        iRegions[slot + 2] = maxX;
+        iRegions[slot + 3] = maxY;
+        iRegionCount += 1;
+    }
+
+    /**
+     * Stops the agent from listening to its grid. The search is rebuilt on the next traversal.
+     */
+    public synchronized void detach() {
+        if (mGrid != null) {
+            mGrid.removeListener(this);
+            mGrid = null;
+        }
+        bReplan = true;
+    }
+
+    /**
+     * Generates a path from the start to the goal, repairing the search of the previous traversal. Unlike the
+     * other agents, the grid is not checked for connectivity up front, since that would rebuild the component
+     * index after every new obstacle and cost more than the repair itself.
+     * @param grid The grid to path find across.
+     * @return Path: The path from the start to the goal. Contains only the start if
+     * the planning time ran out first, and is null if the goal cannot be reached.
+     */
+    protected synchronized Path findPath(Grid grid) {
+        setPathFound(false);
+        setNodesExpanded(0);
+        if (!grid.isValidCoordinates(getStart().getX(), getStart().getY()) ||
+                !grid.isValidCoordinates(getGoal().getX(), getGoal().getY())) {
+            return null;
+        }
+        int start = grid.getCellIndex(getStart().getX(), getStart().getY());
+        int goal = grid.getCellIndex(getGoal().getX(), getGoal().getY());
+        if (grid != mGrid) {
+            if (mGrid != null) {
+                mGrid.removeListener(this);
+            }
+            mGrid = grid;
+            grid.addListener(this);
+            bReplan = true;
+        }
+        // The search estimates from the start rather than to the goal, so the heuristic is bound to the start
+        Heuristic bound = mHeuristic.bind(grid, getStart().getX(), getStart().getY());
+        if (mBound == null || bound.getClass() != mBound.getClass()) {
+            // Keys from another kind of estimate, such as landmark tables falling back after a change, do not mix
+            bReplan = true;
+        }
+        mBound = bound;
+        if (mOpen != null) {
+            mOpen.resetCounters();
+        }
+        if (bReplan || goal != iSearchGoal || dGScores.length != grid.getCellCount()) {
+            initialize(grid, start, goal);
+        } else {
+            // Keys already in the open list were estimated from the old start, so new keys are raised by the
+            // distance it moved to keep them comparable
+            dKeyModifier += estimate(grid, iLastStart);
+            iLastStart = start;
+            repairRegions(grid);
+        }
+        long deadline = System.currentTimeMillis() + getPlanningTime();
+        if (!computeShortestPath(grid, start, deadline)) {
+            return Path.of(getStart());
+        }
+        if (dGScores[start] == INFINITY) {
+            return null;
+        }
+        setPathFound(true);
+        return generatePath(grid, start, goal);
+    }
+
+    /**
+     * Throws away the search state and seeds the open list with the goal.
+     */
+    private void initialize(Grid grid, int start, int goal) {
+        int cells = grid.getCellCount();
+        if (dGScores == null || dGScores.length != cells) {
+            dGScores = new double[cells];
+            dRhs = new double[cells];
+            mOpen = new IndexedHeap(cells);
+        }
+        Arrays.fill(dGScores, INFINITY);
+        Arrays.fill(dRhs, INFINITY);
+        mOpen.clear();
+        dKeyModifier = 0;
+        iSearchGoal = goal;
+        iLastStart = start;
+        iRegionCount = 0;
+        bReplan = false;
+        dRhs[goal] = 0;
+        mOpen.update(goal, estimate(grid, goal), 0);
+    }
+
+    /**
+     * Updates every cell that may have gained or lost a neighbor since the last traversal: the changed cells
+     * themselves and the ring of cells around each region.
+     */
+    private void repairRegions(Grid grid) {
+        int width = grid.getGridWidth();
+        int height = grid.getGridHeight();
+        for (int region = 0; region < iRegionCount; region++) {
+            int slot = 4 * region;
+            int minX = Math.max(0, iRegions[slot] - 1);
+            int minY = Math.max(0, iRegions[slot + 1] - 1);
+            int maxX = Math.min(width - 1, iRegions[slot + 2] + 1);
+            int maxY = Math.min(height - 1, iRegions[slot + 3] + 1);
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    int cell = y * width + x;
+                    if (cell != iSearchGoal) {
+                        dRhs[cell] = lookahead(grid, cell);
+                    }
+                    updateCell(grid, cell);
+                }
+            }
+        }
+        iRegionCount = 0;
+    }
+
+    /**
+     * Expands inconsistent cells until the start is consistent and no cell in the open list can improve it.
+     * @return boolean: Whether the search completed before the deadline.
+     */
+    private boolean computeShortestPath(Grid grid, int start, long deadline) {
+        int width = grid.getGridWidth();
+        long expansions = 0;
+        while (!mOpen.isEmpty()) {
+            int current = mOpen.peek();
+            double startKey = key(grid, start);
+            double currentKey = mOpen.getKey(current);
+            // Keys are sums of irrational step costs, so a cell whose key ties with the start may sort just after
+            // it. Every cell within the tolerance is expanded rather than trusting the secondary key, which costs
+            // little, since any other cell tying with the start must be closer to the goal than it.
+            if (dRhs[start] == dGScores[start] && currentKey > startKey + KEY_TOLERANCE) {
+                break;
+            }
+            if (expansions % DEADLINE_CHECK_INTERVAL == 0 && expansions > 0 &&
+                    System.currentTimeMillis() >= deadline) {
+                setNodesExpanded(expansions);
+                recordOpenList(mOpen);
+                return false;
+            }
+            expansions += 1;
+            double newKey = key(grid, current);
+            if (currentKey < newKey) {
+                // The key was computed before the start moved, so the cell may not be due yet
+                mOpen.update(current, newKey, Math.min(dGScores[current], dRhs[current]));
+                continue;
+            }
+            int cx = current % width;
+            int cy = current / width;
+            int count = grid.getNeighbors(current, iNeighbors);
+            if (dGScores[current] > dRhs[current]) {
+                // Overconsistent: the cell got closer to the goal, which can only lower its neighbors' lookahead
+                double g = dRhs[current];
+                dGScores[current] = g;
+                mOpen.remove(current);
+                for (int i = 0; i < count; i++) {
+                    int neighbor = iNeighbors[i];
+                    if (neighbor != iSearchGoal) {
+                        double score = g + cost(neighbor % width, neighbor / width, cx, cy);
+                        if (score < dRhs[neighbor]) {
+                            dRhs[neighbor] = score;
+                        }
+                    }
+                    updateCell(grid, neighbor);
+                }
+            } else {
+                // Underconsistent: the cell got further away, so every neighbor that went through it looks again
+                double oldG = dGScores[current];
+                dGScores[current] = INFINITY;
+                for (int i = 0; i < count; i++) {
+                    int neighbor = iNeighbors[i];
+                    if (neighbor != iSearchGoal &&
+                            dRhs[neighbor] == oldG + cost(neighbor % width, neighbor / width, cx, cy)) {
+                        dRhs[neighbor] = lookahead(grid, neighbor);
+                    }
+                    updateCell(grid, neighbor);
+                }
+                if (current != iSearchGoal) {
+                    dRhs[current] = lookahead(grid, current);
+                }
+                updateCell(grid, current);
+            }
+        }
+        setNodesExpanded(expansions);
+        recordOpenList(mOpen);
+        return true;
+    }
+
+    /**
+     * Follows the cheapest neighbor from the start until the goal is reached.
+     * @return Path: The path, from the start to the goal.
+     */
+    private Path generatePath(Grid grid, int start, int goal) {
+        int width = grid.getGridWidth();
+        Path.Builder path = new Path.Builder();
+        int current = start;
+        path.add(current % width, current / width);
+        // A consistent search strictly decreases g along the path, so no cell can repeat
+        for (int steps = 0; current != goal && steps < dGScores.length; steps++) {
+            int cx = current % width;
+            int cy = current / width;
+            int count = grid.getNeighbors(current, iNeighbors);
+            int next = NO_CELL;
+            double best = INFINITY;
+            for (int i = 0; i < count; i++) {
+                int neighbor = iNeighbors[i];
+                double score = dGScores[neighbor] + cost(cx, cy, neighbor % width, neighbor / width);
+                if (score < best) {
+                    best = score;
+                    next = neighbor;
+                }
+            }
+            if (next == NO_CELL) {
+                return null;
+            }
+            current = next;
+            path.add(current % width, current / width);
+        }
+        return current == goal ? path.build() : null;
+    }
+
+    /**
+     * Puts a cell in the open list if it is inconsistent, and takes it out otherwise.
+     */
+    private void updateCell(Grid grid, int cell) {
+        if (dGScores[cell] != dRhs[cell]) {
+            mOpen.update(cell, key(grid, cell), tie(cell));
+        } else {
+            mOpen.remove(cell);
+        }
+    }
+
+    /**
+     * Computes the smallest cost of reaching the goal through any neighbor of a cell.
+     */
+    private double lookahead(Grid grid, int cell) {
+        int width = grid.getGridWidth();
+        int x = cell % width;
+        int y = cell / width;
+        if (!grid.isValidCoordinates(x, y)) {
+            return INFINITY;
+        }
+        double best = INFINITY;
+        int count = grid.getNeighbors(cell, iLookahead);
+        for (int i = 0; i < count; i++) {
+            int neighbor = iLookahead[i];
+            double score = dGScores[neighbor] + cost(x, y, neighbor % width, neighbor / width);
+            if (score < best) {
+                best = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Computes the primary key of a cell: its distance to the goal plus the estimate from the start to it.
+     */
+    private double key(Grid grid, int cell) {
+        return tie(cell) + estimate(grid, cell) + dKeyModifier;
+    }
+
+    /**
+     * Computes the secondary key of a cell, its best known distance to the goal.
+     */
+    private double tie(int cell) {
+        return Math.min(dGScores[cell], dRhs[cell]);
+    }
+
+    /**
+     * Estimates the cost between the start and a cell with the heuristic of the agent.
+     */
+    private double estimate(Grid grid, int cell) {
+        int width = grid.getGridWidth();
+        return mBound.estimate(cell % width, cell / width);
+    }
+
+    /**
+     * Gets the cost of a step between two neighboring tiles.
+     */
+    private static double cost(int x1, int y1, int x2, int y2) {
+        return x1 != x2 && y1 != y2 ? AStarSearch.DIAGONAL_COST : AStarSearch.CARDINAL_COST;
+    }
+
+}
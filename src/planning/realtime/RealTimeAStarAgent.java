@@ -1,24 +1,19 @@
 package planning.realtime;
 
-import planning.agent.AStarNode;
+import planning.agent.AStarSearch;
 import planning.agent.Heuristic;
-import planning.geom.GeoMath;
 import planning.geom.Grid;
+import planning.geom.Path;
 import planning.geom.Point;
 
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.PriorityQueue;
-
 public class RealTimeAStarAgent extends RealTimeAgent {
 
     /*
         Fields
      */
 
-    private PriorityQueue<AStarNode> mOpenList;
-    private HashSet<Point> mClosedList;
-    private Heuristic eHeuristic;
+    private AStarSearch mSearch;
+    private Heuristic mHeuristic;
 
     /*
         Constructors
@@ -34,9 +29,8 @@ public class RealTimeAStarAgent extends RealTimeAgent {
      */
     public RealTimeAStarAgent(int sx, int sy, int gx, int gy, Heuristic heuristic, long planningTime) {
         super(sx, sy, gx, gy, planningTime);
-        mOpenList = new PriorityQueue<>();
-        mClosedList = new HashSet<>();
-        eHeuristic = heuristic;
+        mSearch = new AStarSearch(0);
+        mHeuristic = heuristic;
     }
 
     /**
@@ -58,7 +52,7 @@ public class RealTimeAStarAgent extends RealTimeAgent {
      * @return Heuristic: The heuristic in use by the agent.
      */
     public Heuristic getHeuristic () {
-        return eHeuristic;
+        return mHeuristic;
     }
 
     /**
@@ -66,7 +60,7 @@ public class RealTimeAStarAgent extends RealTimeAgent {
      * @param heuristic Heuristic: The heuristic the agent should use.
      */
     public void setHeuristic(Heuristic heuristic) {
-        eHeuristic = heuristic;
+        mHeuristic = heuristic;
     }
 
     /*
@@ -76,53 +70,30 @@ public class RealTimeAStarAgent extends RealTimeAgent {
     /**
      * Generates a path segment in real-time. The agents starting node is updated each time this method executes.
      * @param grid The grid to path find across.
-     * @return LinkeList: A path segment.
+     * @return Path: A path segment, from the start. May return null if no path exists.
      */
-    public LinkedList<Point> traverse(Grid grid) {
+    protected Path findPath(Grid grid) {
         // Reset the path found flag
         if (isPathFound()) {
-            mOpenList.clear();
-            mClosedList.clear();
             setPathFound(false);
         }
-        // Begin planning
-        mOpenList.add(new AStarNode(getStart()));
-        AStarNode current = null;
-        // This initializes the timer
+        // Plan until the goal is found or the planning time runs out
         long finishTime = System.currentTimeMillis() + getPlanningTime();
-        while(System.currentTimeMillis() <= finishTime){
-            current = mOpenList.poll();
-            if (isGoalNode(current)) {
-                return generatePath(current);
-            }
-            for (Point p : grid.generateNeighbors(current.getPosition().getX(), current.getPosition().getY())) {
-                AStarNode node = new AStarNode(p);
-                if (mOpenList.contains(node) || mClosedList.contains(p)) {
-                    continue;
-                }
-                switch (eHeuristic) {
-                    case EUCLIDEAN:
-                        node.setFScore(node.getGScore() + GeoMath.euclideanDistance(current.getPosition().getX(),
-                                current.getPosition().getY(), getGoal().getX(), getGoal().getY()));
-                        break;
-                    case MANHATTAN:
-                        node.setFScore(node.getGScore() + GeoMath.manhattanDistance(current.getPosition().getX(),
-                                current.getPosition().getY(), getGoal().getX(), getGoal().getY()));
-                        break;
-                    case OCTILE:
-                        node.setFScore(node.getGScore() + GeoMath.octileDistance(current.getPosition().getX(),
-                                current.getPosition().getY(), getGoal().getX(), getGoal().getY()));
-                        break;
-                    default:
-                        node.setFScore(node.getGScore() + GeoMath.octileDistance(current.getPosition().getX(),
-                                current.getPosition().getY(), getGoal().getX(), getGoal().getY()));
-                        break;
-                }
-                mOpenList.add(node);
-            }
+        boolean found = mSearch.search(grid, getStart().getX(), getStart().getY(),
+                getGoal().getX(), getGoal().getY(), mHeuristic, finishTime);
+        setNodesExpanded(mSearch.getExpandedCount());
+        recordOpenList(mSearch.getContext().getOpenList());
+        if (found) {
+            setPathFound(true);
+            return mSearch.generatePath(grid, mSearch.getLastCell());
+        }
+        int current = mSearch.getLastCell();
+        if (!mSearch.hasTimedOut() || current == AStarSearch.NO_CELL) {
+            // The search space was exhausted without reaching the goal
+            return null;
         }
-        setStart(current.getPosition());
-        return generatePath(current);
+        setStart(grid.getCellX(current), grid.getCellY(current));
+        return mSearch.generatePath(grid, current);
     }
 
 }
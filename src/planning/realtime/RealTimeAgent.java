@@ -2,10 +2,9 @@ package planning.realtime;
 
 import planning.agent.Agent;
 import planning.geom.Grid;
+import planning.geom.Path;
 import planning.geom.Point;
 
-import java.util.LinkedList;
-
 /**
  * Represents a base abstract class real-time agents may extend from.
  */
@@ -89,8 +88,8 @@ public abstract class RealTimeAgent extends Agent {
     /**
      * Generates a path segment for a real-time planning agent. It may or may not contain the goal point.
      * @param grid The grid to path find across.
-     * @return LinkedList: A path segment for a real-time planning agent.
+     * @return Path: A path segment for a real-time planning agent, from the start.
      */
-    public abstract LinkedList<Point> traverse(Grid grid);
+    protected abstract Path findPath(Grid grid);
 
 }
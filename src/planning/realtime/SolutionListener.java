@@ -0,0 +1,20 @@
+package planning.realtime;
+
+import planning.geom.Path;
+
+/**
+ * Receives the solutions of an anytime agent as they improve.
+ * <div>Listeners are called on the thread running the search, between iterations, so they should return quickly
+ * to leave the agent its planning time.</div>
+ */
+public interface SolutionListener {
+
+    /**
+     * Called each time the agent finds a cheaper path, or proves a tighter bound on the path it has.
+     * @param path Path: The path, from the start to the goal.
+     * @param cost double: The cost of the path.
+     * @param bound double: The factor the path cost is at most over the optimal cost. One (1) once it is optimal.
+     */
+    void solutionFound(Path path, double cost, double bound);
+
+}
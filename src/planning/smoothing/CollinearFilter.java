@@ -0,0 +1,59 @@
+package planning.smoothing;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+
+/**
+ * Removes the vertices that lie on a straight line between their neighbors, along with repeated tiles. Paths of
+ * neighboring tiles shrink to the tiles where they turn.
+ * <div>The path is unchanged as a polyline, so this stage makes no visibility queries.</div>
+ */
+public class CollinearFilter implements PathStage {
+
+    /*
+        Methods
+     */
+
+    /**
+     * Drops every vertex that continues in the direction of the one before it.
+     * @param path Path: The path to process, from the start to the goal.
+     * @param grid Grid: Unused.
+     * @param sight LineOfSight: Unused.
+     * @return Path: The path without collinear or repeated vertices.
+     */
+    @Override
+    public Path apply(Path path, Grid grid, LineOfSight sight) {
+        int size = path.size();
+        if (size < 3) {
+            return path;
+        }
+        Path.Builder filtered = new Path.Builder(size);
+        int lastX = path.getX(0);
+        int lastY = path.getY(0);
+        filtered.add(lastX, lastY);
+        for (int i = 1; i < size - 1; i++) {
+            int x = path.getX(i);
+            int y = path.getY(i);
+            if (x == lastX && y == lastY) {
+                continue;
+            }
+            long inX = x - lastX;
+            long inY = y - lastY;
+            long outX = path.getX(i + 1) - x;
+            long outY = path.getY(i + 1) - y;
+            // Kept only if the path turns here, or doubles back on itself
+            if (inX * outY - inY * outX != 0 || inX * outX + inY * outY < 0) {
+                filtered.add(x, y);
+                lastX = x;
+                lastY = y;
+            }
+        }
+        int goalX = path.getX(size - 1);
+        int goalY = path.getY(size - 1);
+        if (goalX != lastX || goalY != lastY || filtered.size() == 1) {
+            filtered.add(goalX, goalY);
+        }
+        return filtered.size() == size ? path : filtered.build();
+    }
+
+}
@@ -0,0 +1,20 @@
+package planning.smoothing;
+
+/**
+ * Tests whether two tiles can see each other. Path stages make every visibility query through this interface, so
+ * callers can count the queries or answer them from something other than a grid.
+ */
+@FunctionalInterface
+public interface LineOfSight {
+
+    /**
+     * Determines if there is line of sight between two tiles.
+     * @param x1 int: The x ordinal of the first tile.
+     * @param y1 int: The y ordinal of the first tile.
+     * @param x2 int: The x ordinal of the second tile.
+     * @param y2 int: The y ordinal of the second tile.
+     * @return boolean: Whether the two tiles can see each other.
+     */
+    boolean test(int x1, int y1, int x2, int y2);
+
+}
@@ -0,0 +1,59 @@
+package planning.smoothing;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+
+/**
+ * Shortcuts a path greedily with line of sight. An anchor starts at the start of the path, and each vertex is kept
+ * only if the anchor cannot see the vertex after it, in which case the anchor moves up to the kept vertex.
+ * <div>Every vertex but the ends costs exactly one visibility query. Each segment of the result is either a
+ * segment of the input or was tested visible, so the result is valid wherever the input is.</div>
+ */
+public class LineOfSightSmoother implements PathStage {
+
+    /*
+        Methods
+     */
+
+    /**
+     * Removes every vertex that the last kept vertex can see past.
+     * @param path Path: The path to process, from the start to the goal.
+     * @param grid Grid: The grid the path was found on.
+     * @param sight LineOfSight: The visibility test between tiles.
+     * @return Path: The shortcut path.
+     */
+    @Override
+    public Path apply(Path path, Grid grid, LineOfSight sight) {
+        int size = path.size();
+        if (size < 3) {
+            return path;
+        }
+        Path.Builder smoothed = new Path.Builder();
+        smoothed.add(path.getX(0), path.getY(0));
+        shortcut(path, 0, size - 1, sight, smoothed);
+        return smoothed.size() == size ? path : smoothed.build();
+    }
+
+    /**
+     * Shortcuts the vertices of a path between two positions, adding every kept vertex after the first, up to and
+     * including the last. Makes one visibility query per vertex strictly between the two.
+     * @param path Path: The path being processed.
+     * @param from int: The position of the anchor, which has already been added.
+     * @param to int: The position of the last vertex to add.
+     * @param sight LineOfSight: The visibility test between tiles.
+     * @param out Path.Builder: Receives the kept vertices.
+     */
+    static void shortcut(Path path, int from, int to, LineOfSight sight, Path.Builder out) {
+        int anchorX = path.getX(from);
+        int anchorY = path.getY(from);
+        for (int i = from + 1; i < to; i++) {
+            if (!sight.test(anchorX, anchorY, path.getX(i + 1), path.getY(i + 1))) {
+                anchorX = path.getX(i);
+                anchorY = path.getY(i);
+                out.add(anchorX, anchorY);
+            }
+        }
+        out.add(path.getX(to), path.getY(to));
+    }
+
+}
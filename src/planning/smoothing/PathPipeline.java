@@ -0,0 +1,91 @@
+package planning.smoothing;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+
+import java.util.Arrays;
+
+/**
+ * Runs a sequence of path stages, handing the output of each stage to the next.
+ * <div>Since each stage is linear in the tiles it is given and no stage lengthens a path, a pipeline is linear in
+ * the length of the path it starts from. DEFAULT is the pipeline Agent.smoothPath runs.</div>
+ */
+public final class PathPipeline implements PathStage {
+
+    /*
+        Constants
+     */
+
+    public static final PathPipeline DEFAULT = new PathPipeline(new LineOfSightSmoother(),
+            new CollinearFilter());  // Shortcuts the path, then drops the vertices left on straight lines
+
+    /*
+        Fields
+     */
+
+    private final PathStage[] mStages;  // The stages, in the order they run
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates a pipeline of the given stages.
+     * @param stages PathStage: The stages, in the order they run. Cannot be null.
+     */
+    public PathPipeline(PathStage... stages) {
+        if (stages == null) {
+            throw new IllegalArgumentException("ERROR: Stages cannot be null!");
+        }
+        for (PathStage stage : stages) {
+            if (stage == null) {
+                throw new IllegalArgumentException("ERROR: Stages cannot be null!");
+            }
+        }
+        mStages = stages.clone();
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the amount of stages in the pipeline.
+     * @return int: The amount of stages.
+     */
+    public int size() {
+        return mStages.length;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Runs every stage on the path in turn.
+     * @param path Path: The path to process, from the start to the goal.
+     * @param grid Grid: The grid the path was found on.
+     * @param sight LineOfSight: The visibility test between tiles.
+     * @return Path: The output of the last stage, or the path itself if the pipeline is empty.
+     */
+    @Override
+    public Path apply(Path path, Grid grid, LineOfSight sight) {
+        for (PathStage stage : mStages) {
+            path = stage.apply(path, grid, sight);
+        }
+        return path;
+    }
+
+    /**
+     * Creates a pipeline that runs the stages of this pipeline and then another stage.
+     * @param next PathStage: The stage to run last.
+     * @return PathStage: The longer pipeline. This pipeline is left unchanged.
+     */
+    @Override
+    public PathStage then(PathStage next) {
+        PathStage[] stages = Arrays.copyOf(mStages, mStages.length + 1);
+        stages[mStages.length] = next;
+        return new PathPipeline(stages);
+    }
+
+}
@@ -0,0 +1,43 @@
+package planning.smoothing;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+
+/**
+ * Defines one step of path post-processing. A stage reads a path and returns a path with the same start and goal
+ * that is no longer, and every stage of this package runs in time linear in the amount of tiles it is given.
+ * <div>Stages hold no state between calls, so a single instance can be shared by any amount of threads. They are
+ * combined with then, which runs the stages one after the other.</div>
+ */
+@FunctionalInterface
+public interface PathStage {
+
+    /**
+     * Processes a path, making its visibility queries through the given test rather than the grid.
+     * @param path Path: The path to process, from the start to the goal.
+     * @param grid Grid: The grid the path was found on.
+     * @param sight LineOfSight: The visibility test between tiles.
+     * @return Path: The processed path, from the start to the goal.
+     */
+    Path apply(Path path, Grid grid, LineOfSight sight);
+
+    /**
+     * Processes a path against the line of sight of the grid it was found on.
+     * @param path Path: The path to process, from the start to the goal.
+     * @param grid Grid: The grid the path was found on.
+     * @return Path: The processed path, from the start to the goal.
+     */
+    default Path apply(Path path, Grid grid) {
+        return apply(path, grid, grid::lineOfSight);
+    }
+
+    /**
+     * Creates a stage that runs this stage, then another on its output.
+     * @param next PathStage: The stage to run second.
+     * @return PathStage: The combined stage.
+     */
+    default PathStage then(PathStage next) {
+        return new PathPipeline(this, next);
+    }
+
+}
@@ -0,0 +1,223 @@
+package planning.smoothing;
+
+import planning.geom.Grid;
+import planning.geom.Path;
+
+/**
+ * Pulls a path of neighboring tiles taut within the corridor of tiles it passes through, using the funnel
+ * algorithm.
+ * <div>Each tile is taken as a unit square around its coordinates, and each step crosses a portal: the edge two
+ * tiles share, or the corner two diagonal tiles share. The funnel keeps the left and right chains of portal
+ * endpoints visible from its apex in a deque, so every endpoint is pushed and popped at most once and the taut path
+ * is found in linear time. The funnel needs no visibility queries, since the corridor is free by construction.</div>
+ * <div>The taut path bends at tile corners rather than tiles, so each bend is moved to the tile just past it, or
+ * the tile just before it, whichever the previous vertex can see. Only if neither is visible are the tiles in
+ * between shortcut as LineOfSightSmoother does. Paths with steps longer than one tile, such as those of the
+ * any-angle and sampling agents, are pulled one run of neighboring tiles at a time, keeping both ends of every
+ * longer step.</div>
+ */
+public class StringPuller implements PathStage {
+
+    /*
+        Methods
+     */
+
+    /**
+     * Pulls the runs of neighboring tiles of a path taut.
+     * @param path Path: The path to process, from the start to the goal.
+     * @param grid Grid: The grid the path was found on.
+     * @param sight LineOfSight: The visibility test between tiles.
+     * @return Path: The pulled path.
+     */
+    @Override
+    public Path apply(Path path, Grid grid, LineOfSight sight) {
+        int size = path.size();
+        if (size < 3) {
+            return path;
+        }
+        Path.Builder pulled = new Path.Builder();
+        pulled.add(path.getX(0), path.getY(0));
+        int from = 0;
+        for (int i = 0; i < size - 1; i++) {
+            int dx = Math.abs(path.getX(i + 1) - path.getX(i));
+            int dy = Math.abs(path.getY(i + 1) - path.getY(i));
+            if (Math.max(dx, dy) != 1) {
+                pull(path.subPath(from, i + 1), sight, pulled);
+                if (dx != 0 || dy != 0) {
+                    pulled.add(path.getX(i + 1), path.getY(i + 1));
+                }
+                from = i + 1;
+            }
+        }
+        pull(path.subPath(from, size), sight, pulled);
+        return pulled.size() == size ? path : pulled.build();
+    }
+
+    /**
+     * Pulls a run of neighboring tiles taut, adding every vertex after its first tile up to and including its last.
+     */
+    private static void pull(Path corridor, LineOfSight sight, Path.Builder out) {
+        int portals = corridor.size() - 1;
+        if (portals < 2) {
+            if (portals == 1) {
+                out.add(corridor.getX(1), corridor.getY(1));
+            }
+            return;
+        }
+        // Coordinates are doubled so that tile corners fall on integers
+        Funnel funnel = new Funnel(portals, 2L * corridor.getX(0), 2L * corridor.getY(0));
+        for (int j = 0; j < portals; j++) {
+            int x = corridor.getX(j);
+            int y = corridor.getY(j);
+            int dx = corridor.getX(j + 1) - x;
+            int dy = corridor.getY(j + 1) - y;
+            long cx = 2L * x + dx;
+            long cy = 2L * y + dy;
+            if (dx != 0 && dy != 0) {
+                funnel.addLeft(cx, cy, j);
+                funnel.addRight(cx, cy, j);
+            } else {
+                funnel.addLeft(cx - dy, cy + dx, j);
+                funnel.addRight(cx + dy, cy - dx, j);
+            }
+        }
+        funnel.finish(2L * corridor.getX(portals), 2L * corridor.getY(portals), portals);
+        int kept = 0;
+        for (int i = 0; i < funnel.iBendCount; i++) {
+            int portal = funnel.iBends[i];
+            int past = portal + 1;
+            if (past <= kept || past >= portals) {
+                continue;
+            }
+            if (sees(corridor, kept, past, sight)) {
+                out.add(corridor.getX(past), corridor.getY(past));
+                kept = past;
+            } else if (portal > kept && sees(corridor, kept, portal, sight)) {
+                out.add(corridor.getX(portal), corridor.getY(portal));
+                kept = portal;
+            } else {
+                LineOfSightSmoother.shortcut(corridor, kept, past, sight, out);
+                kept = past;
+            }
+        }
+        if (sees(corridor, kept, portals, sight)) {
+            out.add(corridor.getX(portals), corridor.getY(portals));
+        } else {
+            LineOfSightSmoother.shortcut(corridor, kept, portals, sight, out);
+        }
+    }
+
+    /**
+     * Tests the line of sight between two vertices of a path.
+     */
+    private static boolean sees(Path path, int from, int to, LineOfSight sight) {
+        return sight.test(path.getX(from), path.getY(from), path.getX(to), path.getY(to));
+    }
+
+    /**
+     * Holds the funnel as a deque of portal endpoints: the left chain below the apex and the right chain above it,
+     * each ordered outwards from the apex. Records the portal of every endpoint the apex moves onto, which are the
+     * bends of the taut path in order.
+     */
+    private static final class Funnel {
+
+        private final long[] lXs;       // The doubled x ordinal of each endpoint in the deque
+        private final long[] lYs;       // The doubled y ordinal of each endpoint in the deque
+        private final int[] iPortals;   // The portal of each endpoint in the deque, -1 for the start
+        private final int[] iBends;     // The portals of the bends, in order
+        private int iBendCount;         // The amount of bends
+        private int iLow;               // The slot of the outermost endpoint of the left chain
+        private int iApex;              // The slot of the apex
+        private int iHigh;              // The slot of the outermost endpoint of the right chain
+
+        private Funnel(int portals, long x, long y) {
+            // Each side is pushed at most once per portal, plus once for the goal
+            int capacity = 2 * portals + 5;
+            lXs = new long[capacity];
+            lYs = new long[capacity];
+            iPortals = new int[capacity];
+            iBends = new int[capacity];
+            iLow = portals + 2;
+            iApex = iLow;
+            iHigh = iLow;
+            set(iApex, x, y, -1);
+        }
+
+        /**
+         * Adds an endpoint to the left chain, popping the endpoints it hides and moving the apex along the right
+         * chain if the endpoint crosses it.
+         */
+        private void addLeft(long x, long y, int portal) {
+            if (x == lXs[iLow] && y == lYs[iLow]) {
+                return;
+            }
+            while (iLow < iApex && cross(iLow + 1, iLow, x, y) >= 0) {
+                iLow += 1;
+            }
+            if (iLow == iApex) {
+                while (iApex < iHigh && cross(iApex, iApex + 1, x, y) < 0) {
+                    iApex += 1;
+                    iBends[iBendCount++] = iPortals[iApex];
+                }
+                iLow = iApex;
+                if (x == lXs[iApex] && y == lYs[iApex]) {
+                    return;
+                }
+            }
+            iLow -= 1;
+            set(iLow, x, y, portal);
+        }
+
+        /**
+         * Adds an endpoint to the right chain, popping the endpoints it hides and moving the apex along the left
+         * chain if the endpoint crosses it.
+         */
+        private void addRight(long x, long y, int portal) {
+            if (x == lXs[iHigh] && y == lYs[iHigh]) {
+                return;
+            }
+            while (iHigh > iApex && cross(iHigh - 1, iHigh, x, y) <= 0) {
+                iHigh -= 1;
+            }
+            if (iHigh == iApex) {
+                while (iApex > iLow && cross(iApex, iApex - 1, x, y) > 0) {
+                    iApex -= 1;
+                    iBends[iBendCount++] = iPortals[iApex];
+                }
+                iHigh = iApex;
+                if (x == lXs[iApex] && y == lYs[iApex]) {
+                    return;
+                }
+            }
+            iHigh += 1;
+            set(iHigh, x, y, portal);
+        }
+
+        /**
+         * Closes the funnel at the goal. What is left of the left chain then runs from the apex to the goal, and
+         * every endpoint on it is a bend.
+         */
+        private void finish(long x, long y, int portal) {
+            addLeft(x, y, portal);
+            for (int slot = iApex - 1; slot >= iLow; slot--) {
+                iBends[iBendCount++] = iPortals[slot];
+            }
+        }
+
+        /**
+         * Measures which side of the ray from one endpoint through another a point lies on.
+         * @return long: Positive if the point is to the left, negative if to the right, zero (0) if on the line.
+         */
+        private long cross(int from, int to, long x, long y) {
+            return (lXs[to] - lXs[from]) * (y - lYs[from]) - (lYs[to] - lYs[from]) * (x - lXs[from]);
+        }
+
+        private void set(int slot, long x, long y, int portal) {
+            lXs[slot] = x;
+            lYs[slot] = y;
+            iPortals[slot] = portal;
+        }
+
+    }
+
+}
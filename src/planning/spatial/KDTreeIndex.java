@@ -0,0 +1,193 @@
+package planning.spatial;
+
+import java.util.Arrays;
+
+/**
+ * Indexes points in an incremental 2-d tree. Each point becomes a node splitting the plane on x or y, alternating
+ * with depth, and is inserted below the leaf its coordinate falls under. The tree is never rebalanced, which keeps
+ * insertion cheap and is harmless for the uniformly sampled points of the sampling agents, whose expected depth
+ * stays logarithmic.
+ * <div>Nodes are stored in parallel arrays indexed by insertion order and queries walk the tree with an explicit
+ * stack, so neither adding nor querying allocates once the arrays have grown.</div>
+ */
+public class KDTreeIndex implements NearestNeighborIndex {
+
+    /*
+        Constants
+     */
+
+    private static final int EMPTY = -1;    // Marks a missing child
+
+    /*
+        Fields
+     */
+
+    private int[] iXs;          // The x ordinal of each node
+    private int[] iYs;          // The y ordinal of each node
+    private int[] iIds;         // The id of each node
+    private int[] iLeft;        // The child of each node holding smaller ordinals on its axis
+    private int[] iRight;       // The child of each node holding equal or larger ordinals on its axis
+    private boolean[] bSplitX;  // Whether each node splits on x rather than y
+    private int[] iStack;       // The nodes a query has yet to visit
+    private long[] lBounds;     // The smallest squared distance any point below each stacked node can have
+    private int iSize;          // The amount of nodes in the tree
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an empty tree.
+     */
+    public KDTreeIndex() {
+        iXs = new int[16];
+        iYs = new int[16];
+        iIds = new int[16];
+        iLeft = new int[16];
+        iRight = new int[16];
+        bSplitX = new boolean[16];
+        iStack = new int[64];
+        lBounds = new long[64];
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    @Override
+    public int size() {
+        return iSize;
+    }
+
+    /*
+        Methods
+     */
+
+    @Override
+    public void reset(int width, int height) {
+        iSize = 0;
+    }
+
+    @Override
+    public void add(int id, int x, int y) {
+        if (iSize == iXs.length) {
+            int capacity = iSize * 2;
+            iXs = Arrays.copyOf(iXs, capacity);
+            iYs = Arrays.copyOf(iYs, capacity);
+            iIds = Arrays.copyOf(iIds, capacity);
+            iLeft = Arrays.copyOf(iLeft, capacity);
+            iRight = Arrays.copyOf(iRight, capacity);
+            bSplitX = Arrays.copyOf(bSplitX, capacity);
+        }
+        int node = iSize;
+        iXs[node] = x;
+        iYs[node] = y;
+        iIds[node] = id;
+        iLeft[node] = EMPTY;
+        iRight[node] = EMPTY;
+        iSize += 1;
+        if (node == 0) {
+            bSplitX[node] = true;
+            return;
+        }
+        int parent = 0;
+        while (true) {
+            boolean left = bSplitX[parent] ? x < iXs[parent] : y < iYs[parent];
+            int child = left ? iLeft[parent] : iRight[parent];
+            if (child == EMPTY) {
+                if (left) {
+                    iLeft[parent] = node;
+                } else {
+                    iRight[parent] = node;
+                }
+                bSplitX[node] = !bSplitX[parent];
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    @Override
+    public int nearest(int x, int y) {
+        if (iSize == 0) {
+            return -1;
+        }
+        int best = 0;
+        long bestDistance = Long.MAX_VALUE;
+        int top = 0;
+        iStack[top] = 0;
+        lBounds[top] = 0;
+        top += 1;
+        while (top > 0) {
+            top -= 1;
+            int node = iStack[top];
+            long bound = lBounds[top];
+            // The best distance may have shrunk since the subtree was pushed
+            if (bound >= bestDistance) {
+                continue;
+            }
+            long dx = iXs[node] - x;
+            long dy = iYs[node] - y;
+            long distance = dx * dx + dy * dy;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = node;
+            }
+            long offset = bSplitX[node] ? x - iXs[node] : y - iYs[node];
+            int near = offset < 0 ? iLeft[node] : iRight[node];
+            int far = offset < 0 ? iRight[node] : iLeft[node];
+            if (top + 2 > iStack.length) {
+                iStack = Arrays.copyOf(iStack, iStack.length * 2);
+                lBounds = Arrays.copyOf(lBounds, lBounds.length * 2);
+            }
+            // Every point across the splitting line is at least as far away as the line itself
+            if (far != EMPTY && offset * offset < bestDistance) {
+                iStack[top] = far;
+                lBounds[top] = Math.max(bound, offset * offset);
+                top += 1;
+            }
+            if (near != EMPTY) {
+                iStack[top] = near;
+                lBounds[top] = bound;
+                top += 1;
+            }
+        }
+        return iIds[best];
+    }
+
+    @Override
+    public int near(int x, int y, long squaredRadius, int[] ids) {
+        if (iSize == 0) {
+            return 0;
+        }
+        int count = 0;
+        int top = 0;
+        iStack[top++] = 0;
+        while (top > 0) {
+            int node = iStack[--top];
+            long dx = iXs[node] - x;
+            long dy = iYs[node] - y;
+            if (dx * dx + dy * dy <= squaredRadius) {
+                if (count < ids.length) {
+                    ids[count] = iIds[node];
+                }
+                count += 1;
+            }
+            long offset = bSplitX[node] ? x - iXs[node] : y - iYs[node];
+            int near = offset < 0 ? iLeft[node] : iRight[node];
+            int far = offset < 0 ? iRight[node] : iLeft[node];
+            if (top + 2 > iStack.length) {
+                iStack = Arrays.copyOf(iStack, iStack.length * 2);
+                lBounds = Arrays.copyOf(lBounds, lBounds.length * 2);
+            }
+            if (far != EMPTY && offset * offset <= squaredRadius) {
+                iStack[top++] = far;
+            }
+            if (near != EMPTY) {
+                iStack[top++] = near;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,49 @@
+package planning.spatial;
+
+/**
+ * Defines an incremental index of points on a grid that answers nearest neighbor queries.
+ * <div>Points are identified by the id they were added with, which the sampling agents use to look up their own
+ * tree nodes. Distances are compared squared, in integer arithmetic, so no square roots are taken.</div>
+ */
+public interface NearestNeighborIndex {
+
+    /**
+     * Removes every point and prepares the index for points on a grid of the given size.
+     * @param width int: The width of the grid the points lie on.
+     * @param height int: The height of the grid the points lie on.
+     */
+    void reset(int width, int height);
+
+    /**
+     * Adds a point to the index.
+     * @param id int: The id to report the point by.
+     * @param x int: The x ordinal of the point.
+     * @param y int: The y ordinal of the point.
+     */
+    void add(int id, int x, int y);
+
+    /**
+     * Finds the point closest to a coordinate. Ties are broken arbitrarily.
+     * @param x int: The x ordinal of the coordinate.
+     * @param y int: The y ordinal of the coordinate.
+     * @return int: The id of the closest point, or -1 if the index is empty.
+     */
+    int nearest(int x, int y);
+
+    /**
+     * Finds every point within a radius of a coordinate, in no particular order.
+     * @param x int: The x ordinal of the coordinate.
+     * @param y int: The y ordinal of the coordinate.
+     * @param squaredRadius long: The square of the radius, inclusive.
+     * @param ids int[]: Receives the ids of the points found. Points past its length are counted but not written.
+     * @return int: The amount of points within the radius, which may exceed the length of ids.
+     */
+    int near(int x, int y, long squaredRadius, int[] ids);
+
+    /**
+     * Gets the amount of points in the index.
+     * @return int: The amount of points added since the last reset.
+     */
+    int size();
+
+}
@@ -0,0 +1,207 @@
+package planning.spatial;
+
+import java.util.Arrays;
+
+/**
+ * Indexes points by hashing them into square buckets laid over the grid. A query searches rings of buckets
+ * outwards from the bucket holding the coordinate and stops as soon as no unsearched bucket can hold a closer
+ * point, so its cost depends on how many points lie near the coordinate rather than on how many there are.
+ * <div>Each bucket is a singly linked list threaded through an array indexed by insertion order, so adding a
+ * point allocates nothing once the arrays have grown.</div>
+ */
+public class SpatialHashIndex implements NearestNeighborIndex {
+
+    /*
+        Constants
+     */
+
+    public static final int DEFAULT_BUCKET_SIZE = 16;   // The default width and height of a bucket
+    private static final int EMPTY = -1;                // Terminates the list of a bucket
+
+    /*
+        Fields
+     */
+
+    private final int iBucketSize;  // The width and height of a bucket
+    private int iColumns;           // The amount of buckets across the grid
+    private int iRows;              // The amount of buckets down the grid
+    private int[] iHeads;           // The most recently added point of each bucket
+    private int[] iNext;            // The point added to the same bucket before each point
+    private int[] iXs;              // The x ordinal of each point
+    private int[] iYs;              // The y ordinal of each point
+    private int[] iIds;             // The id of each point
+    private int iSize;              // The amount of points in the index
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an index with the default bucket size.
+     */
+    public SpatialHashIndex() {
+        this(DEFAULT_BUCKET_SIZE);
+    }
+
+    /**
+     * Creates an index with the given bucket size. Buckets about as wide as the typical distance between
+     * neighboring points work best.
+     * @param bucketSize int: The width and height of a bucket. Must be one (1) or greater.
+     */
+    public SpatialHashIndex(int bucketSize) {
+        if (bucketSize < 1) {
+            throw new IllegalArgumentException("ERROR: Bucket size must be positive!");
+        }
+        iBucketSize = bucketSize;
+        iHeads = new int[0];
+        iNext = new int[16];
+        iXs = new int[16];
+        iYs = new int[16];
+        iIds = new int[16];
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the width and height of a bucket.
+     * @return int: The bucket size.
+     */
+    public int getBucketSize() {
+        return iBucketSize;
+    }
+
+    @Override
+    public int size() {
+        return iSize;
+    }
+
+    /*
+        Methods
+     */
+
+    @Override
+    public void reset(int width, int height) {
+        iColumns = Math.max(1, (width + iBucketSize - 1) / iBucketSize);
+        iRows = Math.max(1, (height + iBucketSize - 1) / iBucketSize);
+        int buckets = Math.multiplyExact(iColumns, iRows);
+        if (iHeads.length < buckets) {
+            iHeads = new int[buckets];
+        }
+        Arrays.fill(iHeads, 0, buckets, EMPTY);
+        iSize = 0;
+    }
+
+    @Override
+    public void add(int id, int x, int y) {
+        if (iSize == iXs.length) {
+            int capacity = iSize * 2;
+            iNext = Arrays.copyOf(iNext, capacity);
+            iXs = Arrays.copyOf(iXs, capacity);
+            iYs = Arrays.copyOf(iYs, capacity);
+            iIds = Arrays.copyOf(iIds, capacity);
+        }
+        int bucket = bucketRow(y) * iColumns + bucketColumn(x);
+        iXs[iSize] = x;
+        iYs[iSize] = y;
+        iIds[iSize] = id;
+        iNext[iSize] = iHeads[bucket];
+        iHeads[bucket] = iSize;
+        iSize += 1;
+    }
+
+    @Override
+    public int nearest(int x, int y) {
+        if (iSize == 0) {
+            return -1;
+        }
+        int column = bucketColumn(x);
+        int row = bucketRow(y);
+        int best = EMPTY;
+        long bestDistance = Long.MAX_VALUE;
+        int maxRing = Math.max(Math.max(column, iColumns - 1 - column), Math.max(row, iRows - 1 - row));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every point in this ring or beyond is at least this far away along one axis
+            if (ring > 0) {
+                long gap = gapToRing(x, y, column, row, ring);
+                if (gap * gap >= bestDistance) {
+                    break;
+                }
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= iRows) {
+                    continue;
+                }
+                // Inner rows of the ring only contribute their two end buckets
+                int step = (r == row - ring || r == row + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= iColumns) {
+                        continue;
+                    }
+                    for (int p = iHeads[r * iColumns + c]; p != EMPTY; p = iNext[p]) {
+                        long dx = iXs[p] - x;
+                        long dy = iYs[p] - y;
+                        long distance = dx * dx + dy * dy;
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = p;
+                        }
+                    }
+                }
+            }
+        }
+        return iIds[best];
+    }
+
+    @Override
+    public int near(int x, int y, long squaredRadius, int[] ids) {
+        int radius = (int)Math.min(Integer.MAX_VALUE, (long)Math.ceil(Math.sqrt((double)squaredRadius)));
+        int count = 0;
+        int firstRow = bucketRow((int)Math.max(Integer.MIN_VALUE, (long)y - radius));
+        int lastRow = bucketRow((int)Math.min(Integer.MAX_VALUE, (long)y + radius));
+        int firstColumn = bucketColumn((int)Math.max(Integer.MIN_VALUE, (long)x - radius));
+        int lastColumn = bucketColumn((int)Math.min(Integer.MAX_VALUE, (long)x + radius));
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                for (int p = iHeads[r * iColumns + c]; p != EMPTY; p = iNext[p]) {
+                    long dx = iXs[p] - x;
+                    long dy = iYs[p] - y;
+                    if (dx * dx + dy * dy <= squaredRadius) {
+                        if (count < ids.length) {
+                            ids[count] = iIds[p];
+                        }
+                        count += 1;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the smallest distance along either axis from a coordinate to a ring of buckets around its own.
+     */
+    private long gapToRing(int x, int y, int column, int row, int ring) {
+        long left = x - (long)(column - ring + 1) * iBucketSize + 1;
+        long right = (long)(column + ring) * iBucketSize - x;
+        long top = y - (long)(row - ring + 1) * iBucketSize + 1;
+        long bottom = (long)(row + ring) * iBucketSize - y;
+        return Math.max(0, Math.min(Math.min(left, right), Math.min(top, bottom)));
+    }
+
+    /**
+     * Maps an x ordinal to its bucket column, clamping coordinates off the grid to the nearest column.
+     */
+    private int bucketColumn(int x) {
+        return Math.min(iColumns - 1, Math.max(0, x / iBucketSize));
+    }
+
+    /**
+     * Maps a y ordinal to its bucket row, clamping coordinates off the grid to the nearest row.
+     */
+    private int bucketRow(int y) {
+        return Math.min(iRows - 1, Math.max(0, y / iBucketSize));
+    }
+
+}
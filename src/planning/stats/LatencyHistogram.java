@@ -0,0 +1,162 @@
+package planning.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies in log-linear buckets, so that percentiles can be read at any time without keeping samples.
+ * <div>Each power of two is split into eight buckets, which bounds the error of a percentile to an eighth of its
+ * value across the whole range of a long. Recording takes a few atomic increments and never allocates, so any
+ * amount of threads can record into one histogram.</div>
+ */
+public class LatencyHistogram {
+
+    /*
+        Constants
+     */
+
+    private static final int SUB_BUCKET_BITS = 3;                       // Splits each power of two into eight
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;        // The amount of buckets per power of two
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS; // Covers every long
+
+    /*
+        Fields
+     */
+
+    private final AtomicLongArray lCounts;  // The amount of values recorded in each bucket
+    private final LongAdder lCount;         // The amount of values recorded
+    private final LongAdder lSum;           // The sum of the values recorded
+    private final AtomicLong lMax;          // The largest value recorded
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        lCounts = new AtomicLongArray(BUCKETS);
+        lCount = new LongAdder();
+        lSum = new LongAdder();
+        lMax = new AtomicLong();
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the amount of values recorded.
+     * @return long: The amount of values.
+     */
+    public long getCount() {
+        return lCount.sum();
+    }
+
+    /**
+     * Gets the sum of the values recorded.
+     * @return long: The total of every value.
+     */
+    public long getSum() {
+        return lSum.sum();
+    }
+
+    /**
+     * Gets the largest value recorded.
+     * @return long: The maximum, or zero (0) if nothing was recorded.
+     */
+    public long getMax() {
+        return lMax.get();
+    }
+
+    /**
+     * Gets the mean of the values recorded.
+     * @return double: The mean, or zero (0) if nothing was recorded.
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double)getSum() / count;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Records a value.
+     * @param value long: The value, such as a latency in nanoseconds. Negative values are recorded as zero (0).
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        lCounts.incrementAndGet(bucketOf(value));
+        lCount.increment();
+        lSum.add(value);
+        lMax.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Estimates a percentile of the values recorded.
+     * @param percentile double: The percentile, between zero (0) and one hundred (100).
+     * @return long: The upper bound of the bucket holding the percentile, never more than the maximum. Zero (0)
+     * if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("ERROR: Percentile must be between 0 and 100!");
+        }
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += lCounts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBound(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Removes every value recorded. Values recorded concurrently may be partly kept.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            lCounts.set(bucket, 0);
+        }
+        lCount.reset();
+        lSum.reset();
+        lMax.set(0);
+    }
+
+    /**
+     * Finds the bucket of a value. Values below eight each have their own bucket, larger values are placed by
+     * their highest set bit and the three bits below it.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int mantissa = (int)(value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    /**
+     * Finds the largest value that falls in a bucket.
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+}
@@ -0,0 +1,98 @@
+package planning.stats;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a latency histogram of the traversals of each type of agent, for the life of the process.
+ * <div>Agents only record here while their statistics are enabled. Statistics are off by default and can be turned
+ * on for every agent created afterwards by starting the JVM with -Dplanning.stats=true, or for a single agent with
+ * Agent.setStatsEnabled. The histograms can be read directly, or scraped as text in the Prometheus exposition
+ * format.</div>
+ */
+public final class SearchMetrics {
+
+    /*
+        Constants
+     */
+
+    public static final String ENABLED_PROPERTY = "planning.stats";     // Turns statistics on for new agents
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};  // The quantiles reported by scrape
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();  // By agent type
+
+    /*
+        Constructors
+     */
+
+    private SearchMetrics() {}
+
+    /*
+        Methods
+     */
+
+    /**
+     * Determines if new agents start with their statistics enabled.
+     * @return boolean: Whether the planning.stats system property is true.
+     */
+    public static boolean isEnabledByDefault() {
+        return Boolean.getBoolean(ENABLED_PROPERTY);
+    }
+
+    /**
+     * Gets the histogram of an agent type, creating it if no traversal has been recorded for it yet.
+     * @param agent String: The simple class name of the agent.
+     * @return LatencyHistogram: The traversal latencies of the agent type in nanoseconds.
+     */
+    public static LatencyHistogram getHistogram(String agent) {
+        return HISTOGRAMS.computeIfAbsent(agent, name -> new LatencyHistogram());
+    }
+
+    /**
+     * Gets the histograms of every agent type recorded so far.
+     * @return Map: The histograms keyed and sorted by the simple class name of the agent.
+     */
+    public static Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(HISTOGRAMS);
+    }
+
+    /**
+     * Records the wall time of a traversal in the histogram of its agent type.
+     * @param stats SearchStats: The statistics of the traversal.
+     */
+    public static void record(SearchStats stats) {
+        getHistogram(stats.getAgent()).record(stats.getWallTime());
+    }
+
+    /**
+     * Removes every histogram.
+     */
+    public static void reset() {
+        HISTOGRAMS.clear();
+    }
+
+    /**
+     * Writes the histograms as a Prometheus summary named planning_traverse_seconds, labelled by agent type.
+     * @return String: The histograms in the Prometheus text exposition format.
+     */
+    public static String scrape() {
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP planning_traverse_seconds The wall time of agent traversals.\n");
+        text.append("# TYPE planning_traverse_seconds summary\n");
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            String agent = entry.getKey();
+            LatencyHistogram histogram = entry.getValue();
+            for (double quantile : QUANTILES) {
+                text.append("planning_traverse_seconds{agent=\"").append(agent).append("\",quantile=\"")
+                        .append(quantile).append("\"} ").append(histogram.getPercentile(quantile * 100) / 1e9)
+                        .append('\n');
+            }
+            text.append("planning_traverse_seconds_sum{agent=\"").append(agent).append("\"} ")
+                    .append(histogram.getSum() / 1e9).append('\n');
+            text.append("planning_traverse_seconds_count{agent=\"").append(agent).append("\"} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+        return text.toString();
+    }
+
+}
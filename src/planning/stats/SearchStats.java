@@ -0,0 +1,123 @@
+package planning.stats;
+
+/**
+ * Records how much work a single traversal of an agent did.
+ * <div>Nodes generated counts every node added to the open list or tree, so together with the nodes expanded it
+ * shows how much of the frontier a search actually used. Agents without an open list, such as the sampling
+ * agents, report a peak open list size of zero (0).</div>
+ */
+public class SearchStats {
+
+    /*
+        Fields
+     */
+
+    private final String sAgent;            // The simple class name of the agent
+    private final long lNodesExpanded;      // The amount of nodes expanded
+    private final long lNodesGenerated;     // The amount of nodes added to the open list or tree
+    private final int iPeakOpenSize;        // The most nodes held by the open list at once
+    private final long lLineOfSightChecks;  // The amount of line of sight checks made
+    private final long lWallTime;           // The time the traversal took in nanoseconds
+    private final boolean bPathFound;       // Whether the traversal returned a path
+
+    /*
+        Constructors
+     */
+
+    /**
+     * Creates an instance of a SearchStats object.
+     * @param agent String: The simple class name of the agent.
+     * @param nodesExpanded long: The amount of nodes expanded.
+     * @param nodesGenerated long: The amount of nodes added to the open list or tree.
+     * @param peakOpenSize int: The most nodes held by the open list at once.
+     * @param lineOfSightChecks long: The amount of line of sight checks made.
+     * @param wallTime long: The time the traversal took in nanoseconds.
+     * @param pathFound boolean: Whether the traversal returned a path.
+     */
+    public SearchStats(String agent, long nodesExpanded, long nodesGenerated, int peakOpenSize,
+                       long lineOfSightChecks, long wallTime, boolean pathFound) {
+        sAgent = agent;
+        lNodesExpanded = nodesExpanded;
+        lNodesGenerated = nodesGenerated;
+        iPeakOpenSize = peakOpenSize;
+        lLineOfSightChecks = lineOfSightChecks;
+        lWallTime = wallTime;
+        bPathFound = pathFound;
+    }
+
+    /*
+        Accessors/Mutators
+     */
+
+    /**
+     * Gets the type of agent that traversed.
+     * @return String: The simple class name of the agent.
+     */
+    public String getAgent() {
+        return sAgent;
+    }
+
+    /**
+     * Gets the amount of nodes the traversal expanded.
+     * @return long: The amount of nodes expanded.
+     */
+    public long getNodesExpanded() {
+        return lNodesExpanded;
+    }
+
+    /**
+     * Gets the amount of nodes the traversal added to its open list or tree.
+     * @return long: The amount of nodes generated.
+     */
+    public long getNodesGenerated() {
+        return lNodesGenerated;
+    }
+
+    /**
+     * Gets the most nodes the open list held at once.
+     * @return int: The peak open list size, or zero (0) for agents without an open list.
+     */
+    public int getPeakOpenSize() {
+        return iPeakOpenSize;
+    }
+
+    /**
+     * Gets the amount of line of sight checks the traversal made.
+     * @return long: The amount of line of sight checks.
+     */
+    public long getLineOfSightChecks() {
+        return lLineOfSightChecks;
+    }
+
+    /**
+     * Gets the time the traversal took.
+     * @return long: The wall clock time in nanoseconds.
+     */
+    public long getWallTime() {
+        return lWallTime;
+    }
+
+    /**
+     * Determines if the traversal returned a path.
+     * @return boolean: Whether a path, or a path segment for real-time agents, was returned.
+     */
+    public boolean isPathFound() {
+        return bPathFound;
+    }
+
+    /*
+        Methods
+     */
+
+    /**
+     * Generates a string representation of the statistics.
+     * @return String: The counters and wall time of the traversal.
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d expanded, %d generated, %d peak open, %d line of sight, %.3f ms%s", sAgent,
+                lNodesExpanded, lNodesGenerated, iPeakOpenSize, lLineOfSightChecks, lWallTime / 1e6,
+                bPathFound ? "" : ", no path");
+    }
+
+}
@@ -0,0 +1,44 @@
+package planning.stats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Defines the JDK Flight Recorder event emitted for each instrumented traversal. The event duration is the wall
+ * time of the traversal. Enable it in a recording with the name planning.Traverse.
+ */
+@Name("planning.Traverse")
+@Label("Path Traversal")
+@Category({"PlanningLib", "Search"})
+@Description("A single call to Agent.traverse and the work it did")
+@StackTrace(false)
+public class TraverseEvent extends Event {
+
+    /*
+        Fields
+     */
+
+    @Label("Agent")
+    @Description("The simple class name of the agent")
+    public String agent;
+
+    @Label("Nodes Expanded")
+    public long nodesExpanded;
+
+    @Label("Nodes Generated")
+    public long nodesGenerated;
+
+    @Label("Peak Open List Size")
+    public int peakOpenSize;
+
+    @Label("Line of Sight Checks")
+    public long lineOfSightChecks;
+
+    @Label("Path Found")
+    public boolean pathFound;
+
+}